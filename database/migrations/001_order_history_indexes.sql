@@ -0,0 +1,20 @@
+# Adds the order history indexes to a database created before them.
+# create_database.sql already has them - run this only against an existing easyshop database.
+
+USE easyshop;
+
+-- keyset pages of one user's orders, newest first: WHERE user_id = ? ORDER BY date DESC, order_id DESC
+ALTER TABLE orders
+    ADD INDEX ix_orders_user_date (user_id, date, order_id);
+
+-- the line items of a page of orders (WHERE order_id IN (...)); InnoDB appends the primary key, so
+-- this is (order_id, order_line_item_id) without listing it
+ALTER TABLE order_line_items
+    ADD INDEX ix_order_line_items_order (order_id);
+
+-- the indexes MySQL made for the foreign keys lead with the same columns as the ones above, which now
+-- serve the foreign keys as well; every insert paid for both
+ALTER TABLE orders
+    DROP INDEX user_id;
+ALTER TABLE order_line_items
+    DROP INDEX order_id;
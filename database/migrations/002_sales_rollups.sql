@@ -0,0 +1,31 @@
+# Adds the sales rollup tables behind /reports to a database created before them.
+# create_database.sql already has them - run this only against an existing easyshop database,
+# then fill them from the order history with POST /reports/rebuild.
+# The tables carry no foreign keys: a rebuild swaps in copies made with CREATE TABLE ... LIKE,
+# which would not keep them.
+
+USE easyshop;
+
+-- the orders already counted in the rollups, so counting one is never repeated
+CREATE TABLE sales_rollup_orders (
+    order_id INT NOT NULL,
+    PRIMARY KEY (order_id)
+);
+
+-- top sellers: read straight off ix_sales_by_product_units, highest first
+CREATE TABLE sales_by_product (
+    product_id INT NOT NULL,
+    units INT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (product_id),
+    INDEX ix_sales_by_product_units (units, product_id)
+);
+
+-- revenue per category and day: a date range is one primary key range scan
+CREATE TABLE sales_by_category_day (
+    sales_date DATE NOT NULL,
+    category_id INT NOT NULL,
+    units INT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (sales_date, category_id)
+);
@@ -26,6 +26,11 @@ public class DatabaseConfig
         basicDataSource.setUrl(url);
         basicDataSource.setUsername(username);
         basicDataSource.setPassword(password);
+
+        // lets a statement with a positive fetch size read rows in batches instead of buffering the whole result
+        basicDataSource.addConnectionProperty("useCursorFetch", "true");
+        // sends JDBC batches as multi-row statements - one round trip per batch instead of one per row
+        basicDataSource.addConnectionProperty("rewriteBatchedStatements", "true");
     }
 
 }
\ No newline at end of file
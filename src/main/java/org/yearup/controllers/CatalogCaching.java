@@ -0,0 +1,26 @@
+package org.yearup.controllers;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.yearup.services.CatalogVersion;
+
+// Conditional GET for catalog reads. Responses carry the catalog version as a strong ETag and
+// "Cache-Control: no-cache", so clients keep their copy but revalidate it on every use; a matching
+// If-None-Match is answered with 304 before the handler reads anything.
+final class CatalogCaching
+{
+    private static final String NO_CACHE = CacheControl.noCache().getHeaderValue();
+
+    private CatalogCaching()
+    {
+    }
+
+    // true when the 304 has been set up and the handler should return null right away
+    static boolean notModified(ServletWebRequest request, CatalogVersion catalogVersion)
+    {
+        // set explicitly, otherwise Spring Security adds no-store and the browser never revalidates
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, NO_CACHE);
+        return request.checkNotModified(catalogVersion.etag());
+    }
+}
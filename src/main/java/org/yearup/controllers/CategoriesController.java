@@ -1,36 +1,58 @@
 package org.yearup.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.yearup.data.CategoryDao;
 import org.yearup.data.ProductDao;
+import org.yearup.data.memory.CategorySummaries;
 import org.yearup.models.Category;
+import org.yearup.models.CategorySummary;
 import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductSearchCriteria;
+import org.yearup.models.ProductSort;
+import org.yearup.services.CatalogVersion;
 
-import java.util.List;
+import java.util.*;
 
 @RestController  // Marks this class as a REST controller
 @RequestMapping("/categories")  // URL path for category-related endpoints
-@CrossOrigin  // Allows cross-origin requests (useful for frontend-backend communication)
+@CrossOrigin(exposedHeaders = {PageResponses.LINK_HEADER, HttpHeaders.ETAG})  // Allows cross-origin requests and exposes the paging Link header and ETag
 public class CategoriesController {
 
     private final CategoryDao categoryDao;  // Interface for Category DAO (Database access)
     private final ProductDao productDao;  // Interface for Product DAO (Database access)
+    private final ObjectMapper objectMapper;  // Serializes products row by row in streaming mode
+    private final CatalogVersion catalogVersion;  // ETag for conditional GETs, bumped by every catalog write
+    private final CategorySummaries categorySummaries;  // Per-category counts and price ranges
 
     // Constructor-based dependency injection for CategoryDao and ProductDao
     @Autowired
-    public CategoriesController(CategoryDao categoryDao, ProductDao productDao) {
+    public CategoriesController(CategoryDao categoryDao, ProductDao productDao, ObjectMapper objectMapper,
+                                CatalogVersion catalogVersion, CategorySummaries categorySummaries) {
         this.categoryDao = categoryDao;
         this.productDao = productDao;
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
+        this.categorySummaries = categorySummaries;
     }
 
     // GET /categories - Get all categories
+    // Every GET here answers If-None-Match with 304 while the catalog version is unchanged
     @GetMapping("")  // Handles GET requests to /categories
-    public ResponseEntity<List<Category>> getAll() {
+    public ResponseEntity<List<Category>> getAll(ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
         try {
             List<Category> categories = categoryDao.getAllCategories();  // Fetch all categories
             return ResponseEntity.ok(categories);  // Return 200 OK with categories
@@ -40,9 +62,31 @@ public class CategoriesController {
         }
     }
 
+    // GET /categories/summary - Product count, in-stock count and price range of every category,
+    // read from aggregates that product writes keep up to date (no product rows are read)
+    @GetMapping("/summary")  // Handles GET requests to /categories/summary
+    public ResponseEntity<List<CategorySummary>> getSummaries(ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        try {
+            List<CategorySummary> summaries = new ArrayList<>();
+            for (Category category : categoryDao.getAllCategories()) {
+                summaries.add(categorySummaries.summarize(category));  // One map lookup per category
+            }
+            return ResponseEntity.ok(summaries);  // Return 200 OK with the summaries
+        } catch (Exception ex) {
+            // Return 500 INTERNAL SERVER ERROR in case of exception
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving category summaries", ex);
+        }
+    }
+
     // GET /categories/{id} - Get category by ID
     @GetMapping("/{id}")  // Handles GET requests to /categories/{id}
-    public ResponseEntity<Category> getById(@PathVariable int id) {
+    public ResponseEntity<Category> getById(@PathVariable int id, ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
         Category category = categoryDao.getById(id);  // Fetch category by ID
         if (category == null) {
             // If category not found, return 404 NOT FOUND
@@ -52,17 +96,92 @@ public class CategoriesController {
     }
 
     // GET /categories/{categoryId}/products - Get all products for a specific category
+    // Optional sort, limit and after parameters page through the category (next page in the Link header)
     @GetMapping("/{categoryId}/products")  // Handles GET requests to /categories/{categoryId}/products
-    public ResponseEntity<List<Product>> getProductsByCategoryId(@PathVariable int categoryId) {
+    public ResponseEntity<List<Product>> getProductsByCategoryId(@PathVariable int categoryId,
+                                                                 @RequestParam(name = "sort", required = false) String sort,
+                                                                 @RequestParam(name = "limit", required = false) Integer limit,
+                                                                 @RequestParam(name = "after", required = false) String after,
+                                                                 ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
         try {
-            List<Product> products = productDao.listByCategoryId(categoryId);  // Fetch products by category ID
-            return ResponseEntity.ok(products);  // Return 200 OK with the products list
+            if (sort == null && limit == null && after == null) {
+                List<Product> products = productDao.listByCategoryId(categoryId);  // Fetch products by category ID
+                return ResponseEntity.ok(products);  // Return 200 OK with the products list
+            }
+
+            ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, null, null, null);
+            criteria.setSort(ProductSort.fromParameter(sort));
+            criteria.setLimit(limit);
+            criteria.setAfter(after);
+
+            var page = productDao.searchPage(criteria);  // Fetch one page of the category
+            return PageResponses.of(page.getProducts(), page.getNext());  // Return 200 OK with a Link to the next page
+        } catch (IllegalArgumentException ex) {
+            // Return 400 BAD REQUEST for an unknown sort or a malformed cursor
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
         } catch (Exception ex) {
             // Return 500 INTERNAL SERVER ERROR in case of exception
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving products for category", ex);
         }
     }
 
+    // GET /categories/{categoryId}/products?fields=name,price,imageUrl - Only the listed properties (plus productId);
+    // only those columns are read. Pages like the full listing when sort, limit or after is given
+    @GetMapping(value = "/{categoryId}/products", params = {"fields", "!stream"})
+    public ResponseEntity<List<Map<String, Object>>> getProductFieldsByCategoryId(@PathVariable int categoryId,
+                                                                                 @RequestParam(name = "sort", required = false) String sort,
+                                                                                 @RequestParam(name = "limit", required = false) Integer limit,
+                                                                                 @RequestParam(name = "after", required = false) String after,
+                                                                                 @RequestParam(name = "fields") String fields,
+                                                                                 ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        try {
+            Set<ProductField> selected = ProductField.parse(fields);
+            ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, null, null, null);
+            criteria.setSort(ProductSort.fromParameter(sort));
+            if (limit == null && after == null) {
+                return ResponseEntity.ok(productDao.searchFields(criteria, selected));  // Fetch only the selected columns
+            }
+
+            criteria.setLimit(limit);
+            criteria.setAfter(after);
+            var page = productDao.searchPageFields(criteria, selected);  // Fetch one page of the selected columns
+            return PageResponses.of(page.getRows(), page.getNext());  // Return 200 OK with a Link to the next page
+        } catch (IllegalArgumentException ex) {
+            // Return 400 BAD REQUEST for an unknown field, an unknown sort or a malformed cursor
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (Exception ex) {
+            // Return 500 INTERNAL SERVER ERROR in case of exception
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving products for category", ex);
+        }
+    }
+
+    // GET /categories/{categoryId}/products?stream=true - Stream the category's products as they are read
+    @GetMapping(value = "/{categoryId}/products", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamProductsByCategoryId(@PathVariable int categoryId,
+                                                                           @RequestParam(name = "sort", required = false) String sort,
+                                                                           ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, null, null, null);
+        try {
+            criteria.setSort(ProductSort.fromParameter(sort));
+        } catch (IllegalArgumentException ex) {
+            // Return 400 BAD REQUEST for an unknown sort
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        // Rows are written to the response as they leave the ResultSet, so memory use stays flat
+        StreamingResponseBody body = ProductStreams.jsonArray(objectMapper, consumer -> productDao.stream(criteria, consumer));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     // POST /categories - Add a new category (Admin ONLYYY!!!)
     @PreAuthorize("hasRole('ROLE_ADMIN')")  // Only users with ADMIN role can add a category
     @PostMapping("")  // Handles POST requests to /categories
@@ -0,0 +1,131 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.UserDao;
+import org.yearup.models.Order;
+import org.yearup.models.OrderPage;
+import org.yearup.models.OrderProcessingStatus;
+import org.yearup.models.User;
+import org.yearup.services.CheckoutService;
+import org.yearup.services.OrderPipeline;
+
+import java.security.Principal;
+import java.util.List;
+
+@RestController
+@RequestMapping("orders")
+@CrossOrigin(exposedHeaders = PageResponses.LINK_HEADER)
+@PreAuthorize("isAuthenticated()")  // only logged in users can place orders
+public class OrdersController
+{
+    private final CheckoutService checkoutService;
+    private final OrderPipeline orderPipeline;
+    private final OrderDao orderDao;
+    private final UserDao userDao;
+
+    @Autowired
+    public OrdersController(CheckoutService checkoutService, OrderPipeline orderPipeline, OrderDao orderDao, UserDao userDao)
+    {
+        this.checkoutService = checkoutService;
+        this.orderPipeline = orderPipeline;
+        this.orderDao = orderDao;
+        this.userDao = userDao;
+    }
+
+    // GET https://localhost:8080/orders?limit=20 - the current user's orders with their line items, newest first;
+    // the next page is linked in the Link header
+    @GetMapping
+    public ResponseEntity<List<Order>> getOrders(@RequestParam(name = "limit", required = false) Integer limit,
+                                                 @RequestParam(name = "after", required = false) String after,
+                                                 Principal principal)
+    {
+        try
+        {
+            OrderPage page = orderDao.getByUserId(getUserId(principal), limit, after);
+            return PageResponses.of(page.getOrders(), page.getNext());
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // GET https://localhost:8080/orders/12 - the user's order 12 with its line items
+    @GetMapping("{orderId}")
+    public Order getById(@PathVariable int orderId, Principal principal)
+    {
+        Order order;
+        try
+        {
+            order = orderDao.getById(getUserId(principal), orderId);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        // someone else's order is answered like a missing one
+        if (order == null)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found.");
+        }
+        return order;
+    }
+
+    // POST https://localhost:8080/orders - no BODY; orders everything in the current user's cart,
+    // ships it to the profile address and empties the cart. The order is committed when this returns;
+    // the follow-up processing can be polled at /orders/{orderId}/status
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Order checkout(Principal principal)
+    {
+        try
+        {
+            return checkoutService.checkout(getUserId(principal));
+        }
+        catch(InsufficientStockException e)
+        {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        catch(IllegalStateException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // GET https://localhost:8080/orders/12/status - how far the processing of the user's order 12 got
+    @GetMapping("{orderId}/status")
+    public OrderProcessingStatus getStatus(@PathVariable int orderId, Principal principal)
+    {
+        OrderProcessingStatus status = orderPipeline.getStatus(orderId);
+
+        // someone else's order is answered like a missing one
+        if (status == null || status.getUserId() != getUserId(principal))
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No processing status for this order.");
+        }
+        return status;
+    }
+
+    // find the database user for the logged in username
+    private int getUserId(Principal principal)
+    {
+        User user = userDao.getByUserName(principal.getName());
+        return user.getId();
+    }
+}
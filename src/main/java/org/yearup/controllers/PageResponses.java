@@ -0,0 +1,30 @@
+package org.yearup.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+// Builds paged list responses: the body stays a plain JSON array and the next page is advertised
+// in a Link header (rel="next") carrying the opaque "after" cursor.
+final class PageResponses
+{
+    static final String LINK_HEADER = "Link";
+
+    private PageResponses()
+    {
+    }
+
+    static <T> ResponseEntity<List<T>> of(List<T> items, String nextCursor)
+    {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null)
+        {
+            String nextUrl = ServletUriComponentsBuilder.fromCurrentRequest()
+                                                        .replaceQueryParam("after", nextCursor)
+                                                        .toUriString();
+            response.header(LINK_HEADER, "<" + nextUrl + ">; rel=\"next\"");
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,128 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.PricingRuleDao;
+import org.yearup.models.PricingRule;
+import org.yearup.services.CompiledPricing;
+
+import java.util.List;
+
+// Merchandising rules behind cart discounts; every write is compiled into the pricing engine right away
+@RestController
+@RequestMapping("pricing-rules")
+@CrossOrigin
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class PricingRulesController
+{
+    private final PricingRuleDao pricingRuleDao;
+
+    @Autowired
+    public PricingRulesController(PricingRuleDao pricingRuleDao)
+    {
+        this.pricingRuleDao = pricingRuleDao;
+    }
+
+    // GET https://localhost:8080/pricing-rules - every rule, active or not
+    @GetMapping
+    public List<PricingRule> getAll()
+    {
+        try
+        {
+            return pricingRuleDao.getAll();
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    @GetMapping("{ruleId}")
+    public PricingRule getById(@PathVariable int ruleId)
+    {
+        PricingRule rule;
+        try
+        {
+            rule = pricingRuleDao.getById(ruleId);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        if (rule == null)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pricing rule not found.");
+        }
+        return rule;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public PricingRule create(@RequestBody PricingRule rule)
+    {
+        validate(rule);
+        try
+        {
+            return pricingRuleDao.create(rule);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    @PutMapping("{ruleId}")
+    public PricingRule update(@PathVariable int ruleId, @RequestBody PricingRule rule)
+    {
+        validate(rule);
+        boolean updated;
+        try
+        {
+            updated = pricingRuleDao.update(ruleId, rule);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        if (!updated)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pricing rule not found.");
+        }
+        return rule;
+    }
+
+    @DeleteMapping("{ruleId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void delete(@PathVariable int ruleId)
+    {
+        boolean deleted;
+        try
+        {
+            deleted = pricingRuleDao.delete(ruleId);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        if (!deleted)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pricing rule not found.");
+        }
+    }
+
+    // a rule the engine would skip is rejected up front
+    private static void validate(PricingRule rule)
+    {
+        String problem = CompiledPricing.validate(rule);
+        if (problem != null)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, problem);
+        }
+    }
+}
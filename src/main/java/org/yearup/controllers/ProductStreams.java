@@ -0,0 +1,186 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.models.Product;
+import org.yearup.utilities.Csv;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+// Writes products to the response while they are still being read from the database, so the client
+// gets the first bytes right away and the server never holds the whole result.
+final class ProductStreams
+{
+    private ProductStreams()
+    {
+    }
+
+    // a source pushes every product it reads into the consumer it is given
+    interface ProductSource
+    {
+        void forEach(Consumer<Product> consumer);
+    }
+
+    // a catalog export pushes every product together with its category name
+    interface ExportSource
+    {
+        void forEach(BiConsumer<Product, String> consumer);
+    }
+
+    // true when the Accept-Encoding header lists gzip (or *) with a q-value above zero; "gzip;q=0" refuses it
+    static boolean acceptsGzip(String acceptEncoding)
+    {
+        if (acceptEncoding == null)
+        {
+            return false;
+        }
+
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(","))
+        {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++)
+            {
+                String parameter = parts[i].trim();
+                if (parameter.toLowerCase(Locale.ROOT).startsWith("q="))
+                {
+                    try
+                    {
+                        q = Double.parseDouble(parameter.substring(2).trim());
+                    }
+                    catch (NumberFormatException ex)
+                    {
+                        q = 0;  // an unreadable weight is no consent to compress
+                    }
+                }
+            }
+
+            if (name.equals("gzip") || name.equals("x-gzip"))
+            {
+                gzip = q;
+            }
+            else if (name.equals("*"))
+            {
+                any = q;
+            }
+        }
+
+        // an explicit gzip entry wins over the wildcard
+        Double weight = gzip != null ? gzip : any;
+        return weight != null && weight > 0;
+    }
+
+    // streams the products as one JSON array - the same body the non-streaming endpoints return
+    static StreamingResponseBody jsonArray(ObjectMapper objectMapper, ProductSource source)
+    {
+        // flushing after every row would turn each product into its own network write
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                                          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+            {
+                generator.writeStartArray();
+                source.forEach(product -> {
+                    try
+                    {
+                        writer.writeValue(generator, product);
+                    }
+                    catch (IOException ex)
+                    {
+                        throw new UncheckedIOException(ex);  // client went away - stop reading rows
+                    }
+                });
+                generator.writeEndArray();
+            }
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+        };
+    }
+
+    // one JSON object per line, written field by field so no intermediate objects are built per row
+    static StreamingResponseBody ndjsonExport(ObjectMapper objectMapper, ExportSource source, boolean gzip)
+    {
+        return out -> {
+            try (OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(target))
+            {
+                generator.setRootValueSeparator(null);
+                source.forEach((product, categoryName) -> {
+                    try
+                    {
+                        generator.writeStartObject();
+                        generator.writeNumberField("productId", product.getProductId());
+                        generator.writeStringField("name", product.getName());
+                        generator.writeNumberField("price", product.getPrice());
+                        generator.writeNumberField("categoryId", product.getCategoryId());
+                        generator.writeStringField("categoryName", categoryName);
+                        generator.writeStringField("description", product.getDescription());
+                        generator.writeStringField("color", product.getColor());
+                        generator.writeNumberField("stock", product.getStock());
+                        generator.writeBooleanField("featured", product.isFeatured());
+                        generator.writeStringField("imageUrl", product.getImageUrl());
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    }
+                    catch (IOException ex)
+                    {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+        };
+    }
+
+    // a header row followed by one row per product, in the column names the bulk import accepts
+    static StreamingResponseBody csvExport(ExportSource source, boolean gzip)
+    {
+        return out -> {
+            try (OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024))
+            {
+                writer.write("productId,name,price,categoryId,categoryName,description,color,stock,featured,imageUrl\n");
+                source.forEach((product, categoryName) -> {
+                    try
+                    {
+                        writer.write(product.getProductId() + ","
+                                + Csv.escape(product.getName()) + ","
+                                + product.getPrice().toPlainString() + ","
+                                + product.getCategoryId() + ","
+                                + Csv.escape(categoryName) + ","
+                                + Csv.escape(product.getDescription()) + ","
+                                + Csv.escape(product.getColor()) + ","
+                                + product.getStock() + ","
+                                + product.isFeatured() + ","
+                                + Csv.escape(product.getImageUrl()) + "\n");
+                    }
+                    catch (IOException ex)
+                    {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+        };
+    }
+}
@@ -1,46 +1,293 @@
 package org.yearup.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.yearup.models.Product;
 import org.yearup.data.ProductDao;
+import org.yearup.models.BulkImportResult;
+import org.yearup.models.ProductBatch;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductField;
+import org.yearup.data.memory.FeaturedProducts;
+import org.yearup.data.memory.ProductTextIndex;
+import org.yearup.services.CatalogVersion;
+import org.yearup.services.ProductImportService;
+import org.yearup.models.ProductSearchCriteria;
+import org.yearup.models.ProductSort;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 @RestController
 @RequestMapping("products")  // Maps this controller to the "/products" URL
-@CrossOrigin  // Enables cross-origin requests (useful for API consumption from different domains)
+@CrossOrigin(exposedHeaders = {PageResponses.LINK_HEADER, HttpHeaders.ETAG})  // Enables cross-origin requests and lets clients read the paging Link header and ETag
 public class ProductsController {
 
     private final ProductDao productDao;  // Data access object for interacting with products
+    private final ObjectMapper objectMapper;  // Serializes products row by row in streaming mode
+    private final ProductTextIndex textIndex;  // Inverted index behind keyword search (q=)
+    private final ProductImportService importService;  // Batched, chunked bulk inserts
+    private final CatalogVersion catalogVersion;  // ETag for conditional GETs, bumped by every catalog write
+    private final FeaturedProducts featuredProducts;  // Precomputed featured rail for the home page
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @Autowired
-    public ProductsController(ProductDao productDao) {
+    public ProductsController(ProductDao productDao, ObjectMapper objectMapper, ProductTextIndex textIndex,
+                              ProductImportService importService, CatalogVersion catalogVersion,
+                              FeaturedProducts featuredProducts) {
         this.productDao = productDao;  // Injecting the ProductDao dependency
+        this.objectMapper = objectMapper;
+        this.textIndex = textIndex;
+        this.importService = importService;
+        this.catalogVersion = catalogVersion;
+        this.featuredProducts = featuredProducts;
     }
 
     // Method to search products based on various filters (category, price, color)
+    // All catalog reads answer If-None-Match with 304 while the catalog version is unchanged
+    // Passing sort, limit or after switches to paged results; the next page is linked in the Link header
+    // Passing q runs a keyword search over name and description, best matches first (limit keeps the top n)
     @GetMapping("")
     @PreAuthorize("permitAll()")  // Anyone can access this endpoint
-    public List<Product> search(@RequestParam(name = "cat", required = false) Integer categoryId,
-                                @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
-                                @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
-                                @RequestParam(name = "color", required = false) String color) {
+    public ResponseEntity<List<Product>> search(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                                @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                                @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                                @RequestParam(name = "color", required = false) String color,
+                                                @RequestParam(name = "q", required = false) String query,
+                                                @RequestParam(name = "sort", required = false) String sort,
+                                                @RequestParam(name = "limit", required = false) Integer limit,
+                                                @RequestParam(name = "after", required = false) String after,
+                                                ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
         try {
-            return productDao.search(categoryId, minPrice, maxPrice, color);  // Fetch filtered products
+            if (query != null && !query.isBlank()) {
+                if (sort != null || after != null) {
+                    throw new IllegalArgumentException("Keyword results are ranked by relevance and cannot be sorted or paged with a cursor.");
+                }
+
+                var matches = textIndex.search(query, new ProductSearchCriteria(categoryId, minPrice, maxPrice, color));
+                if (limit != null && matches.size() > limit) {
+                    matches = matches.subList(0, Math.max(0, limit));
+                }
+                return ResponseEntity.ok(matches);
+            }
+
+            if (sort == null && limit == null && after == null) {
+                return ResponseEntity.ok(productDao.search(categoryId, minPrice, maxPrice, color));  // Fetch filtered products
+            }
+
+            ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, minPrice, maxPrice, color);
+            criteria.setSort(ProductSort.fromParameter(sort));
+            criteria.setLimit(limit);
+            criteria.setAfter(after);
+
+            var page = productDao.searchPage(criteria);  // Fetch one page of filtered products
+            return PageResponses.of(page.getProducts(), page.getNext());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());  // Bad sort or cursor
         } catch (Exception ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving products.");  // Handle errors
         }
     }
 
+    // Projection mode (?fields=name,price,imageUrl): same filters, paging and keyword search as search, but
+    // each product only carries the listed properties (plus productId) and only those columns are read
+    @GetMapping(value = "", params = {"fields", "!stream", "!ids"})
+    @PreAuthorize("permitAll()")  // Anyone can access this endpoint
+    public ResponseEntity<List<Map<String, Object>>> searchFields(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                                                  @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                                                  @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                                                  @RequestParam(name = "color", required = false) String color,
+                                                                  @RequestParam(name = "q", required = false) String query,
+                                                                  @RequestParam(name = "sort", required = false) String sort,
+                                                                  @RequestParam(name = "limit", required = false) Integer limit,
+                                                                  @RequestParam(name = "after", required = false) String after,
+                                                                  @RequestParam(name = "fields") String fields,
+                                                                  ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        try {
+            Set<ProductField> selected = ProductField.parse(fields);
+            ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, minPrice, maxPrice, color);
+
+            if (query != null && !query.isBlank()) {
+                if (sort != null || after != null) {
+                    throw new IllegalArgumentException("Keyword results are ranked by relevance and cannot be sorted or paged with a cursor.");
+                }
+
+                var matches = textIndex.search(query, criteria);
+                if (limit != null && matches.size() > limit) {
+                    matches = matches.subList(0, Math.max(0, limit));
+                }
+                return ResponseEntity.ok(ProductField.project(matches, selected));
+            }
+
+            criteria.setSort(ProductSort.fromParameter(sort));
+            if (limit == null && after == null) {
+                return ResponseEntity.ok(productDao.searchFields(criteria, selected));  // Fetch only the selected columns
+            }
+
+            criteria.setLimit(limit);
+            criteria.setAfter(after);
+            var page = productDao.searchPageFields(criteria, selected);  // Fetch one page of the selected columns
+            return PageResponses.of(page.getRows(), page.getNext());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());  // Unknown field, bad sort or cursor
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving products.");  // Handle errors
+        }
+    }
+
+    // Multi-get (?ids=1,2,3) for carts, wishlists and recently-viewed lists: one lookup instead of a
+    // request per product. Products come back in the requested order; unknown ids are listed in missingIds
+    @GetMapping(value = "", params = {"ids", "!stream"})
+    @PreAuthorize("permitAll()")  // Anyone can access this endpoint
+    public ProductBatch getByIds(@RequestParam(name = "ids") List<Integer> ids, ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        try {
+            List<Product> products = productDao.getByIds(ids);  // Fetch all products in one go
+
+            Set<Integer> found = new HashSet<>();
+            products.forEach(product -> found.add(product.getProductId()));
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : new LinkedHashSet<>(ids)) {
+                if (!found.contains(id)) {
+                    missing.add(id);
+                }
+            }
+            return new ProductBatch(products, missing);
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving products.");
+        }
+    }
+
+    // Streaming mode (?stream=true): same filters and JSON array as search, but each product is written
+    // as soon as it is read from the database, so very large listings run in constant memory
+    @GetMapping(value = "", params = "stream=true")
+    @PreAuthorize("permitAll()")  // Anyone can access this endpoint
+    public ResponseEntity<StreamingResponseBody> searchStream(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                                              @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                                              @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                                              @RequestParam(name = "color", required = false) String color,
+                                                              @RequestParam(name = "sort", required = false) String sort,
+                                                              ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, minPrice, maxPrice, color);
+        try {
+            criteria.setSort(ProductSort.fromParameter(sort));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        StreamingResponseBody body = ProductStreams.jsonArray(objectMapper, consumer -> productDao.stream(criteria, consumer));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Method to dump the whole catalog, joined with category names, for the downstream feed jobs
+    // (only accessible by ADMIN users). format=ndjson (default) or csv; rows are written as they are read,
+    // gzip-compressed when the client sends Accept-Encoding: gzip or asks for it with gzip=true
+    @GetMapping("export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")  // Only admins can export the catalog
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name = "format", defaultValue = "ndjson") String format,
+                                                        @RequestParam(name = "gzip", required = false) Boolean gzip,
+                                                        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean compress = gzip != null ? gzip : ProductStreams.acceptsGzip(acceptEncoding);
+        ProductStreams.ExportSource source = productDao::exportWithCategories;
+
+        StreamingResponseBody body;
+        MediaType contentType;
+        String extension;
+        switch (format.toLowerCase()) {
+            case "ndjson":
+                body = ProductStreams.ndjsonExport(objectMapper, source, compress);
+                contentType = NDJSON;
+                extension = "ndjson";
+                break;
+            case "csv":
+                body = ProductStreams.csvExport(source, compress);
+                contentType = TEXT_CSV;
+                extension = "csv";
+                break;
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format: " + format);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compress) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            extension += ".gz";
+        }
+        return response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + extension + "\"")
+                       .body(body);
+    }
+
+    // Method to count products per category, color and price range for the browse filters.
+    // Takes the same filters as search (including q) and answers them all in a single pass
+    @GetMapping("facets")
+    @PreAuthorize("permitAll()")  // Anyone can access this endpoint
+    public ProductFacets getFacets(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                   @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                   @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                   @RequestParam(name = "color", required = false) String color,
+                                   @RequestParam(name = "q", required = false) String query,
+                                   ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        try {
+            ProductSearchCriteria criteria = new ProductSearchCriteria(categoryId, minPrice, maxPrice, color);
+            if (query != null && !query.isBlank()) {
+                ProductFacets facets = new ProductFacets();
+                textIndex.search(query, criteria).forEach(facets::add);  // Count the keyword matches
+                return facets;
+            }
+            return productDao.getFacets(criteria);  // Count the filtered products
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving product facets.");
+        }
+    }
+
+    // Method to get the featured products for the home page, served from a precomputed list
+    @GetMapping("featured")
+    @PreAuthorize("permitAll()")  // Anyone can access this endpoint
+    public ResponseEntity<List<Product>> getFeatured(ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
+        return ResponseEntity.ok(featuredProducts.list());  // No database access on this path
+    }
+
     // Method to get a product by its ID
     @GetMapping("{id}")
     @PreAuthorize("permitAll()")  // Anyone can access this endpoint
-    public Product getById(@PathVariable int id) {
+    public Product getById(@PathVariable int id, ServletWebRequest request) {
+        if (CatalogCaching.notModified(request, catalogVersion)) {
+            return null;  // 304 Not Modified - the client's copy is still current
+        }
         try {
             var product = productDao.getById(id);  // Fetch product by ID
             if (product == null) {
@@ -63,7 +310,25 @@ public class ProductsController {
         }
     }
 
-    // Method to update an existing product (only accessible by ADMIN users)
+    // Method to import many products at once (only accessible by ADMIN users)
+    // The body is NDJSON (application/x-ndjson) or CSV with a header row (text/csv) and is read as a stream;
+    // the response lists the generated ids and the line number and reason for every rejected row
+    @PostMapping(value = "bulk", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ROLE_ADMIN')")  // Only admins can import products
+    public BulkImportResult bulkImport(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            if (MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)) {
+                return importService.importCsv(reader);
+            }
+            return importService.importNdjson(reader);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());  // Unreadable CSV header
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error importing products.");
+        }
+    }
+
+    // Method to update an existing product (only accessible by ADMIN users); stock is changed with POST {id}/stock
     @PutMapping("{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")  // Only admins can update a product
     public void updateProduct(@PathVariable int id, @RequestBody Product product) {
@@ -74,6 +339,27 @@ public class ProductsController {
         }
     }
 
+    // Method to restock or write off units of a product (only accessible by ADMIN users)
+    // POST /products/12/stock?delta=25 adds 25 units; a negative delta removes units, but never below zero
+    @PostMapping("{id}/stock")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")  // Only admins can change stock
+    public Product adjustStock(@PathVariable int id, @RequestParam int delta) {
+        Product product;
+        try {
+            if (productDao.adjustStock(id, delta)) {
+                return productDao.getById(id);
+            }
+            product = productDao.getById(id);
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating stock.");
+        }
+
+        if (product == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.");
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Only " + product.getStock() + " units are in stock.");
+    }
+
     // Method to delete a product (only accessible by ADMIN users)
     @DeleteMapping("{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")  // Only admins can delete a product
@@ -0,0 +1,99 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.SalesReportDao;
+import org.yearup.models.CategoryRevenue;
+import org.yearup.models.ProductSales;
+import org.yearup.services.SalesRollups;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+// Sales reports, read from the rollups the order pipeline keeps current - never from the raw order history
+@RestController
+@RequestMapping("reports")
+@CrossOrigin
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class ReportsController
+{
+    private static final int DEFAULT_TOP = 10;
+    private static final int MAX_TOP = 100;
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+
+    private final SalesReportDao salesReportDao;
+    private final SalesRollups salesRollups;
+
+    @Autowired
+    public ReportsController(SalesReportDao salesReportDao, SalesRollups salesRollups)
+    {
+        this.salesReportDao = salesReportDao;
+        this.salesRollups = salesRollups;
+    }
+
+    // GET https://localhost:8080/reports/top-products?limit=10 - best sellers by units sold
+    @GetMapping("top-products")
+    public List<ProductSales> getTopProducts(@RequestParam(name = "limit", required = false) Integer limit)
+    {
+        int top = limit == null ? DEFAULT_TOP : Math.max(1, Math.min(limit, MAX_TOP));
+        try
+        {
+            return salesReportDao.getTopProducts(top);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // GET https://localhost:8080/reports/revenue?from=2024-01-01&to=2024-01-31&categoryId=2 - revenue per
+    // category and day; the last 30 days when no range is given, at most a year at a time
+    @GetMapping("revenue")
+    public List<CategoryRevenue> getRevenue(@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(name = "categoryId", required = false) Integer categoryId)
+    {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (start.isAfter(end))
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to.");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The range can span at most " + MAX_DAYS + " days.");
+        }
+
+        try
+        {
+            return salesReportDao.getRevenue(start, end, categoryId);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // POST https://localhost:8080/reports/rebuild - recomputes the rollups from the order history into
+    // shadow tables while checkouts carry on; only the pipeline adding orders to the rollups waits, and
+    // only for the swap at the end
+    @PostMapping("rebuild")
+    public Map<String, Integer> rebuild()
+    {
+        try
+        {
+            return Map.of("ordersCounted", salesRollups.rebuild());
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+}
@@ -1,39 +1,72 @@
 package org.yearup.controllers;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
+import org.yearup.models.CartDelta;
 import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
 import org.yearup.models.User;
+import org.yearup.services.PricingEngine;
 
 import java.security.Principal;
+import java.util.*;
 
-// convert this class to a REST controller
-// only logged in users should have access to these actions
+@RestController
+@RequestMapping("cart")
+@CrossOrigin
+@PreAuthorize("isAuthenticated()")  // only logged in users have a cart
 public class ShoppingCartController
 {
     // a shopping cart requires
-    private ShoppingCartDao shoppingCartDao;
-    private UserDao userDao;
-    private ProductDao productDao;
-
+    private final ShoppingCartDao shoppingCartDao;
+    private final UserDao userDao;
+    private final ProductDao productDao;
+    private final PricingEngine pricingEngine;
 
+    @Autowired
+    public ShoppingCartController(ShoppingCartDao shoppingCartDao, UserDao userDao, ProductDao productDao,
+                                  PricingEngine pricingEngine)
+    {
+        this.shoppingCartDao = shoppingCartDao;
+        this.userDao = userDao;
+        this.productDao = productDao;
+        this.pricingEngine = pricingEngine;
+    }
 
-    // each method in this controller requires a Principal object as a parameter
+    // GET https://localhost:8080/cart - the current user's cart, products included
+    @GetMapping
     public ShoppingCart getCart(Principal principal)
     {
         try
         {
-            // get the currently logged in username
-            String userName = principal.getName();
-            // find database user by userId
-            User user = userDao.getByUserName(userName);
-            int userId = user.getId();
+            return getPricedCart(getUserId(principal));
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
 
-            // use the shoppingcartDao to get all items in the cart and return the cart
-            return null;
+    // POST https://localhost:8080/cart/products/15 - adds one of product 15 to the cart
+    @PostMapping("products/{productId}")
+    public ShoppingCart addProduct(@PathVariable int productId, Principal principal)
+    {
+        if (productDao.getById(productId) == null)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.");
+        }
+
+        try
+        {
+            int userId = getUserId(principal);
+            shoppingCartDao.addProduct(userId, productId);
+            return getPricedCart(userId);
         }
         catch(Exception e)
         {
@@ -41,16 +74,89 @@ public class ShoppingCartController
         }
     }
 
-    // add a POST method to add a product to the cart - the url should be
-    // https://localhost:8080/cart/products/15 (15 is the productId to be added
+    // PUT https://localhost:8080/cart/products/15 - the BODY is a ShoppingCartItem and quantity is the
+    // only value that is used; a quantity of 0 takes the product out of the cart
+    @PutMapping("products/{productId}")
+    public ShoppingCart updateProduct(@PathVariable int productId, @RequestBody ShoppingCartItem item, Principal principal)
+    {
+        boolean updated;
+        int userId;
+        try
+        {
+            userId = getUserId(principal);
+            updated = shoppingCartDao.updateQuantity(userId, productId, item.getQuantity());
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        if (!updated)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product is not in the cart.");
+        }
+        return getPricedCart(userId);
+    }
+
+    // PATCH https://localhost:8080/cart - the BODY is a list of {productId, quantity} deltas (a reorder, a bundle)
+    // applied together in one transaction; a negative quantity takes items away
+    @PatchMapping
+    public ShoppingCart updateCart(@RequestBody List<CartDelta> deltas, Principal principal)
+    {
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (CartDelta delta : deltas)
+        {
+            quantities.merge(delta.getProductId(), delta.getQuantity(), Integer::sum);
+        }
 
+        Set<Integer> missing = new TreeSet<>(quantities.keySet());
+        productDao.getByIds(quantities.keySet()).forEach(product -> missing.remove(product.getProductId()));
+        if (!missing.isEmpty())
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Products not found: " + missing);
+        }
 
-    // add a PUT method to update an existing product in the cart - the url should be
-    // https://localhost:8080/cart/products/15 (15 is the productId to be updated)
-    // the BODY should be a ShoppingCartItem - quantity is the only value that will be updated
+        try
+        {
+            int userId = getUserId(principal);
+            if (!quantities.isEmpty())
+            {
+                shoppingCartDao.addQuantities(userId, quantities);
+            }
+            return getPricedCart(userId);
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
 
+    // DELETE https://localhost:8080/cart - clears all products from the current user's cart
+    @DeleteMapping
+    public ShoppingCart clearCart(Principal principal)
+    {
+        try
+        {
+            int userId = getUserId(principal);
+            shoppingCartDao.clear(userId);
+            return new ShoppingCart();
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
 
-    // add a DELETE method to clear all products from the current users cart
-    // https://localhost:8080/cart
+    // the user's cart with the current pricing rules applied to every line
+    private ShoppingCart getPricedCart(int userId)
+    {
+        return pricingEngine.apply(shoppingCartDao.getByUserId(userId));
+    }
 
+    // find the database user for the logged in username
+    private int getUserId(Principal principal)
+    {
+        User user = userDao.getByUserName(principal.getName());
+        return user.getId();
+    }
 }
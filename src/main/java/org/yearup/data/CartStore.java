@@ -0,0 +1,13 @@
+package org.yearup.data;
+
+import org.yearup.models.ShoppingCart;
+
+import java.util.Map;
+
+// carts as stored in MySQL, for the ShoppingCartDao that holds them in memory and writes them back
+public interface CartStore
+{
+    ShoppingCart getByUserId(int userId);
+    // writes the given lines (userId -> productId -> quantity, zero deleting the line) in one transaction, all or nothing
+    void saveQuantities(Map<Integer, Map<Integer, Integer>> quantities);
+}
@@ -0,0 +1,21 @@
+package org.yearup.data;
+
+/*
+    Published when a scheduled reload from MySQL finds that catalog rows were changed outside the
+    application (e.g. by a SQL script), so no ProductChangedEvent or CategoryChangedEvent announced them.
+ */
+public class CatalogReloadedEvent
+{
+    private final String source;
+
+    public CatalogReloadedEvent(String source)
+    {
+        this.source = source;
+    }
+
+    // the read model that noticed the change
+    public String getSource()
+    {
+        return source;
+    }
+}
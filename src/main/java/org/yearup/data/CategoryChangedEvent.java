@@ -0,0 +1,59 @@
+package org.yearup.data;
+
+import org.yearup.models.Category;
+
+/*
+    Published by the category DAO after a write has reached the database, the category counterpart
+    of ProductChangedEvent.
+ */
+public class CategoryChangedEvent
+{
+    public enum Type
+    {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final int categoryId;
+    private final Category category;
+
+    private CategoryChangedEvent(Type type, int categoryId, Category category)
+    {
+        this.type = type;
+        this.categoryId = categoryId;
+        this.category = category;
+    }
+
+    public static CategoryChangedEvent created(Category category)
+    {
+        return new CategoryChangedEvent(Type.CREATED, category.getCategoryId(), category);
+    }
+
+    public static CategoryChangedEvent updated(Category category)
+    {
+        return new CategoryChangedEvent(Type.UPDATED, category.getCategoryId(), category);
+    }
+
+    public static CategoryChangedEvent deleted(int categoryId)
+    {
+        return new CategoryChangedEvent(Type.DELETED, categoryId, null);
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public int getCategoryId()
+    {
+        return categoryId;
+    }
+
+    // the row as it now exists in the database (null for deletes)
+    public Category getCategory()
+    {
+        return category;
+    }
+}
@@ -0,0 +1,13 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+import java.util.List;
+
+// read from MySQL itself, like ProductSource
+@FunctionalInterface
+public interface FeaturedProductSource
+{
+    // the products flagged as featured, in id order
+    List<Product> listFeatured();
+}
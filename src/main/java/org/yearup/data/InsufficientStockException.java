@@ -0,0 +1,19 @@
+package org.yearup.data;
+
+// thrown by checkout when a product in the cart does not have enough units left, whether it was
+// reserved ahead (StockReservations) or taken inside the order transaction (OrderDao)
+public class InsufficientStockException extends RuntimeException
+{
+    private final int productId;
+
+    public InsufficientStockException(int productId)
+    {
+        super("Not enough stock for product " + productId + ".");
+        this.productId = productId;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+}
@@ -0,0 +1,44 @@
+package org.yearup.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+    Opaque "after" cursor for keyset (seek) pagination. A cursor holds the sort key of the last row on
+    a page, and the next page is read with WHERE (key) > (cursor) instead of OFFSET, so every page costs
+    the same no matter how deep the client has scrolled.
+
+    Clients must treat the value as opaque - the format may change.
+ */
+public final class KeysetCursor
+{
+    private static final String SEPARATOR = "\u001F";  // unit separator, never part of a key value
+
+    private KeysetCursor()
+    {
+    }
+
+    public static String encode(String... values)
+    {
+        String joined = String.join(SEPARATOR, values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int expectedValues)
+    {
+        try
+        {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] values = joined.split(SEPARATOR, -1);
+            if (values.length != expectedValues)
+            {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            return values;
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("Invalid cursor.", ex);
+        }
+    }
+}
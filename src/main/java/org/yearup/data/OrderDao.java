@@ -0,0 +1,52 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+import org.yearup.models.OrderPage;
+import org.yearup.models.ShoppingCart;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+public interface OrderDao
+{
+    // turns the user's cart, as stored in the database, into an order shipped to the profile address and
+    // empties the cart - all or nothing. pricing sets the discounts on the cart lines before they are written.
+    // The stock of every line is taken in the same transaction, except for the products in reserved, whose
+    // units the caller holds already (StockReservations).
+    // Throws InsufficientStockException when a line is short, and IllegalStateException when the cart is
+    // empty or the user has no profile.
+    Order createFromCart(int userId, Set<Integer> reserved, UnaryOperator<ShoppingCart> pricing);
+
+    // group commit: places the orders of several users in one transaction. A checkout that fails on its own
+    // (an empty cart, no profile, a pricing error, a short line) is failed and left out; the rest are completed once the
+    // transaction commits. When the shared writes fail, this throws and the remaining checkouts are left
+    // pending. The same user must not appear twice.
+    default void createFromCarts(List<PendingCheckout> checkouts)
+    {
+        for (PendingCheckout checkout : checkouts)
+        {
+            try
+            {
+                checkout.complete(createFromCart(checkout.getUserId(), checkout.getReserved(), checkout.getPricing()));
+            }
+            catch (RuntimeException ex)
+            {
+                checkout.fail(ex);
+            }
+        }
+    }
+
+    // the user's orders, newest first, with their line items. limit is clamped by OrderPage.clampLimit
+    // and after is the next cursor of the previous page (null for the first page).
+    // Throws IllegalArgumentException for a cursor this method did not issue.
+    OrderPage getByUserId(int userId, Integer limit, String after);
+
+    // null when the user has no order with this id
+    Order getById(int userId, int orderId);
+
+    // follow-up records written by the order pipeline; writing one twice leaves the first in place
+    void recordConfirmation(Order order, LocalDateTime confirmedAt);
+    void recordAnalytics(Order order);
+}
@@ -0,0 +1,61 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCart;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+// One user's checkout waiting to be written as part of a group commit; the result is the order or the
+// exception this checkout alone failed with
+public class PendingCheckout
+{
+    private final int userId;
+    private final Set<Integer> reserved;
+    private final UnaryOperator<ShoppingCart> pricing;
+    private final CompletableFuture<Order> result = new CompletableFuture<>();
+
+    public PendingCheckout(int userId, Set<Integer> reserved, UnaryOperator<ShoppingCart> pricing)
+    {
+        this.userId = userId;
+        this.reserved = reserved;
+        this.pricing = pricing;
+    }
+
+    public int getUserId()
+    {
+        return userId;
+    }
+
+    // the products whose stock the caller reserved already; see OrderDao.createFromCart
+    public Set<Integer> getReserved()
+    {
+        return reserved;
+    }
+
+    public UnaryOperator<ShoppingCart> getPricing()
+    {
+        return pricing;
+    }
+
+    public CompletableFuture<Order> getResult()
+    {
+        return result;
+    }
+
+    public void complete(Order order)
+    {
+        result.complete(order);
+    }
+
+    public void fail(RuntimeException ex)
+    {
+        result.completeExceptionally(ex);
+    }
+
+    public boolean isDone()
+    {
+        return result.isDone();
+    }
+}
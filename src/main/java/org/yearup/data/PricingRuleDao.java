@@ -0,0 +1,16 @@
+package org.yearup.data;
+
+import org.yearup.models.PricingRule;
+
+import java.util.List;
+
+public interface PricingRuleDao
+{
+    List<PricingRule> getAll();
+    List<PricingRule> getActive();
+    PricingRule getById(int ruleId);
+    PricingRule create(PricingRule rule);
+    // false when there is no such rule
+    boolean update(int ruleId, PricingRule rule);
+    boolean delete(int ruleId);
+}
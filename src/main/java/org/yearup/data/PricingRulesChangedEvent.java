@@ -0,0 +1,20 @@
+package org.yearup.data;
+
+/*
+    Published by the pricing rule DAO after a rule was created, changed or deleted. Rules are
+    compiled as a whole, so listeners reload every active rule rather than patching one.
+ */
+public class PricingRulesChangedEvent
+{
+    private final int ruleId;
+
+    public PricingRulesChangedEvent(int ruleId)
+    {
+        this.ruleId = ruleId;
+    }
+
+    public int getRuleId()
+    {
+        return ruleId;
+    }
+}
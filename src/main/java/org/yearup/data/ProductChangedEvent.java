@@ -0,0 +1,79 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Published by the product DAO after a write has reached the database. In-memory read models
+    (catalog indexes, caches, aggregates) listen for it to stay in sync without polling MySQL.
+ */
+public class ProductChangedEvent
+{
+    public enum Type
+    {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final List<Product> products;
+    private final List<Integer> productIds;
+
+    private ProductChangedEvent(Type type, List<Product> products, List<Integer> productIds)
+    {
+        this.type = type;
+        this.products = Collections.unmodifiableList(products);
+        this.productIds = Collections.unmodifiableList(productIds);
+    }
+
+    public static ProductChangedEvent created(List<Product> products)
+    {
+        return new ProductChangedEvent(Type.CREATED, products, idsOf(products));
+    }
+
+    public static ProductChangedEvent updated(Product product)
+    {
+        return new ProductChangedEvent(Type.UPDATED, List.of(product), List.of(product.getProductId()));
+    }
+
+    // several products at once, e.g. the stock changes of many checkouts
+    public static ProductChangedEvent updated(List<Product> products)
+    {
+        return new ProductChangedEvent(Type.UPDATED, products, idsOf(products));
+    }
+
+    public static ProductChangedEvent deleted(int productId)
+    {
+        return new ProductChangedEvent(Type.DELETED, List.of(), List.of(productId));
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    // the rows as they now exist in the database (empty for deletes)
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    public List<Integer> getProductIds()
+    {
+        return productIds;
+    }
+
+    private static List<Integer> idsOf(List<Product> products)
+    {
+        List<Integer> ids = new ArrayList<>(products.size());
+        for (Product product : products)
+        {
+            ids.add(product.getProductId());
+        }
+        return ids;
+    }
+}
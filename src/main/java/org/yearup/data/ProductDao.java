@@ -1,16 +1,34 @@
 package org.yearup.data;
 
 import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductRowPage;
+import org.yearup.models.ProductSearchCriteria;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-public interface ProductDao
+public interface ProductDao extends ProductLookup, ProductInserter
 {
     List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color);
+    ProductPage searchPage(ProductSearchCriteria criteria);
+    List<Map<String, Object>> searchFields(ProductSearchCriteria criteria, Set<ProductField> fields);
+    ProductRowPage searchPageFields(ProductSearchCriteria criteria, Set<ProductField> fields);
+    void stream(ProductSearchCriteria criteria, Consumer<Product> consumer);
+    void exportWithCategories(BiConsumer<Product, String> consumer);
+    ProductFacets getFacets(ProductSearchCriteria criteria);
     List<Product> listByCategoryId(int categoryId);
+    List<Product> listFeatured();
     Product getById(int productId);
     Product create(Product product);
-    void update(int productId, Product product);
+    List<Product> createAll(List<Product> products);
+    void update(int productId, Product product);  // every column but stock
+    boolean adjustStock(int productId, int delta);
     void delete(int productId);
 }
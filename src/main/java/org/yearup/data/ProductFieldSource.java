@@ -0,0 +1,16 @@
+package org.yearup.data;
+
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductSearchCriteria;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// read from MySQL itself, like ProductSource
+@FunctionalInterface
+public interface ProductFieldSource
+{
+    // the matching products, each as property -> value of the selected fields only
+    List<Map<String, Object>> searchFields(ProductSearchCriteria criteria, Set<ProductField> fields);
+}
@@ -0,0 +1,13 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+import java.util.List;
+
+// the part of ProductDao that stores products in bulk, for classes that need nothing else
+@FunctionalInterface
+public interface ProductInserter
+{
+    // createAll without the ProductChangedEvent, for callers that publish one event for many inserts
+    List<Product> insertAll(List<Product> products);
+}
@@ -0,0 +1,14 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+// the part of ProductDao that looks products up by id, for classes that need nothing else
+@FunctionalInterface
+public interface ProductLookup
+{
+    // each product once, in the order its id was first given; ids that do not exist are left out
+    List<Product> getByIds(Collection<Integer> productIds);
+}
@@ -0,0 +1,14 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+import java.util.List;
+
+// The rows a read model is built from, read from MySQL itself. Only MySqlProductDao implements the *Source
+// interfaces, so they never resolve to the primary ProductDao, which is one of those read models.
+@FunctionalInterface
+public interface ProductSource
+{
+    // every product, however many there are
+    List<Product> loadAll();
+}
@@ -0,0 +1,23 @@
+package org.yearup.data;
+
+import org.yearup.models.CategoryRevenue;
+import org.yearup.models.ProductSales;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesReportDao
+{
+    // best sellers by units sold, highest first
+    List<ProductSales> getTopProducts(int limit);
+    // one row per day and category that sold anything, oldest day first; categoryId null for every category
+    List<CategoryRevenue> getRevenue(LocalDate from, LocalDate to, Integer categoryId);
+
+    // counts a committed order in the rollups; false when it was counted already
+    boolean addOrder(int orderId);
+    // recomputes the rollups from the order history into copies of the tables; returns the number of orders counted
+    int prepareRebuild();
+    // counts in the copies the orders addOrder added meanwhile and swaps the copies in; returns the number of
+    // orders that took. addOrder must not run until it returns
+    int finishRebuild();
+}
@@ -2,8 +2,26 @@ package org.yearup.data;
 
 import org.yearup.models.ShoppingCart;
 
+import java.util.Map;
+
 public interface ShoppingCartDao
 {
     ShoppingCart getByUserId(int userId);
-    // add additional method signatures here
+    void addProduct(int userId, int productId);
+    boolean updateQuantity(int userId, int productId, int quantity);
+    // productId -> quantity to add (negative to take away); lines that drop to zero or less are removed
+    void addQuantities(int userId, Map<Integer, Integer> deltas);
+    void clear(int userId);
+
+    // makes sure the user's cart is stored in the database, e.g. before checkout reads it there;
+    // only implementations that hold changes back have anything to do
+    default void flush(int userId)
+    {
+    }
+
+    // forgets any copy of the cart held in memory after its database rows were changed directly,
+    // e.g. by checkout; the next request reads the cart from the database again
+    default void evict(int userId)
+    {
+    }
 }
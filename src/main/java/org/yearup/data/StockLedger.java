@@ -0,0 +1,12 @@
+package org.yearup.data;
+
+import java.util.Map;
+
+// stock as stored in MySQL, for StockReservations
+public interface StockLedger
+{
+    // takes quantity units off the product's stock, all or nothing; false when too few are left
+    boolean takeStock(int productId, int quantity);
+    // puts units back on the stock of many products (productId -> quantity)
+    void returnStock(Map<Integer, Integer> quantities);
+}
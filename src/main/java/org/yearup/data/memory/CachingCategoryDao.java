@@ -0,0 +1,211 @@
+package org.yearup.data.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryChangedEvent;
+import org.yearup.data.CategoryDao;
+import org.yearup.models.Category;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/*
+    CategoryDao that keeps the whole (small, read-mostly) categories table in memory. Reads are a
+    volatile read plus a hash lookup; writes go through to MySqlCategoryDao, and the CategoryChangedEvent
+    it publishes once a write is stored swaps in a new immutable copy of the map, one writer at a time,
+    so readers never see a half-applied write.
+
+    The cached Category objects are shared between callers and must not be modified.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "catalog.in-memory", havingValue = "true", matchIfMissing = true)
+public class CachingCategoryDao implements CategoryDao
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CachingCategoryDao.class);
+
+    private final CategoryDao categoryDao;  // MySQL's
+    private volatile Snapshot snapshot;  // null until the first successful load
+
+    @Autowired
+    public CachingCategoryDao(@Qualifier("mySqlCategoryDao") CategoryDao categoryDao)  // not this primary bean itself
+    {
+        this.categoryDao = categoryDao;
+    }
+
+    @PostConstruct
+    public void load()
+    {
+        try
+        {
+            loaded();
+        }
+        catch (RuntimeException ex)
+        {
+            // start anyway; the next read or write retries the load
+            LOG.warn("could not load the categories", ex);
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)  // ahead of CatalogVersion, which moves the ETag
+    public synchronized void onCategoryChanged(CategoryChangedEvent event)
+    {
+        if (snapshot == null)
+        {
+            load();
+            return;
+        }
+        Category stored = event.getCategory();
+        put(event.getCategoryId(), stored == null ? null : copyOf(stored));
+    }
+
+    @Override
+    public List<Category> getAllCategories()
+    {
+        return loaded().all;
+    }
+
+    @Override
+    public Category getById(int categoryId)
+    {
+        Snapshot current = loaded();
+        Category category = current.byId.get(categoryId);
+        if (category != null)
+        {
+            return category;
+        }
+
+        // a miss may be a row added outside the application: read it without holding up writers or other
+        // misses, and remember it unless the cache changed meanwhile, since the read may predate that change
+        Category stored = categoryDao.getById(categoryId);
+        if (stored != null)
+        {
+            remember(current, stored);
+        }
+        return stored;
+    }
+
+    @Override
+    public synchronized Category create(Category category)
+    {
+        return categoryDao.create(category);
+    }
+
+    @Override
+    public synchronized void update(int categoryId, Category category)
+    {
+        try
+        {
+            categoryDao.update(categoryId, category);
+        }
+        catch (RuntimeException ex)
+        {
+            forget(categoryId);
+            throw ex;
+        }
+    }
+
+    @Override
+    public synchronized void delete(int categoryId)
+    {
+        try
+        {
+            categoryDao.delete(categoryId);
+        }
+        catch (RuntimeException ex)
+        {
+            forget(categoryId);
+            throw ex;
+        }
+    }
+
+    // the current snapshot, reading the whole table first if no load has succeeded yet; a failed read throws,
+    // so an empty table is cached like any other while a failure is retried by the next caller
+    private Snapshot loaded()
+    {
+        Snapshot current = snapshot;
+        if (current != null)
+        {
+            return current;
+        }
+        synchronized (this)
+        {
+            if (snapshot == null)
+            {
+                Map<Integer, Category> categories = new HashMap<>();
+                for (Category category : categoryDao.getAllCategories())
+                {
+                    categories.put(category.getCategoryId(), category);
+                }
+                snapshot = new Snapshot(categories);
+                LOG.info("loaded {} categories into the cache", categories.size());
+            }
+            return snapshot;
+        }
+    }
+
+    private synchronized void remember(Snapshot readFrom, Category stored)
+    {
+        if (snapshot == readFrom)
+        {
+            put(stored.getCategoryId(), stored);
+        }
+    }
+
+    // a write that threw may still have reached MySQL - typically it is the read-back after it that failed - so
+    // the cached copy can no longer be trusted; without it the next getById reads the row again
+    private void forget(int categoryId)
+    {
+        if (snapshot != null)
+        {
+            put(categoryId, null);
+        }
+    }
+
+    private void put(int categoryId, Category category)
+    {
+        Map<Integer, Category> categories = new HashMap<>(snapshot.byId);
+        if (category == null)
+        {
+            if (categories.remove(categoryId) == null)
+            {
+                return;
+            }
+        }
+        else
+        {
+            categories.put(categoryId, category);
+        }
+        snapshot = new Snapshot(categories);
+    }
+
+    // the caller keeps its own instance, so later changes to it cannot leak into the cache
+    private static Category copyOf(Category category)
+    {
+        return new Category(category.getCategoryId(), category.getName(), category.getDescription());
+    }
+
+    private static final class Snapshot
+    {
+        private final Map<Integer, Category> byId;
+        private final List<Category> all;  // in category id order
+
+        private Snapshot(Map<Integer, Category> categories)
+        {
+            this.byId = Collections.unmodifiableMap(categories);
+
+            List<Category> all = new ArrayList<>(categories.values());
+            all.sort(Comparator.comparingInt(Category::getCategoryId));
+            this.all = Collections.unmodifiableList(all);
+        }
+    }
+}
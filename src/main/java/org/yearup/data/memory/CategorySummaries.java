@@ -0,0 +1,219 @@
+package org.yearup.data.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductFieldSource;
+import org.yearup.models.Category;
+import org.yearup.models.CategorySummary;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductSearchCriteria;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.*;
+
+/*
+    Per-category product count, in-stock count and price range, computed once at startup from a
+    narrow projection of the products table and then kept current from ProductChangedEvents.
+
+    Each category keeps a multiset of its prices (price -> number of products at that price) so
+    min and max survive deletes and price changes without a rescan. The id -> (category, price,
+    stock) of every product is remembered as well, since an update event only carries the new row.
+    Readers get an immutable map of totals, so a summary request costs O(categories).
+ */
+@Component
+public class CategorySummaries
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CategorySummaries.class);
+
+    private final ProductFieldSource source;
+
+    // guarded by this
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Integer, Aggregate> aggregates = new HashMap<>();
+
+    private volatile Map<Integer, Totals> totals = Map.of();
+    private volatile boolean loaded;  // false until a load succeeds; until then each write or request retries it
+
+    @Autowired
+    public CategorySummaries(ProductFieldSource source)
+    {
+        this.source = source;
+    }
+
+    @PostConstruct
+    public synchronized void load()
+    {
+        Set<ProductField> fields = EnumSet.of(ProductField.PRODUCT_ID, ProductField.CATEGORY_ID,
+                                              ProductField.PRICE, ProductField.STOCK);
+        try
+        {
+            entries.clear();
+            aggregates.clear();
+            for (Map<String, Object> row : source.searchFields(new ProductSearchCriteria(), fields))
+            {
+                add(new Entry((Integer) row.get(ProductField.PRODUCT_ID.getProperty()),
+                              (Integer) row.get(ProductField.CATEGORY_ID.getProperty()),
+                              (BigDecimal) row.get(ProductField.PRICE.getProperty()),
+                              (Integer) row.get(ProductField.STOCK.getProperty()) > 0));
+            }
+
+            Map<Integer, Totals> computed = new HashMap<>();
+            aggregates.forEach((categoryId, aggregate) -> computed.put(categoryId, aggregate.totals()));
+            totals = Collections.unmodifiableMap(computed);
+            loaded = true;
+        }
+        catch (RuntimeException ex)
+        {
+            // applying writes to a partial scan would only ever count the products written since
+            LOG.warn("could not load the category summaries; the next product write or summary request retries", ex);
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)  // ahead of CatalogVersion, which moves the ETag
+    public synchronized void onProductChanged(ProductChangedEvent event)
+    {
+        if (!loaded)
+        {
+            load();  // the scan includes this write
+            return;
+        }
+
+        Set<Integer> touched = new HashSet<>();
+        for (int productId : event.getProductIds())
+        {
+            Entry previous = entries.remove(productId);
+            if (previous != null)
+            {
+                remove(previous);
+                touched.add(previous.categoryId);
+            }
+        }
+        for (Product product : event.getProducts())
+        {
+            Entry entry = new Entry(product.getProductId(), product.getCategoryId(), product.getPrice(), product.getStock() > 0);
+            add(entry);
+            touched.add(entry.categoryId);
+        }
+
+        // copy the small map of totals and replace only the categories this write touched
+        Map<Integer, Totals> updated = new HashMap<>(totals);
+        for (int categoryId : touched)
+        {
+            Aggregate aggregate = aggregates.get(categoryId);
+            if (aggregate == null)
+            {
+                updated.remove(categoryId);
+            }
+            else
+            {
+                updated.put(categoryId, aggregate.totals());
+            }
+        }
+        totals = Collections.unmodifiableMap(updated);
+    }
+
+    // a new summary object per call, so callers are free to change it
+    public CategorySummary summarize(Category category)
+    {
+        if (!loaded)
+        {
+            retryLoad();
+        }
+        Totals current = totals.get(category.getCategoryId());
+        if (current == null)
+        {
+            return new CategorySummary(category.getCategoryId(), category.getName(), 0, 0, null, null);
+        }
+        return new CategorySummary(category.getCategoryId(), category.getName(), current.productCount,
+                                   current.inStockCount, current.minPrice, current.maxPrice);
+    }
+
+    private synchronized void retryLoad()
+    {
+        if (!loaded)
+        {
+            load();
+        }
+    }
+
+    private void add(Entry entry)
+    {
+        entries.put(entry.productId, entry);
+        Aggregate aggregate = aggregates.computeIfAbsent(entry.categoryId, id -> new Aggregate());
+        aggregate.prices.merge(entry.price, 1, Integer::sum);
+        aggregate.productCount++;
+        if (entry.inStock)
+        {
+            aggregate.inStockCount++;
+        }
+    }
+
+    private void remove(Entry entry)
+    {
+        Aggregate aggregate = aggregates.get(entry.categoryId);
+        aggregate.prices.computeIfPresent(entry.price, (price, count) -> count == 1 ? null : count - 1);
+        aggregate.productCount--;
+        if (entry.inStock)
+        {
+            aggregate.inStockCount--;
+        }
+        if (aggregate.productCount == 0)
+        {
+            aggregates.remove(entry.categoryId);
+        }
+    }
+
+    private static final class Entry
+    {
+        private final int productId;
+        private final int categoryId;
+        private final BigDecimal price;
+        private final boolean inStock;
+
+        private Entry(int productId, int categoryId, BigDecimal price, boolean inStock)
+        {
+            this.productId = productId;
+            this.categoryId = categoryId;
+            this.price = price;
+            this.inStock = inStock;
+        }
+    }
+
+    private static final class Aggregate
+    {
+        // compareTo-based, so 10.0 and 10.00 count as the same price
+        private final TreeMap<BigDecimal, Integer> prices = new TreeMap<>();
+        private int productCount;
+        private int inStockCount;
+
+        private Totals totals()
+        {
+            return new Totals(productCount, inStockCount, prices.firstKey(), prices.lastKey());
+        }
+    }
+
+    private static final class Totals
+    {
+        private final int productCount;
+        private final int inStockCount;
+        private final BigDecimal minPrice;
+        private final BigDecimal maxPrice;
+
+        private Totals(int productCount, int inStockCount, BigDecimal minPrice, BigDecimal maxPrice)
+        {
+            this.productCount = productCount;
+            this.inStockCount = inStockCount;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+    }
+}
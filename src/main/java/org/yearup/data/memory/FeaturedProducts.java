@@ -0,0 +1,122 @@
+package org.yearup.data.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CatalogReloadedEvent;
+import org.yearup.data.FeaturedProductSource;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.models.Product;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/*
+    The home page's featured rail, kept as an immutable list so serving it is a single volatile read.
+
+    Product writes are applied to the list as soon as their ProductChangedEvent arrives. A scheduled
+    reload from MySQL (catalog.featured.refresh-ms, five minutes by default) also picks up rows
+    changed outside the application, e.g. by a SQL script; when it does, it publishes a
+    CatalogReloadedEvent so the catalog ETag moves and clients stop getting 304s for the old list.
+ */
+@Component
+public class FeaturedProducts
+{
+    private static final Logger LOG = LoggerFactory.getLogger(FeaturedProducts.class);
+
+    private final FeaturedProductSource source;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile List<Product> featured = List.of();
+
+    @Autowired
+    public FeaturedProducts(FeaturedProductSource source, ApplicationEventPublisher eventPublisher)
+    {
+        this.source = source;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${catalog.featured.refresh-ms:300000}",
+               initialDelayString = "${catalog.featured.refresh-ms:300000}")
+    public synchronized void reload()
+    {
+        try
+        {
+            List<Product> reloaded = List.copyOf(source.listFeatured());
+            boolean changed = !sameRows(featured, reloaded);
+            featured = reloaded;
+            if (changed)
+            {
+                eventPublisher.publishEvent(new CatalogReloadedEvent("featured products"));
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            // keep serving the last good list; the next reload tries again
+            LOG.warn("could not reload the featured products", ex);
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)  // ahead of CatalogVersion, which moves the ETag
+    public synchronized void onProductChanged(ProductChangedEvent event)
+    {
+        Map<Integer, Product> products = new TreeMap<>();
+        for (Product product : featured)
+        {
+            products.put(product.getProductId(), product);
+        }
+
+        // drop every product the write touched, then add back the ones that are featured now
+        event.getProductIds().forEach(products::remove);
+        for (Product product : event.getProducts())
+        {
+            if (product.isFeatured())
+            {
+                products.put(product.getProductId(), product);
+            }
+        }
+
+        featured = List.copyOf(products.values());
+    }
+
+    // the featured products in id order; the list is immutable and safe to hand out as is
+    public List<Product> list()
+    {
+        return featured;
+    }
+
+    // field by field, as the rail serves them
+    private static boolean sameRows(List<Product> before, List<Product> after)
+    {
+        if (before.size() != after.size())
+        {
+            return false;
+        }
+        for (int i = 0; i < before.size(); i++)
+        {
+            Product a = before.get(i);
+            Product b = after.get(i);
+            boolean same = a.getProductId() == b.getProductId()
+                    && Objects.equals(a.getName(), b.getName())
+                    && (a.getPrice() == null ? b.getPrice() == null : b.getPrice() != null && a.getPrice().compareTo(b.getPrice()) == 0)
+                    && a.getCategoryId() == b.getCategoryId()
+                    && Objects.equals(a.getDescription(), b.getDescription())
+                    && Objects.equals(a.getColor(), b.getColor())
+                    && a.getStock() == b.getStock()
+                    && a.isFeatured() == b.isFeatured()
+                    && Objects.equals(a.getImageUrl(), b.getImageUrl());
+            if (!same)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,252 @@
+package org.yearup.data.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductRowPage;
+import org.yearup.models.ProductSearchCriteria;
+import org.yearup.models.ProductSort;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/*
+    ProductDao that answers the storefront browse queries (search, listByCategoryId, getById) from an
+    in-memory ProductCatalog instead of MySQL. Writes go straight to MySqlProductDao; once they are
+    stored, the ProductChangedEvent it publishes is applied here by swapping in a new snapshot, so
+    readers never lock and never see a half-built index.
+
+    Disable with catalog.in-memory=false to go back to querying MySQL on every request.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "catalog.in-memory", havingValue = "true", matchIfMissing = true)
+public class InMemoryProductDao implements ProductDao
+{
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryProductDao.class);
+
+    private final ProductDao productDao;  // MySQL's
+    private volatile ProductCatalog catalog;  // null until the first successful load
+
+    @Autowired
+    public InMemoryProductDao(@Qualifier("mySqlProductDao") ProductDao productDao)  // not this primary bean itself
+    {
+        this.productDao = productDao;
+    }
+
+    @PostConstruct
+    public void load()
+    {
+        try
+        {
+            List<Product> products = productDao.search(null, null, null, null);
+            catalog = ProductCatalog.of(products);
+            LOG.info("loaded {} products into the in-memory catalog", products.size());
+        }
+        catch (RuntimeException ex)
+        {
+            // keep serving from MySQL rather than failing startup; the next write retries the load
+            LOG.warn("could not load the product catalog, falling back to MySQL", ex);
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)  // ahead of CatalogVersion, which moves the ETag
+    public synchronized void onProductChanged(ProductChangedEvent event)
+    {
+        if (catalog == null)
+        {
+            load();
+            return;
+        }
+        catalog = catalog.apply(event);
+    }
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.search(categoryId, minPrice, maxPrice, color);
+        }
+        return current.search(categoryId, minPrice, maxPrice, color);
+    }
+
+    // paging and sorting are served by MySQL's indexes (keyset pagination)
+    @Override
+    public ProductPage searchPage(ProductSearchCriteria criteria)
+    {
+        return productDao.searchPage(criteria);
+    }
+
+    // the products are already in memory, so a projection is just a copy of the selected properties
+    @Override
+    public List<Map<String, Object>> searchFields(ProductSearchCriteria criteria, Set<ProductField> fields)
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.searchFields(criteria, fields);
+        }
+
+        List<Product> products = current.search(criteria.getCategoryId(), criteria.getMinPrice(),
+                                                criteria.getMaxPrice(), criteria.getColor());
+        if (criteria.getSort() == ProductSort.PRICE)
+        {
+            products.sort(Comparator.comparing(Product::getPrice).thenComparingInt(Product::getProductId));
+        }
+        else if (criteria.getSort() == ProductSort.NAME)
+        {
+            // case-insensitive, like the column's collation
+            products.sort(Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER)
+                                    .thenComparingInt(Product::getProductId));
+        }
+        return ProductField.project(products, fields);
+    }
+
+    @Override
+    public ProductRowPage searchPageFields(ProductSearchCriteria criteria, Set<ProductField> fields)
+    {
+        return productDao.searchPageFields(criteria, fields);
+    }
+
+    // streaming is for result sets too large to materialize, so read them straight from MySQL
+    @Override
+    public void stream(ProductSearchCriteria criteria, Consumer<Product> consumer)
+    {
+        productDao.stream(criteria, consumer);
+    }
+
+    @Override
+    public void exportWithCategories(BiConsumer<Product, String> consumer)
+    {
+        productDao.exportWithCategories(consumer);
+    }
+
+    // one pass over the matching products in the catalog
+    @Override
+    public ProductFacets getFacets(ProductSearchCriteria criteria)
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.getFacets(criteria);
+        }
+
+        ProductFacets facets = new ProductFacets();
+        current.search(criteria.getCategoryId(), criteria.getMinPrice(), criteria.getMaxPrice(), criteria.getColor())
+               .forEach(facets::add);
+        return facets;
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.listByCategoryId(categoryId);
+        }
+        return current.listByCategoryId(categoryId);
+    }
+
+    @Override
+    public Product getById(int productId)
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.getById(productId);
+        }
+        return current.getById(productId);
+    }
+
+    @Override
+    public List<Product> listFeatured()
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.listFeatured();
+        }
+
+        List<Product> products = current.listAll();
+        products.removeIf(product -> !product.isFeatured());
+        return products;
+    }
+
+    // a binary search per id, in the requested order, skipping duplicates and unknown ids like MySQL does
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds)
+    {
+        ProductCatalog current = catalog;
+        if (current == null)
+        {
+            return productDao.getByIds(productIds);
+        }
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        for (int productId : new LinkedHashSet<>(productIds))
+        {
+            Product product = current.getById(productId);
+            if (product != null)
+            {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public Product create(Product product)
+    {
+        return productDao.create(product);
+    }
+
+    @Override
+    public List<Product> createAll(List<Product> products)
+    {
+        return productDao.createAll(products);
+    }
+
+    @Override
+    public List<Product> insertAll(List<Product> products)
+    {
+        return productDao.insertAll(products);
+    }
+
+    @Override
+    public void update(int productId, Product product)
+    {
+        productDao.update(productId, product);
+    }
+
+    @Override
+    public boolean adjustStock(int productId, int delta)
+    {
+        return productDao.adjustStock(productId, delta);
+    }
+
+    @Override
+    public void delete(int productId)
+    {
+        productDao.delete(productId);
+    }
+}
@@ -0,0 +1,203 @@
+package org.yearup.data.memory;
+
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/*
+    Immutable, fully indexed snapshot of the products table. Products are stored in product_id order
+    and every index holds positions into that array, so a query can start from whichever index is
+    most selective and still return rows in the same order MySQL would.
+
+    Writers never modify a snapshot - they build a new one and swap it in (see InMemoryProductDao).
+ */
+final class ProductCatalog
+{
+    private static final int[] NONE = new int[0];
+
+    private final Product[] products;               // sorted by product id
+    private final int[] productIds;                 // parallel to products, for binary search
+    private final Map<Integer, int[]> byCategory;   // category id -> positions (ascending)
+    private final Map<String, int[]> byColor;       // lower-cased color -> positions (ascending)
+    private final int[] byPrice;                    // positions sorted by price, then id
+    private final BigDecimal[] prices;              // parallel to byPrice
+
+    private ProductCatalog(Collection<Product> source)
+    {
+        products = source.toArray(new Product[0]);
+        Arrays.sort(products, Comparator.comparingInt(Product::getProductId));
+
+        productIds = new int[products.length];
+        Map<Integer, List<Integer>> categories = new HashMap<>();
+        Map<String, List<Integer>> colors = new HashMap<>();
+        Integer[] priceOrder = new Integer[products.length];
+
+        for (int i = 0; i < products.length; i++)
+        {
+            Product product = products[i];
+            productIds[i] = product.getProductId();
+            categories.computeIfAbsent(product.getCategoryId(), k -> new ArrayList<>()).add(i);
+            if (product.getColor() != null)
+            {
+                colors.computeIfAbsent(colorKey(product.getColor()), k -> new ArrayList<>()).add(i);
+            }
+            priceOrder[i] = i;
+        }
+
+        // positions are added in ascending order, and Arrays.sort is stable, so ties stay in id order
+        Arrays.sort(priceOrder, (a, b) -> products[a].getPrice().compareTo(products[b].getPrice()));
+        byPrice = new int[products.length];
+        prices = new BigDecimal[products.length];
+        for (int i = 0; i < priceOrder.length; i++)
+        {
+            byPrice[i] = priceOrder[i];
+            prices[i] = products[priceOrder[i]].getPrice();
+        }
+
+        byCategory = toPostings(categories);
+        byColor = toPostings(colors);
+    }
+
+    static ProductCatalog of(Collection<Product> products)
+    {
+        return new ProductCatalog(products);
+    }
+
+    // returns a new snapshot with the change applied; this one is left untouched
+    ProductCatalog apply(ProductChangedEvent event)
+    {
+        Map<Integer, Product> rows = new HashMap<>(products.length * 2);
+        for (Product product : products)
+        {
+            rows.put(product.getProductId(), product);
+        }
+
+        if (event.getType() == ProductChangedEvent.Type.DELETED)
+        {
+            event.getProductIds().forEach(rows::remove);
+        }
+        else
+        {
+            event.getProducts().forEach(product -> rows.put(product.getProductId(), product));
+        }
+
+        return new ProductCatalog(rows.values());
+    }
+
+    Product getById(int productId)
+    {
+        int position = Arrays.binarySearch(productIds, productId);
+        return position >= 0 ? products[position] : null;
+    }
+
+    List<Product> listAll()
+    {
+        return new ArrayList<>(Arrays.asList(products));
+    }
+
+    List<Product> listByCategoryId(int categoryId)
+    {
+        return collect(byCategory.getOrDefault(categoryId, NONE), null, null, null, null);
+    }
+
+    List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        boolean filterColor = color != null && !color.isEmpty();
+        boolean filterPrice = minPrice != null || maxPrice != null;
+
+        // start from the shortest candidate list and check the remaining filters row by row
+        int[] candidates = null;
+        if (categoryId != null)
+        {
+            candidates = byCategory.getOrDefault(categoryId, NONE);
+        }
+        if (filterColor)
+        {
+            int[] colorPostings = byColor.getOrDefault(colorKey(color), NONE);
+            if (candidates == null || colorPostings.length < candidates.length)
+            {
+                candidates = colorPostings;
+            }
+        }
+        if (filterPrice)
+        {
+            int from = minPrice == null ? 0 : lowerBound(minPrice);
+            int to = maxPrice == null ? prices.length : upperBound(maxPrice);
+            int size = Math.max(0, to - from);
+
+            if (candidates == null || size < candidates.length)
+            {
+                // a price range is in price order; put it back in id order before filtering
+                candidates = Arrays.copyOfRange(byPrice, from, from + size);
+                Arrays.sort(candidates);
+                minPrice = null;
+                maxPrice = null;
+            }
+        }
+
+        if (candidates == null)
+        {
+            return listAll();
+        }
+
+        return collect(candidates, categoryId, minPrice, maxPrice, filterColor ? color : null);
+    }
+
+    private List<Product> collect(int[] positions, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        List<Product> results = new ArrayList<>(positions.length);
+        for (int position : positions)
+        {
+            Product product = products[position];
+
+            if (categoryId != null && product.getCategoryId() != categoryId) continue;
+            if (minPrice != null && product.getPrice().compareTo(minPrice) < 0) continue;
+            if (maxPrice != null && product.getPrice().compareTo(maxPrice) > 0) continue;
+            if (color != null && !color.equalsIgnoreCase(product.getColor())) continue;
+
+            results.add(product);
+        }
+        return results;
+    }
+
+    // first position in the price index whose price is >= value
+    private int lowerBound(BigDecimal value)
+    {
+        int low = 0, high = prices.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (prices[mid].compareTo(value) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // first position in the price index whose price is > value
+    private int upperBound(BigDecimal value)
+    {
+        int low = 0, high = prices.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (prices[mid].compareTo(value) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // MySQL compares colors with a case-insensitive collation, so the dictionary does too
+    private static String colorKey(String color)
+    {
+        return color.toLowerCase(Locale.ROOT);
+    }
+
+    private static <K> Map<K, int[]> toPostings(Map<K, List<Integer>> lists)
+    {
+        Map<K, int[]> postings = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, positions) -> postings.put(key, positions.stream().mapToInt(Integer::intValue).toArray()));
+        return postings;
+    }
+}
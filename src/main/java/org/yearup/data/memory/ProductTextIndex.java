@@ -0,0 +1,290 @@
+package org.yearup.data.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductSource;
+import org.yearup.models.Product;
+import org.yearup.models.ProductSearchCriteria;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/*
+    Keyword search over product names and descriptions. Text is tokenized into an inverted index
+    (term -> products containing it) and matches are ranked with BM25, so a query never scans the
+    products table. Every query word must match; each word also matches terms it is a prefix of,
+    so "head" finds "headphones" while the customer is still typing.
+
+    Like the catalog, the index is an immutable snapshot that is rebuilt and swapped in after each
+    ProductChangedEvent.
+ */
+@Component
+public class ProductTextIndex
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductTextIndex.class);
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "with", "your", "you");
+
+    private final ProductSource source;
+    private volatile Snapshot snapshot;  // null until the first successful load
+
+    @Autowired
+    public ProductTextIndex(ProductSource source)
+    {
+        this.source = source;
+    }
+
+    @PostConstruct
+    public void load()
+    {
+        try
+        {
+            snapshot = new Snapshot(source.loadAll());
+        }
+        catch (RuntimeException ex)
+        {
+            // keyword search finds nothing meanwhile; the next write retries the load
+            LOG.warn("could not build the product text index", ex);
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)  // ahead of CatalogVersion, which moves the ETag
+    public synchronized void onProductChanged(ProductChangedEvent event)
+    {
+        if (snapshot == null)
+        {
+            load();
+            return;
+        }
+
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : snapshot.products)
+        {
+            products.put(product.getProductId(), product);
+        }
+
+        if (event.getType() == ProductChangedEvent.Type.DELETED)
+        {
+            event.getProductIds().forEach(products::remove);
+        }
+        else
+        {
+            event.getProducts().forEach(product -> products.put(product.getProductId(), product));
+        }
+
+        snapshot = new Snapshot(products.values());
+    }
+
+    // returns the products matching every word of the query and the filters, best match first
+    public List<Product> search(String query, ProductSearchCriteria filters)
+    {
+        Snapshot current = snapshot;
+        return current == null ? new ArrayList<>() : current.search(tokenize(query), filters);
+    }
+
+    static List<String> tokenize(String text)
+    {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+        {
+            return tokens;
+        }
+
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+        {
+            if (token.length() > 1 && !STOP_WORDS.contains(token))
+            {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Snapshot
+    {
+        // BM25 tuning - the usual defaults
+        private static final double K1 = 1.2;
+        private static final double B = 0.75;
+
+        // a word in the name says more about the product than one in the description
+        private static final int NAME_WEIGHT = 3;
+
+        // a prefix match ranks a little below the same word typed out in full
+        private static final double PREFIX_WEIGHT = 0.8;
+
+        // bounds the work done for short prefixes - two letters such as "sh", since tokenize drops single
+        // letters: past this many terms only the ones found in the most products are scored
+        private static final int MAX_PREFIX_TERMS = 64;
+
+        private final Product[] products;
+        private final int[] documentLengths;
+        private final double averageLength;
+        private final NavigableMap<String, Postings> terms = new TreeMap<>();
+
+        Snapshot(Collection<Product> source)
+        {
+            products = source.toArray(new Product[0]);
+            documentLengths = new int[products.length];
+
+            Map<String, Map<Integer, Integer>> frequencies = new HashMap<>();
+            long totalLength = 0;
+            for (int document = 0; document < products.length; document++)
+            {
+                Product product = products[document];
+                int length = addTerms(frequencies, document, tokenize(product.getName()), NAME_WEIGHT);
+                length += addTerms(frequencies, document, tokenize(product.getDescription()), 1);
+                documentLengths[document] = length;
+                totalLength += length;
+            }
+            averageLength = products.length == 0 ? 1 : Math.max(1.0, (double) totalLength / products.length);
+
+            frequencies.forEach((term, counts) -> terms.put(term, new Postings(counts)));
+        }
+
+        private static int addTerms(Map<String, Map<Integer, Integer>> frequencies, int document, List<String> tokens, int weight)
+        {
+            for (String token : tokens)
+            {
+                frequencies.computeIfAbsent(token, k -> new HashMap<>()).merge(document, weight, Integer::sum);
+            }
+            return tokens.size() * weight;
+        }
+
+        List<Product> search(List<String> queryTerms, ProductSearchCriteria filters)
+        {
+            if (queryTerms.isEmpty() || products.length == 0)
+            {
+                return new ArrayList<>();
+            }
+
+            // document -> score, narrowed to the documents that matched every query word so far
+            Map<Integer, Double> candidates = null;
+
+            for (String queryTerm : queryTerms)
+            {
+                Map<Integer, Double> best = new HashMap<>();
+
+                for (Map.Entry<String, Postings> entry : expand(queryTerm))
+                {
+                    String term = entry.getKey();
+                    double weight = term.length() == queryTerm.length() ? 1.0 : PREFIX_WEIGHT;
+                    Postings postings = entry.getValue();
+                    double idf = Math.log(1 + (products.length - postings.size() + 0.5) / (postings.size() + 0.5));
+
+                    for (int i = 0; i < postings.size(); i++)
+                    {
+                        int document = postings.documents[i];
+                        if (candidates != null && !candidates.containsKey(document))
+                        {
+                            continue;
+                        }
+
+                        double tf = postings.frequencies[i];
+                        double norm = K1 * (1 - B + B * documentLengths[document] / averageLength);
+                        double score = weight * idf * tf * (K1 + 1) / (tf + norm);
+                        best.merge(document, score, Math::max);
+                    }
+                }
+
+                // a word's score is its best-matching term; documents missing the word drop out
+                if (candidates != null)
+                {
+                    for (Map.Entry<Integer, Double> entry : best.entrySet())
+                    {
+                        entry.setValue(entry.getValue() + candidates.get(entry.getKey()));
+                    }
+                }
+                candidates = best;
+
+                if (candidates.isEmpty())
+                {
+                    return new ArrayList<>();
+                }
+            }
+
+            List<Integer> hits = new ArrayList<>();
+            for (int document : candidates.keySet())
+            {
+                if (filters.matches(products[document]))
+                {
+                    hits.add(document);
+                }
+            }
+
+            Map<Integer, Double> scores = candidates;
+            hits.sort((a, b) -> {
+                int byScore = Double.compare(scores.get(b), scores.get(a));
+                return byScore != 0 ? byScore : Integer.compare(products[a].getProductId(), products[b].getProductId());
+            });
+
+            List<Product> results = new ArrayList<>(hits.size());
+            hits.forEach(document -> results.add(products[document]));
+            return results;
+        }
+
+        // the terms a query word matches: itself, then the terms it is a prefix of. Past MAX_PREFIX_TERMS the
+        // word itself and the terms in the most products are kept, rather than the first ones alphabetically
+        private List<Map.Entry<String, Postings>> expand(String queryTerm)
+        {
+            List<Map.Entry<String, Postings>> matches = new ArrayList<>();
+            for (Map.Entry<String, Postings> entry : terms.tailMap(queryTerm, true).entrySet())
+            {
+                if (!entry.getKey().startsWith(queryTerm))
+                {
+                    break;
+                }
+                matches.add(entry);
+            }
+
+            if (matches.size() > MAX_PREFIX_TERMS)
+            {
+                matches.sort((a, b) -> {
+                    boolean aExact = a.getKey().equals(queryTerm);
+                    boolean bExact = b.getKey().equals(queryTerm);
+                    if (aExact != bExact)
+                    {
+                        return aExact ? -1 : 1;
+                    }
+                    int byProducts = Integer.compare(b.getValue().size(), a.getValue().size());
+                    return byProducts != 0 ? byProducts : a.getKey().compareTo(b.getKey());
+                });
+                matches = matches.subList(0, MAX_PREFIX_TERMS);
+            }
+            return matches;
+        }
+    }
+
+    // documents containing a term, with the (weighted) number of times it occurs in each
+    private static final class Postings
+    {
+        private final int[] documents;
+        private final int[] frequencies;
+
+        Postings(Map<Integer, Integer> counts)
+        {
+            documents = new int[counts.size()];
+            frequencies = new int[counts.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet())
+            {
+                documents[i] = entry.getKey();
+                frequencies[i] = entry.getValue();
+                i++;
+            }
+        }
+
+        int size()
+        {
+            return documents.length;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package org.yearup.data.memory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CartStore;
+import org.yearup.data.ProductLookup;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+import org.yearup.utilities.StripedLock;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/*
+    ShoppingCartDao that keeps every cart it has seen in memory and treats that copy as the truth.
+    A cart is read from MySQL the first time its user touches it; after that, changes only mark it
+    dirty. Dirty carts are written back in one batched transaction every cart.write-behind.flush-ms,
+    when checkout calls flush(userId), and on shutdown.
+
+    Requests from several devices of one user are serialized on that user's stripe of a StripedLock
+    (cart.lock-stripes, 64 by default), so no update is lost, while other users' carts carry on in
+    parallel. A cart is read from MySQL before the stripe is locked, so a slow read holds up no one else.
+
+    Dirty carts are written together, in one transaction. When that fails, each cart is retried on its
+    own, so one bad cart holds back only itself. Lines for a product that has been deleted since they
+    were added can never be written, because of the foreign key. They are dropped from the cart and
+    logged, and the rest of the cart is written. A cart that still fails is retried on the next flush.
+
+    Carts untouched for cart.write-behind.idle-ms (30 minutes by default) with nothing left to write
+    are dropped from memory, and read from MySQL again on next use.
+
+    Carts hold product ids and quantities only; products are looked up when the cart is read, so
+    prices are always current. Two gauges show how far the database is behind:
+    cart.write_behind.queue_depth (dirty carts) and cart.write_behind.lag (age of the oldest
+    unwritten change).
+
+    Enable with cart.write-behind=true. Only safe with a single application instance, since each
+    instance would hold its own copy of the carts.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "cart.write-behind", havingValue = "true")
+public class WriteBehindShoppingCartDao implements ShoppingCartDao
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindShoppingCartDao.class);
+
+    private final CartStore cartDao;
+    private final ProductLookup productDao;
+
+    private final StripedLock locks;
+    private final long idleNanos;
+    private final Map<Integer, Cart> carts = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> dirtySince = new ConcurrentHashMap<>();  // userId -> nanoTime of the first unwritten change
+    private final AtomicLongArray evictions;  // per stripe, so a cart read from MySQL before a checkout is never installed after it
+
+    // one flush at a time, so an older snapshot of a cart can never be written after a newer one
+    private final Object flushLock = new Object();
+
+    @Autowired
+    public WriteBehindShoppingCartDao(CartStore cartDao, ProductLookup productDao, MeterRegistry registry,
+                                      @Value("${cart.lock-stripes:64}") int lockStripes,
+                                      @Value("${cart.write-behind.idle-ms:1800000}") long idleMs)
+    {
+        this.cartDao = cartDao;
+        this.productDao = productDao;
+        this.locks = new StripedLock(lockStripes);
+        this.evictions = new AtomicLongArray(locks.size());
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMs);
+
+        Gauge.builder("cart.write_behind.queue_depth", dirtySince, Map::size)
+             .description("Carts with changes not yet written to the database")
+             .register(registry);
+        Gauge.builder("cart.write_behind.lag", this, WriteBehindShoppingCartDao::lagSeconds)
+             .description("Age of the oldest change not yet written to the database")
+             .baseUnit("seconds")
+             .register(registry);
+    }
+
+    @Override
+    public ShoppingCart getByUserId(int userId)
+    {
+        Map<Integer, Integer> quantities = withCart(userId, cart -> new LinkedHashMap<>(cart.quantities));
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+        for (Product product : productDao.getByIds(quantities.keySet()))
+        {
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(product);
+            item.setQuantity(quantities.get(product.getProductId()));
+            shoppingCart.add(item);
+        }
+        return shoppingCart;
+    }
+
+    @Override
+    public void addProduct(int userId, int productId)
+    {
+        withCart(userId, cart -> {
+            cart.quantities.merge(productId, 1, Integer::sum);
+            return cart.changed(productId);
+        });
+        markDirty(userId);
+    }
+
+    @Override
+    public boolean updateQuantity(int userId, int productId, int quantity)
+    {
+        boolean updated = withCart(userId, cart -> {
+            if (!cart.quantities.containsKey(productId))
+            {
+                return false;
+            }
+            cart.set(productId, quantity);
+            return cart.changed(productId);
+        });
+        if (updated)
+        {
+            markDirty(userId);
+        }
+        return updated;
+    }
+
+    @Override
+    public void addQuantities(int userId, Map<Integer, Integer> deltas)
+    {
+        withCart(userId, cart -> {
+            deltas.forEach((productId, delta) -> {
+                cart.set(productId, cart.quantities.getOrDefault(productId, 0) + delta);
+                cart.changed(productId);
+            });
+            return true;
+        });
+        markDirty(userId);
+    }
+
+    @Override
+    public void clear(int userId)
+    {
+        withCart(userId, cart -> {
+            cart.changed.addAll(cart.quantities.keySet());
+            cart.quantities.clear();
+            return true;
+        });
+        markDirty(userId);
+    }
+
+    @Override
+    public void flush(int userId)
+    {
+        flush(List.of(userId));
+    }
+
+    // checkout emptied the cart in the database after flushing it. Changes made in between - a click
+    // that raced the checkout - were not ordered and go with the cached copy.
+    @Override
+    public void evict(int userId)
+    {
+        Lock lock = locks.forKey(userId);
+        lock.lock();
+        try
+        {
+            carts.remove(userId);
+            dirtySince.remove(userId);
+            evictions.incrementAndGet(locks.stripe(userId));
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-ms:1000}")
+    public void flushAll()
+    {
+        try
+        {
+            flush(new ArrayList<>(dirtySince.keySet()));
+        }
+        catch (RuntimeException ex)
+        {
+            // already logged and re-queued by flush; the next run retries
+        }
+    }
+
+    // forgets the carts nobody touched for cart.write-behind.idle-ms that have nothing left to write. Holding
+    // the flush lock keeps a cart whose write is in flight - and could still fail - in memory.
+    @Scheduled(fixedDelayString = "${cart.write-behind.evict-ms:60000}")
+    public void evictIdle()
+    {
+        long now = System.nanoTime();
+        synchronized (flushLock)
+        {
+            for (int userId : new ArrayList<>(carts.keySet()))
+            {
+                Lock lock = locks.forKey(userId);
+                lock.lock();
+                try
+                {
+                    Cart cart = carts.get(userId);
+                    if (cart != null && cart.changed.isEmpty() && !dirtySince.containsKey(userId)
+                            && now - cart.lastUsed >= idleNanos)
+                    {
+                        carts.remove(userId);
+                    }
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        flushAll();
+        if (!dirtySince.isEmpty())
+        {
+            LOG.error("{} carts could not be written to the database before shutdown", dirtySince.size());
+        }
+    }
+
+    private void flush(Collection<Integer> userIds)
+    {
+        synchronized (flushLock)
+        {
+            // take each cart's changed lines as they are right now; later changes mark the cart dirty again
+            Map<Integer, Map<Integer, Integer>> batch = new HashMap<>();
+            Map<Integer, Long> since = new HashMap<>();
+            for (int userId : userIds)
+            {
+                Long dirtyAt = dirtySince.remove(userId);
+                Cart cart = carts.get(userId);
+                if (dirtyAt == null || cart == null)
+                {
+                    continue;
+                }
+
+                Map<Integer, Integer> lines = withCart(userId, locked -> {
+                    Map<Integer, Integer> changed = new HashMap<>();
+                    for (int productId : locked.changed)
+                    {
+                        changed.put(productId, locked.quantities.getOrDefault(productId, 0));
+                    }
+                    locked.changed.clear();
+                    return changed;
+                });
+                batch.put(userId, lines);
+                since.put(userId, dirtyAt);
+            }
+            if (batch.isEmpty())
+            {
+                return;
+            }
+
+            if (batch.size() > 1)
+            {
+                try
+                {
+                    cartDao.saveQuantities(batch);
+                    return;
+                }
+                catch (RuntimeException ex)
+                {
+                    LOG.warn("could not write {} carts in one batch, writing them one at a time", batch.size(), ex);
+                }
+            }
+
+            RuntimeException failure = null;
+            for (Map.Entry<Integer, Map<Integer, Integer>> cart : batch.entrySet())
+            {
+                int userId = cart.getKey();
+                Map<Integer, Integer> lines = cart.getValue();
+                try
+                {
+                    save(userId, lines);
+                }
+                catch (RuntimeException ex)
+                {
+                    // nothing of this cart was written - put its changes back so the next flush retries them
+                    withCart(userId, locked -> locked.changed.addAll(lines.keySet()));
+                    dirtySince.merge(userId, since.get(userId), Math::min);
+                    LOG.warn("could not write the cart of user {} to the database, will retry", userId, ex);
+                    failure = ex;
+                }
+            }
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+    }
+
+    // writes one cart; when that fails, the lines for deleted products are dropped and the rest written
+    private void save(int userId, Map<Integer, Integer> lines)
+    {
+        try
+        {
+            cartDao.saveQuantities(Map.of(userId, lines));
+        }
+        catch (RuntimeException ex)
+        {
+            Set<Integer> deleted = deletedProducts(lines);
+            if (deleted.isEmpty())
+            {
+                throw ex;  // not something dropping lines can fix
+            }
+            withCart(userId, cart -> cart.quantities.keySet().removeAll(deleted));
+            LOG.warn("dropped products {} from the cart of user {}, they no longer exist", deleted, userId);
+
+            Map<Integer, Integer> kept = new HashMap<>(lines);
+            kept.keySet().removeAll(deleted);
+            if (!kept.isEmpty())
+            {
+                cartDao.saveQuantities(Map.of(userId, kept));
+            }
+        }
+    }
+
+    // the products the lines would write that are gone from the catalog; deleting a line always works
+    private Set<Integer> deletedProducts(Map<Integer, Integer> lines)
+    {
+        Set<Integer> deleted = new HashSet<>();
+        lines.forEach((productId, quantity) -> {
+            if (quantity > 0)
+            {
+                deleted.add(productId);
+            }
+        });
+        for (Product product : productDao.getByIds(deleted))
+        {
+            deleted.remove(product.getProductId());
+        }
+        return deleted;
+    }
+
+    // runs the action holding the user's lock stripe. A cart not in memory yet is read from MySQL before the
+    // lock is taken, so the round trip holds up no one else on the stripe; when two requests read it at once,
+    // putIfAbsent keeps the first copy installed. A copy read before a checkout evicted the cart may hold the
+    // lines just ordered, so it is thrown away and the cart read again.
+    private <T> T withCart(int userId, Function<Cart, T> action)
+    {
+        int stripe = locks.stripe(userId);
+        Lock lock = locks.forKey(userId);
+        while (true)
+        {
+            long evicted = evictions.get(stripe);
+            Cart loaded = carts.containsKey(userId) ? null : load(userId);
+
+            lock.lock();
+            try
+            {
+                if (loaded != null && evictions.get(stripe) == evicted)
+                {
+                    carts.putIfAbsent(userId, loaded);
+                }
+                Cart cart = carts.get(userId);
+                if (cart != null)
+                {
+                    cart.lastUsed = System.nanoTime();
+                    return action.apply(cart);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Cart load(int userId)
+    {
+        Cart cart = new Cart();
+        for (ShoppingCartItem item : cartDao.getByUserId(userId).getItems().values())
+        {
+            cart.quantities.put(item.getProductId(), item.getQuantity());
+        }
+        return cart;
+    }
+
+    private void markDirty(int userId)
+    {
+        dirtySince.putIfAbsent(userId, System.nanoTime());
+    }
+
+    private double lagSeconds()
+    {
+        long now = System.nanoTime();
+        long oldest = now;
+        for (long dirtyAt : dirtySince.values())
+        {
+            oldest = Math.min(oldest, dirtyAt);
+        }
+        return (now - oldest) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    // once installed in carts, only touched while holding the user's lock stripe
+    private static final class Cart
+    {
+        private final Map<Integer, Integer> quantities = new LinkedHashMap<>();  // productId -> quantity
+        private final Set<Integer> changed = new HashSet<>();  // products changed since the last flush
+        private long lastUsed;  // nanoTime
+
+        private void set(int productId, int quantity)
+        {
+            if (quantity > 0)
+            {
+                quantities.put(productId, quantity);
+            }
+            else
+            {
+                quantities.remove(productId);
+            }
+        }
+
+        private boolean changed(int productId)
+        {
+            changed.add(productId);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.yearup.data.mysql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/*
+    The transaction around a DAO call whose statements must land together. A connection in autocommit mode,
+    as the pool hands them out, gets a transaction of the call's own, committed or rolled back here. A
+    connection that already has one open - autocommit off, like the DAO tests' shared connection, which is
+    rolled back after every test - is joined instead: commit() leaves committing to whoever opened it, and
+    rollback() undoes only this call's statements, back to a savepoint.
+
+        JdbcTransaction transaction = JdbcTransaction.begin(connection);
+        try {
+            ...
+            transaction.commit();
+        } catch (SQLException | RuntimeException e) {
+            transaction.rollback();
+            throw e;
+        } finally {
+            transaction.end();
+        }
+ */
+final class JdbcTransaction {
+    private final Connection connection;
+    private final Savepoint joined;  // null when the transaction is this call's own
+    private boolean committed;
+
+    private JdbcTransaction(Connection connection, Savepoint joined) {
+        this.connection = connection;
+        this.joined = joined;
+    }
+
+    static JdbcTransaction begin(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return new JdbcTransaction(connection, connection.setSavepoint());
+        }
+        connection.setAutoCommit(false);
+        return new JdbcTransaction(connection, null);
+    }
+
+    void commit() throws SQLException {
+        if (joined == null) {
+            connection.commit();
+        }
+        committed = true;
+    }
+
+    // a failure after commit() - in work done once the rows are stored - leaves them stored
+    void rollback() throws SQLException {
+        if (committed) {
+            return;
+        }
+        if (joined == null) {
+            connection.rollback();
+        } else {
+            connection.rollback(joined);
+        }
+    }
+
+    void end() throws SQLException {
+        if (joined == null) {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.yearup.data.mysql;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryChangedEvent;
 import org.yearup.data.CategoryDao;
 import org.yearup.models.Category;
 
@@ -12,9 +15,18 @@ import java.util.List;
 @Component
 public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
 {
+    private final ApplicationEventPublisher eventPublisher;  // Notifies caches and catalog versioning after writes
+
     public MySqlCategoryDao(DataSource dataSource)
+    {
+        this(dataSource, event -> { });
+    }
+
+    @Autowired
+    public MySqlCategoryDao(DataSource dataSource, ApplicationEventPublisher eventPublisher)
     {
         super(dataSource);
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -34,7 +46,8 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
                 categories.add(category);        // Add category to the list
             }
         } catch (SQLException ex) {
-            ex.printStackTrace();  // Log the error (could also throw a custom exception)
+            // A failed read is not an empty table: the category cache keeps an empty table but retries a failure
+            throw new RuntimeException(ex);
         }
 
         return categories;  // Return the list of categories
@@ -57,7 +70,8 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
                 }
             }
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            // A failed read is not a missing category: callers such as the category cache must tell the two apart
+            throw new RuntimeException(ex);
         }
 
         return category;  // Return the category (null if not found)
@@ -80,6 +94,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         category.setCategoryId(generatedKeys.getInt(1));  // Set the generated ID
+                        eventPublisher.publishEvent(CategoryChangedEvent.created(category));
                     }
                 }
             }
@@ -101,7 +116,9 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
             stmt.setString(1, category.getName());
             stmt.setString(2, category.getDescription());
             stmt.setInt(3, categoryId);
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() > 0) {
+                eventPublisher.publishEvent(CategoryChangedEvent.updated(getById(categoryId)));
+            }
         } catch (SQLException ex) {
             ex.printStackTrace();
         }
@@ -116,7 +133,9 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
              PreparedStatement stmt = conn.prepareStatement(sql))
         {
             stmt.setInt(1, categoryId);
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() > 0) {
+                eventPublisher.publishEvent(CategoryChangedEvent.deleted(categoryId));
+            }
         } catch (SQLException ex) {
             ex.printStackTrace();
         }
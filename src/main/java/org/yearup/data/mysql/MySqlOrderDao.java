@@ -0,0 +1,501 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.KeysetCursor;
+import org.yearup.data.OrderDao;
+import org.yearup.data.PendingCheckout;
+import org.yearup.models.*;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+@Component
+public class MySqlOrderDao extends MySqlDaoBase implements OrderDao {
+    private static final String ORDER_COLUMNS = "order_id, user_id, date, address, city, state, zip, shipping_amount";
+    // found through ix_order_line_items_order (order_id), which InnoDB keeps in (order_id, order_line_item_id) order
+    private static final String LINE_COLUMNS = "order_line_item_id, order_id, product_id, sales_price, quantity, discount";
+
+    private static final String PROFILE_SQL = "SELECT address, city, state, zip FROM profiles WHERE user_id = ?";
+    // locks only the cart rows, so a concurrent change to the cart waits for the checkout to finish
+    private static final String CART_SQL = "SELECT " + MySqlProductDao.JOINED_COLUMNS + ", sc.quantity " +
+            "FROM shopping_cart sc JOIN products p ON p.product_id = sc.product_id " +
+            "WHERE sc.user_id = ? FOR UPDATE OF sc";
+    private static final String ORDER_SQL = "INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String LINE_SQL = "INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    // the same conditional decrement as MySqlProductDao.takeStock
+    private static final String TAKE_STOCK_SQL = "UPDATE products SET stock = stock - ? WHERE product_id = ? AND stock >= ?";
+    private static final String RETURN_STOCK_SQL = "UPDATE products SET stock = stock + ? WHERE product_id = ?";
+
+    private final MySqlProductDao productDao;  // told which stock moved, so the catalog views catch up
+
+    public MySqlOrderDao(DataSource dataSource) {
+        this(dataSource, new MySqlProductDao(dataSource));
+    }
+
+    @Autowired
+    public MySqlOrderDao(DataSource dataSource, MySqlProductDao productDao) {
+        super(dataSource);
+        this.productDao = productDao;
+    }
+
+    // One transaction and a fixed number of round trips however big the cart is: read the profile address,
+    // lock and read the cart, take the stock of the lines not reserved ahead as one batch, insert the order,
+    // insert every line item as one batch (sent as a single multi-row INSERT, see rewriteBatchedStatements in
+    // DatabaseConfig), then delete the cart.
+    @Override
+    public Order createFromCart(int userId, Set<Integer> reserved, UnaryOperator<ShoppingCart> pricing) {
+        String clearSql = "DELETE FROM shopping_cart WHERE user_id = ?";
+
+        // DATETIME keeps whole seconds - match it so the returned order equals what is read back later
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        try (Connection connection = getConnection()) {
+            JdbcTransaction transaction = JdbcTransaction.begin(connection);
+            try (PreparedStatement profileStatement = connection.prepareStatement(PROFILE_SQL);
+                 PreparedStatement cartStatement = connection.prepareStatement(CART_SQL);
+                 PreparedStatement orderStatement = connection.prepareStatement(ORDER_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement lineStatement = connection.prepareStatement(LINE_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement clearStatement = connection.prepareStatement(clearSql)) {
+                Order order = readProfileAddress(profileStatement, userId);
+                ShoppingCart cart = readCart(cartStatement, userId);
+                if (cart.getItems().isEmpty()) {
+                    throw new IllegalStateException("The cart is empty.");
+                }
+                cart = pricing.apply(cart);
+                List<Integer> taken = takeStock(connection, cart, reserved);
+
+                order.setUserId(userId);
+                order.setDate(now);
+                bindOrder(orderStatement, order);
+                orderStatement.executeUpdate();
+                try (ResultSet keys = orderStatement.getGeneratedKeys()) {
+                    keys.next();
+                    order.setOrderId(keys.getInt(1));
+                }
+
+                for (ShoppingCartItem item : cart.getItems().values()) {
+                    OrderLineItem line = toLineItem(order.getOrderId(), item);
+                    bindLine(lineStatement, line);
+                    lineStatement.addBatch();
+                    order.getLineItems().add(line);
+                }
+                lineStatement.executeBatch();
+                try (ResultSet keys = lineStatement.getGeneratedKeys()) {
+                    for (OrderLineItem line : order.getLineItems()) {
+                        if (keys.next()) {
+                            line.setOrderLineItemId(keys.getInt(1));
+                        }
+                    }
+                }
+
+                clearStatement.setInt(1, userId);
+                clearStatement.executeUpdate();
+                transaction.commit();
+                productDao.stockChanged(taken);
+                return order;
+            } catch (SQLException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.end();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The same steps as createFromCart for every checkout, under a single commit. Profiles, carts and stock are
+    // handled one checkout at a time, so one that fails is left out before its order is written; then every
+    // order goes in as one batch, every line item as another, and all the carts are deleted with one statement.
+    // A checkout left out keeps its cart locked until the commit, which is at most one batch later.
+    @Override
+    public void createFromCarts(List<PendingCheckout> checkouts) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        try (Connection connection = getConnection()) {
+            JdbcTransaction transaction = JdbcTransaction.begin(connection);
+            try (PreparedStatement profileStatement = connection.prepareStatement(PROFILE_SQL);
+                 PreparedStatement cartStatement = connection.prepareStatement(CART_SQL);
+                 PreparedStatement orderStatement = connection.prepareStatement(ORDER_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement lineStatement = connection.prepareStatement(LINE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                List<PendingCheckout> placed = new ArrayList<>();
+                List<Order> orders = new ArrayList<>();
+                List<ShoppingCart> carts = new ArrayList<>();
+                Set<Integer> taken = new HashSet<>();
+                for (PendingCheckout checkout : checkouts) {
+                    try {
+                        Order order = readProfileAddress(profileStatement, checkout.getUserId());
+                        ShoppingCart cart = readCart(cartStatement, checkout.getUserId());
+                        if (cart.getItems().isEmpty()) {
+                            throw new IllegalStateException("The cart is empty.");
+                        }
+                        cart = checkout.getPricing().apply(cart);
+                        taken.addAll(takeStock(connection, cart, checkout.getReserved()));
+
+                        order.setUserId(checkout.getUserId());
+                        order.setDate(now);
+                        placed.add(checkout);
+                        orders.add(order);
+                        carts.add(cart);
+                    } catch (RuntimeException e) {
+                        checkout.fail(e);
+                    }
+                }
+                if (placed.isEmpty()) {
+                    transaction.rollback();
+                    return;
+                }
+
+                for (Order order : orders) {
+                    bindOrder(orderStatement, order);
+                    orderStatement.addBatch();
+                }
+                orderStatement.executeBatch();
+                try (ResultSet keys = orderStatement.getGeneratedKeys()) {
+                    for (Order order : orders) {
+                        keys.next();
+                        order.setOrderId(keys.getInt(1));
+                    }
+                }
+
+                List<OrderLineItem> lines = new ArrayList<>();
+                for (int i = 0; i < orders.size(); i++) {
+                    Order order = orders.get(i);
+                    for (ShoppingCartItem item : carts.get(i).getItems().values()) {
+                        OrderLineItem line = toLineItem(order.getOrderId(), item);
+                        bindLine(lineStatement, line);
+                        lineStatement.addBatch();
+                        order.getLineItems().add(line);
+                        lines.add(line);
+                    }
+                }
+                lineStatement.executeBatch();
+                try (ResultSet keys = lineStatement.getGeneratedKeys()) {
+                    for (OrderLineItem line : lines) {
+                        if (keys.next()) {
+                            line.setOrderLineItemId(keys.getInt(1));
+                        }
+                    }
+                }
+
+                String clearSql = "DELETE FROM shopping_cart WHERE user_id IN (" +
+                        String.join(", ", Collections.nCopies(placed.size(), "?")) + ")";
+                try (PreparedStatement clearStatement = connection.prepareStatement(clearSql)) {
+                    for (int i = 0; i < placed.size(); i++) {
+                        clearStatement.setInt(i + 1, placed.get(i).getUserId());
+                    }
+                    clearStatement.executeUpdate();
+                }
+                transaction.commit();
+                productDao.stockChanged(taken);
+
+                for (int i = 0; i < placed.size(); i++) {
+                    placed.get(i).complete(orders.get(i));
+                }
+            } catch (SQLException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.end();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Two round trips per page however many orders and lines it holds: the page of orders, sought past the
+    // cursor on ix_orders_user_date (user_id, date, order_id) instead of OFFSET, then the line items of every
+    // order on the page in one IN query.
+    @Override
+    public OrderPage getByUserId(int userId, Integer limit, String after) {
+        int pageSize = OrderPage.clampLimit(limit);
+        StringBuilder sql = new StringBuilder("SELECT " + ORDER_COLUMNS + " FROM orders WHERE user_id = ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(userId);
+
+        if (after != null) {
+            String[] key = KeysetCursor.decode(after, 2);
+            Timestamp lastDate = parseCursorDate(key[0]);
+            int lastId = parseCursorInt(key[1]);
+            sql.append(" AND (date < ? OR (date = ? AND order_id < ?))");
+            parameters.add(lastDate);
+            parameters.add(lastDate);
+            parameters.add(lastId);
+        }
+        // newest first; one extra row tells whether there is a next page
+        sql.append(" ORDER BY date DESC, order_id DESC LIMIT ?");
+        parameters.add(pageSize + 1);
+
+        try (Connection connection = getConnection()) {
+            List<Order> orders = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet row = statement.executeQuery()) {
+                    while (row.next()) {
+                        orders.add(mapOrder(row));
+                    }
+                }
+            }
+
+            String next = null;
+            if (orders.size() > pageSize) {
+                orders = new ArrayList<>(orders.subList(0, pageSize));
+                Order last = orders.get(pageSize - 1);
+                next = KeysetCursor.encode(last.getDate().toString(), String.valueOf(last.getOrderId()));
+            }
+
+            readLineItems(connection, orders);
+            return new OrderPage(orders, next);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Order getById(int userId, int orderId) {
+        String sql = "SELECT " + ORDER_COLUMNS + " FROM orders WHERE order_id = ? AND user_id = ?";
+
+        try (Connection connection = getConnection()) {
+            Order order;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setInt(1, orderId);
+                statement.setInt(2, userId);
+                try (ResultSet row = statement.executeQuery()) {
+                    if (!row.next()) {
+                        return null;
+                    }
+                    order = mapOrder(row);
+                }
+            }
+
+            readLineItems(connection, List.of(order));
+            return order;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // INSERT IGNORE: the pipeline may retry a stage whose first attempt did reach the database
+    @Override
+    public void recordConfirmation(Order order, LocalDateTime confirmedAt) {
+        String sql = "INSERT IGNORE INTO order_confirmations (order_id, total, confirmed_at) VALUES (?, ?, ?)";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, order.getOrderId());
+            statement.setBigDecimal(2, order.getTotal());
+            statement.setTimestamp(3, Timestamp.valueOf(confirmedAt));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void recordAnalytics(Order order) {
+        String sql = "INSERT IGNORE INTO order_analytics (order_id, user_id, order_date, line_count, unit_count, total) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        int units = 0;
+        for (OrderLineItem line : order.getLineItems()) {
+            units += line.getQuantity();
+        }
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, order.getOrderId());
+            statement.setInt(2, order.getUserId());
+            statement.setTimestamp(3, Timestamp.valueOf(order.getDate()));
+            statement.setInt(4, order.getLineItems().size());
+            statement.setInt(5, units);
+            statement.setBigDecimal(6, order.getTotal());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Takes the stock of every cart line not in reserved as one batch of conditional decrements, in product id
+    // order so concurrent checkouts lock the rows in the same order. When a line is short, the lines taken are
+    // put back and InsufficientStockException is thrown - a group commit goes on with the other checkouts, so
+    // it cannot leave that to the rollback. Returns the product ids taken.
+    private static List<Integer> takeStock(Connection connection, ShoppingCart cart, Set<Integer> reserved) throws SQLException {
+        List<ShoppingCartItem> lines = new ArrayList<>();
+        for (ShoppingCartItem item : cart.getItems().values()) {
+            if (!reserved.contains(item.getProductId())) {
+                lines.add(item);
+            }
+        }
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+        lines.sort(Comparator.comparingInt(ShoppingCartItem::getProductId));
+
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(TAKE_STOCK_SQL)) {
+            for (ShoppingCartItem line : lines) {
+                statement.setInt(1, line.getQuantity());
+                statement.setInt(2, line.getProductId());
+                statement.setInt(3, line.getQuantity());
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+
+        List<Integer> taken = new ArrayList<>();
+        ShoppingCartItem shortLine = null;
+        for (int i = 0; i < lines.size(); i++) {
+            if (counts[i] == 0) {
+                shortLine = shortLine == null ? lines.get(i) : shortLine;
+            } else {
+                taken.add(lines.get(i).getProductId());
+            }
+        }
+        if (shortLine == null) {
+            return taken;
+        }
+
+        if (!taken.isEmpty()) {
+            try (PreparedStatement statement = connection.prepareStatement(RETURN_STOCK_SQL)) {
+                for (ShoppingCartItem line : lines) {
+                    if (taken.contains(line.getProductId())) {
+                        statement.setInt(1, line.getQuantity());
+                        statement.setInt(2, line.getProductId());
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+        }
+        throw new InsufficientStockException(shortLine.getProductId());
+    }
+
+    private static void bindOrder(PreparedStatement statement, Order order) throws SQLException {
+        statement.setInt(1, order.getUserId());
+        statement.setTimestamp(2, Timestamp.valueOf(order.getDate()));
+        statement.setString(3, order.getAddress());
+        statement.setString(4, order.getCity());
+        statement.setString(5, order.getState());
+        statement.setString(6, order.getZip());
+        statement.setBigDecimal(7, order.getShippingAmount());
+    }
+
+    private static void bindLine(PreparedStatement statement, OrderLineItem line) throws SQLException {
+        statement.setInt(1, line.getOrderId());
+        statement.setInt(2, line.getProductId());
+        statement.setBigDecimal(3, line.getSalesPrice());
+        statement.setInt(4, line.getQuantity());
+        statement.setBigDecimal(5, line.getDiscount());
+    }
+
+    // fills in the line items of all the orders with a single query
+    private static void readLineItems(Connection connection, List<Order> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Order> byId = new HashMap<>();
+        for (Order order : orders) {
+            byId.put(order.getOrderId(), order);
+        }
+        String sql = "SELECT " + LINE_COLUMNS + " FROM order_line_items WHERE order_id IN (" +
+                String.join(", ", Collections.nCopies(orders.size(), "?")) + ") ORDER BY order_id, order_line_item_id";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (Order order : orders) {
+                statement.setInt(index++, order.getOrderId());
+            }
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    OrderLineItem line = new OrderLineItem(row.getInt(1), row.getInt(2), row.getInt(3),
+                                                           row.getBigDecimal(4), row.getInt(5), row.getBigDecimal(6));
+                    byId.get(line.getOrderId()).getLineItems().add(line);
+                }
+            }
+        }
+    }
+
+    private static Order mapOrder(ResultSet row) throws SQLException {
+        Order order = new Order();
+        order.setOrderId(row.getInt(1));
+        order.setUserId(row.getInt(2));
+        order.setDate(row.getTimestamp(3).toLocalDateTime());
+        order.setAddress(row.getString(4));
+        order.setCity(row.getString(5));
+        order.setState(row.getString(6));
+        order.setZip(row.getString(7));
+        order.setShippingAmount(row.getBigDecimal(8));
+        return order;
+    }
+
+    private static Timestamp parseCursorDate(String value) {
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    private static int parseCursorInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    private static Order readProfileAddress(PreparedStatement statement, int userId) throws SQLException {
+        statement.setInt(1, userId);
+
+        try (ResultSet row = statement.executeQuery()) {
+            if (!row.next()) {
+                throw new IllegalStateException("There is no profile to ship the order to.");
+            }
+            Order order = new Order();
+            order.setAddress(row.getString(1));
+            order.setCity(row.getString(2));
+            order.setState(row.getString(3));
+            order.setZip(row.getString(4));
+            return order;
+        }
+    }
+
+    private static ShoppingCart readCart(PreparedStatement statement, int userId) throws SQLException {
+        statement.setInt(1, userId);
+
+        ShoppingCart cart = new ShoppingCart();
+        try (ResultSet row = statement.executeQuery()) {
+            while (row.next()) {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(MySqlProductDao.mapRow(row));
+                item.setQuantity(row.getInt(10));
+                cart.add(item);
+            }
+        }
+        return cart;
+    }
+
+    // the discount column holds cents, so the line's discount is rounded once, here
+    private static OrderLineItem toLineItem(int orderId, ShoppingCartItem item) {
+        BigDecimal price = item.getProduct().getPrice();
+        BigDecimal discount = price.multiply(BigDecimal.valueOf(item.getQuantity()))
+                                   .subtract(item.getLineTotal())
+                                   .setScale(2, RoundingMode.HALF_UP);
+
+        return new OrderLineItem(0, orderId, item.getProductId(), price, item.getQuantity(), discount);
+    }
+}
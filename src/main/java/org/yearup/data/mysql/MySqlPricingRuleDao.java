@@ -0,0 +1,159 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.yearup.data.PricingRuleDao;
+import org.yearup.data.PricingRulesChangedEvent;
+import org.yearup.models.PricingRule;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class MySqlPricingRuleDao extends MySqlDaoBase implements PricingRuleDao {
+
+    private static final String COLUMNS =
+            "rule_id, rule_type, product_id, category_id, min_quantity, free_quantity, discount_percent, active";
+
+    private final ApplicationEventPublisher eventPublisher;  // Tells the pricing engine to recompile after writes
+
+    public MySqlPricingRuleDao(DataSource dataSource) {
+        this(dataSource, event -> { });
+    }
+
+    @Autowired
+    public MySqlPricingRuleDao(DataSource dataSource, ApplicationEventPublisher eventPublisher) {
+        super(dataSource);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public List<PricingRule> getAll() {
+        return query("SELECT " + COLUMNS + " FROM pricing_rules ORDER BY rule_id");
+    }
+
+    @Override
+    public List<PricingRule> getActive() {
+        return query("SELECT " + COLUMNS + " FROM pricing_rules WHERE active = 1 ORDER BY rule_id");
+    }
+
+    @Override
+    public PricingRule getById(int ruleId) {
+        String sql = "SELECT " + COLUMNS + " FROM pricing_rules WHERE rule_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, ruleId);
+
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? mapRow(row) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public PricingRule create(PricingRule rule) {
+        String sql = "INSERT INTO pricing_rules (rule_type, product_id, category_id, min_quantity, free_quantity, " +
+                "discount_percent, active) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            setValues(statement, rule);
+            statement.executeUpdate();
+
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                keys.next();
+                rule.setRuleId(keys.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(rule.getRuleId()));
+        return rule;
+    }
+
+    @Override
+    public boolean update(int ruleId, PricingRule rule) {
+        String sql = "UPDATE pricing_rules SET rule_type = ?, product_id = ?, category_id = ?, min_quantity = ?, " +
+                "free_quantity = ?, discount_percent = ?, active = ? WHERE rule_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            setValues(statement, rule);
+            statement.setInt(8, ruleId);
+
+            if (statement.executeUpdate() == 0) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        rule.setRuleId(ruleId);
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(ruleId));
+        return true;
+    }
+
+    @Override
+    public boolean delete(int ruleId) {
+        String sql = "DELETE FROM pricing_rules WHERE rule_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, ruleId);
+
+            if (statement.executeUpdate() == 0) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(ruleId));
+        return true;
+    }
+
+    private List<PricingRule> query(String sql) {
+        List<PricingRule> rules = new ArrayList<>();
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet row = statement.executeQuery()) {
+            while (row.next()) {
+                rules.add(mapRow(row));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return rules;
+    }
+
+    private static void setValues(PreparedStatement statement, PricingRule rule) throws SQLException {
+        statement.setString(1, rule.getType().name());
+        statement.setObject(2, rule.getProductId(), Types.INTEGER);
+        statement.setObject(3, rule.getCategoryId(), Types.INTEGER);
+        statement.setInt(4, rule.getMinQuantity());
+        statement.setInt(5, rule.getFreeQuantity());
+        statement.setBigDecimal(6, rule.getDiscountPercent());
+        statement.setBoolean(7, rule.isActive());
+    }
+
+    private static PricingRule mapRow(ResultSet row) throws SQLException {
+        return new PricingRule(
+                row.getInt(1),
+                PricingRule.Type.valueOf(row.getString(2)),
+                row.getObject(3, Integer.class),
+                row.getObject(4, Integer.class),
+                row.getInt(5),
+                row.getInt(6),
+                row.getBigDecimal(7),
+                row.getBoolean(8));
+    }
+}
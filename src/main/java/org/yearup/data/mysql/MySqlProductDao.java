@@ -1,22 +1,71 @@
 package org.yearup.data.mysql;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.yearup.data.FeaturedProductSource;
+import org.yearup.data.KeysetCursor;
+import org.yearup.data.ProductChangedEvent;
 import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
 import org.yearup.data.ProductDao;
+import org.yearup.data.ProductFieldSource;
+import org.yearup.data.ProductSource;
+import org.yearup.data.StockLedger;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductRowPage;
+import org.yearup.models.ProductSearchCriteria;
+import org.yearup.models.ProductSort;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Component
-public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
+public class MySqlProductDao extends MySqlDaoBase
+        implements ProductDao, ProductSource, FeaturedProductSource, ProductFieldSource, StockLedger {
+
+    // Rows fetched per server round trip when streaming (needs useCursorFetch=true on the connection)
+    static final int STREAM_FETCH_SIZE = 500;
+
+    // Ids per IN (...) list when looking up many products at once
+    static final int IN_CHUNK_SIZE = 500;
+
+    // Every full-row query selects these columns in this order, so mapRow can read them by position
+    private static final String COLUMNS = "product_id, name, price, category_id, description, color, stock, featured, image_url";
+
+    // COLUMNS for queries that join products as "p"; mapRow reads the first nine columns of such a row
+    static final String JOINED_COLUMNS = "p.product_id, p.name, p.price, p.category_id, p.description, p.color, p.stock, " +
+            "p.featured, p.image_url";
+
+    private final ApplicationEventPublisher eventPublisher;  // Notifies in-memory read models after writes
+
+    // Products whose stock moved since the last stock event. Checkouts move stock far more often than anything
+    // else changes a product, and every ProductChangedEvent rebuilds the in-memory catalog and text index, so
+    // stock changes are published together, at most every catalog.stock-events-ms
+    private final Set<Integer> stockChanged = ConcurrentHashMap.newKeySet();
 
-    @Autowired
     public MySqlProductDao(DataSource dataSource) {
+        this(dataSource, event -> { });
+    }
+
+    @Autowired
+    public MySqlProductDao(DataSource dataSource, ApplicationEventPublisher eventPublisher) {
         super(dataSource);
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Every product, for the read models built from the whole table
+    @Override
+    public List<Product> loadAll() {
+        return search(null, null, null, null);
     }
 
     // Simplified search method with dynamic query construction based on parameters
@@ -24,60 +73,241 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
     public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color) {
         List<Product> products = new ArrayList<>();
 
-        // Start with a base query
-        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE 1=1");
+        // Start with a base query and dynamically append conditions based on the provided filters
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM products WHERE 1=1");
+        List<Object> parameters = new ArrayList<>();
+        appendFilters(sql, parameters, new ProductSearchCriteria(categoryId, minPrice, maxPrice, color));
 
-        // Dynamically append conditions based on the provided filters
-        if (categoryId != null) {
-            sql.append(" AND category_id = ?");
+        // Execute the query and map the results to product objects
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            setParameters(statement, parameters);
+
+            // Execute query and populate the product list
+            ResultSet row = statement.executeQuery();
+            while (row.next()) {
+                Product product = mapRow(row);
+                products.add(product);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
-        if (minPrice != null) {
-            sql.append(" AND price >= ?");
+
+        return products;
+    }
+
+    // Search one page at a time, ordered by the requested sort key and then product_id.
+    // The cursor carries the last row's key, so the next page seeks past it instead of using OFFSET.
+    @Override
+    public ProductPage searchPage(ProductSearchCriteria criteria) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = pageQuery(criteria, COLUMNS, parameters);
+
+        List<Product> products = new ArrayList<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            setParameters(statement, parameters);
+
+            ResultSet row = statement.executeQuery();
+            while (row.next()) {
+                products.add(mapRow(row));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
-        if (maxPrice != null) {
-            sql.append(" AND price <= ?");
+
+        String next = null;
+        if (products.size() > criteria.getLimit()) {
+            products.remove(products.size() - 1);
+            Product last = products.get(products.size() - 1);
+            ProductSort sort = criteria.getSort();
+            next = cursorAfter(sort, sortField(sort).valueOf(last), last.getProductId());
         }
-        if (color != null && !color.isEmpty()) {
-            sql.append(" AND color = ?");
+        return new ProductPage(products, next);
+    }
+
+    // The same keyset page as searchPage, reading only the selected columns. productId and the sort key
+    // are always selected because the next-page cursor is built from them.
+    @Override
+    public ProductRowPage searchPageFields(ProductSearchCriteria criteria, Set<ProductField> fields) {
+        ProductSort sort = criteria.getSort();
+        Set<ProductField> selected = EnumSet.copyOf(fields);
+        selected.add(ProductField.PRODUCT_ID);
+        selected.add(sortField(sort));
+
+        List<Object> parameters = new ArrayList<>();
+        String sql = pageQuery(criteria, columnList(selected), parameters);
+        List<Map<String, Object>> rows = queryRows(sql, parameters, selected);
+
+        String next = null;
+        if (rows.size() > criteria.getLimit()) {
+            rows.remove(rows.size() - 1);
+            Map<String, Object> last = rows.get(rows.size() - 1);
+            next = cursorAfter(sort, last.get(sortField(sort).getProperty()),
+                    (Integer) last.get(ProductField.PRODUCT_ID.getProperty()));
         }
+        return new ProductRowPage(rows, next);
+    }
 
-        // Execute the query and map the results to product objects
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql.toString());
+    // Filtered search reading only the selected columns (mapped by position), in the requested sort order
+    @Override
+    public List<Map<String, Object>> searchFields(ProductSearchCriteria criteria, Set<ProductField> fields) {
+        Set<ProductField> selected = EnumSet.copyOf(fields);
+        List<Object> parameters = new ArrayList<>();
+        String sql = orderedQuery(criteria, columnList(selected), parameters);
+        return queryRows(sql, parameters, selected);
+    }
+
+    // SELECT <columns> ... for one keyset page: the filters, the seek past the cursor, and one extra row
+    // (limit + 1) to find out whether there is a next page
+    private static String pageQuery(ProductSearchCriteria criteria, String columns, List<Object> parameters) {
+        ProductSort sort = criteria.getSort();
+        String sortColumn = sortColumn(sort);
 
-            // Set the values in the prepared statement based on the parameters
-            int index = 1;
-            if (categoryId != null) {
-                statement.setInt(index++, categoryId);
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM products WHERE 1=1");
+        appendFilters(sql, parameters, criteria);
+
+        if (criteria.getAfter() != null) {
+            String[] key = KeysetCursor.decode(criteria.getAfter(), 3);
+            if (!sort.name().equals(key[0])) {
+                throw new IllegalArgumentException("The cursor was issued for a different sort order.");
             }
-            if (minPrice != null) {
-                statement.setBigDecimal(index++, minPrice);
+
+            int lastId = parseCursorInt(key[2]);
+            if (sort == ProductSort.ID) {
+                sql.append(" AND product_id > ?");
+                parameters.add(lastId);
+            } else {
+                Object lastValue = sort == ProductSort.PRICE ? parseCursorDecimal(key[1]) : key[1];
+                sql.append(" AND (").append(sortColumn).append(" > ? OR (")
+                   .append(sortColumn).append(" = ? AND product_id > ?))");
+                parameters.add(lastValue);
+                parameters.add(lastValue);
+                parameters.add(lastId);
             }
-            if (maxPrice != null) {
-                statement.setBigDecimal(index++, maxPrice);
+        }
+
+        sql.append(" ORDER BY ").append(sortColumn);
+        if (sort != ProductSort.ID) {
+            sql.append(", product_id");
+        }
+        sql.append(" LIMIT ?");
+        parameters.add(criteria.getLimit() + 1);
+        return sql.toString();
+    }
+
+    // SELECT <columns> ... with the filters, ordered by the sort key and then product_id
+    private static String orderedQuery(ProductSearchCriteria criteria, String columns, List<Object> parameters) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM products WHERE 1=1");
+        appendFilters(sql, parameters, criteria);
+        sql.append(" ORDER BY ").append(sortColumn(criteria.getSort()));
+        if (criteria.getSort() != ProductSort.ID) {
+            sql.append(", product_id");
+        }
+        return sql.toString();
+    }
+
+    private List<Map<String, Object>> queryRows(String sql, List<Object> parameters, Set<ProductField> fields) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            setParameters(statement, parameters);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    int index = 1;
+                    for (ProductField field : fields) {
+                        values.put(field.getProperty(), readColumn(row, index++, field));
+                    }
+                    rows.add(values);
+                }
             }
-            if (color != null && !color.isEmpty()) {
-                statement.setString(index++, color);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return rows;
+    }
+
+    // Hand each matching row to the consumer as it is read, so large results are never held in memory.
+    // The statement is forward-only and read-only with a bounded fetch size, so the driver keeps at most
+    // STREAM_FETCH_SIZE rows buffered at a time.
+    @Override
+    public void stream(ProductSearchCriteria criteria, Consumer<Product> consumer) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = orderedQuery(criteria, COLUMNS, parameters);
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            setParameters(statement, parameters);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    consumer.accept(mapRow(row));
+                }
             }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Count the matching products per category, color and price range with one grouped query
+    @Override
+    public ProductFacets getFacets(ProductSearchCriteria criteria) {
+        StringBuilder sql = new StringBuilder("SELECT category_id, color, ")
+                .append(priceBucketExpression())
+                .append(" AS price_bucket, COUNT(*) AS product_count FROM products WHERE 1=1");
+        List<Object> parameters = new ArrayList<>();
+        appendFilters(sql, parameters, criteria);
+        sql.append(" GROUP BY category_id, color, price_bucket");
+
+        ProductFacets facets = new ProductFacets();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            setParameters(statement, parameters);
 
-            // Execute query and populate the product list
             ResultSet row = statement.executeQuery();
             while (row.next()) {
-                Product product = mapRow(row);
-                products.add(product);
+                facets.add(row.getInt(1), row.getString(2), row.getInt(3), row.getInt(4));
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
 
-        return products;
+        return facets;
+    }
+
+    // Full catalog dump for feed jobs: every product joined with its category name, read from a
+    // forward-only cursor so the export runs in constant memory
+    @Override
+    public void exportWithCategories(BiConsumer<Product, String> consumer) {
+        // mapRow reads the product part; the category name comes last
+        String sql = "SELECT " + JOINED_COLUMNS + ", c.name AS category_name " +
+                "FROM products p JOIN categories c ON c.category_id = p.category_id " +
+                "ORDER BY p.product_id";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    consumer.accept(mapRow(row), row.getString(10));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     // Retrieve a list of products by categoryId
     @Override
     public List<Product> listByCategoryId(int categoryId) {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products WHERE category_id = ?";
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE category_id = ?";
 
         try (Connection connection = getConnection()) {
             PreparedStatement statement = connection.prepareStatement(sql);
@@ -98,7 +328,7 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
     // Retrieve a product by its ID
     @Override
     public Product getById(int productId) {
-        String sql = "SELECT * FROM products WHERE product_id = ?";
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE product_id = ?";
         try (Connection connection = getConnection()) {
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, productId);
@@ -113,6 +343,63 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         return null;
     }
 
+    // Retrieve the products flagged as featured, in id order
+    @Override
+    public List<Product> listFeatured() {
+        List<Product> products = new ArrayList<>();
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE featured = 1 ORDER BY product_id";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet row = statement.executeQuery()) {
+            while (row.next()) {
+                products.add(mapRow(row));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return products;
+    }
+
+    // Look up many products with one IN (...) query per IN_CHUNK_SIZE ids, on a single connection, instead
+    // of a round trip per id. Products come back once each, in the order their ids were first given;
+    // ids that do not exist are left out.
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds) {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        Map<Integer, Product> found = new HashMap<>();
+
+        try (Connection connection = getConnection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                String sql = "SELECT " + COLUMNS + " FROM products WHERE product_id IN (" +
+                        String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    setParameters(statement, chunk);
+                    try (ResultSet row = statement.executeQuery()) {
+                        while (row.next()) {
+                            Product product = mapRow(row);
+                            found.put(product.getProductId(), product);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        List<Product> products = new ArrayList<>(found.size());
+        for (Integer id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
     // Create a new product and return it
     @Override
     public Product create(Product product) {
@@ -138,7 +425,9 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
                 if (generatedKeys.next()) {
                     // Get the generated product ID and fetch the product
                     int productId = generatedKeys.getInt(1);
-                    return getById(productId);
+                    Product created = getById(productId);
+                    eventPublisher.publishEvent(ProductChangedEvent.created(List.of(created)));
+                    return created;
                 }
             }
         } catch (SQLException e) {
@@ -147,7 +436,65 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         return null;
     }
 
-    // Update an existing product
+    // Insert many products in one transaction and publish one CREATED event for all of them
+    @Override
+    public List<Product> createAll(List<Product> products) {
+        insertAll(products);
+        eventPublisher.publishEvent(ProductChangedEvent.created(products));
+        return products;
+    }
+
+    // Insert many products in one transaction using a JDBC batch (sent as multi-row INSERTs when
+    // rewriteBatchedStatements is on). Generated ids are copied onto the given products, so nothing
+    // is re-read. Either every product is stored or, on any error, none are. Publishes no event.
+    @Override
+    public List<Product> insertAll(List<Product> products) {
+        String sql = "INSERT INTO products(name, price, category_id, description, color, image_url, stock, featured) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = getConnection()) {
+            JdbcTransaction transaction = JdbcTransaction.begin(connection);
+            try (PreparedStatement statement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (Product product : products) {
+                    // Match DECIMAL(10, 2) so the products handed to listeners equal the stored rows
+                    product.setPrice(product.getPrice().setScale(2, RoundingMode.HALF_UP));
+
+                    statement.setString(1, product.getName());
+                    statement.setBigDecimal(2, product.getPrice());
+                    statement.setInt(3, product.getCategoryId());
+                    statement.setString(4, product.getDescription());
+                    statement.setString(5, product.getColor());
+                    statement.setString(6, product.getImageUrl());
+                    statement.setInt(7, product.getStock());
+                    statement.setBoolean(8, product.isFeatured());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                ResultSet generatedKeys = statement.getGeneratedKeys();
+                int index = 0;
+                while (generatedKeys.next() && index < products.size()) {
+                    products.get(index++).setProductId(generatedKeys.getInt(1));
+                }
+                if (index != products.size()) {
+                    throw new SQLException("Expected " + products.size() + " generated keys but received " + index);
+                }
+
+                transaction.commit();
+            } catch (SQLException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.end();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return products;
+    }
+
+    // Update an existing product. The stock column is left alone: it moves with every checkout and hot-product
+    // lease, so writing back a value read earlier would undo those - use adjustStock instead
     @Override
     public void update(int productId, Product product) {
         // Check if the product exists
@@ -158,7 +505,7 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
 
         // SQL query to update the product fields
         String sql = "UPDATE products SET name = ?, price = ?, category_id = ?, description = ?, color = ?, " +
-                "image_url = ?, stock = ?, featured = ? WHERE product_id = ?";
+                "image_url = ?, featured = ? WHERE product_id = ?";
 
         try (Connection connection = getConnection()) {
             PreparedStatement statement = connection.prepareStatement(sql);
@@ -168,9 +515,8 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
             statement.setString(4, product.getDescription());
             statement.setString(5, product.getColor());
             statement.setString(6, product.getImageUrl());
-            statement.setInt(7, product.getStock());
-            statement.setBoolean(8, product.isFeatured());
-            statement.setInt(9, productId);
+            statement.setBoolean(7, product.isFeatured());
+            statement.setInt(8, productId);
 
             int rowsAffected = statement.executeUpdate();
             if (rowsAffected == 0) {
@@ -179,6 +525,9 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         } catch (SQLException e) {
             throw new RuntimeException("Error updating product: " + e.getMessage(), e);
         }
+
+        // Re-read so listeners see the values exactly as MySQL stored them
+        eventPublisher.publishEvent(ProductChangedEvent.updated(getById(productId)));
     }
 
     // Delete a product by its ID
@@ -189,23 +538,224 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         try (Connection connection = getConnection()) {
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, productId);
-            statement.executeUpdate();
+            int rowsAffected = statement.executeUpdate();
+            if (rowsAffected > 0) {
+                eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Restock (positive delta) or write off units (negative) relative to the current stock, so concurrent
+    // checkouts and leased units are kept; false when there is no such product or the stock would go negative
+    @Override
+    public boolean adjustStock(int productId, int delta) {
+        String sql = "UPDATE products SET stock = stock + ? WHERE product_id = ? AND stock + ? >= 0";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, delta);
+            statement.setInt(2, productId);
+            statement.setInt(3, delta);
+            if (statement.executeUpdate() == 0) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        eventPublisher.publishEvent(ProductChangedEvent.updated(getById(productId)));
+        return true;
+    }
+
+    // Take quantity units off the product's stock, all or nothing. The check and the decrement are one
+    // conditional UPDATE, so two checkouts can never both take the last unit; false when too few are left.
+    @Override
+    public boolean takeStock(int productId, int quantity) {
+        String sql = "UPDATE products SET stock = stock - ? WHERE product_id = ? AND stock >= ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, quantity);
+            statement.setInt(2, productId);
+            statement.setInt(3, quantity);
+            if (statement.executeUpdate() == 0) {
+                return false;
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        stockChanged.add(productId);
+        return true;
+    }
+
+    // Put units back on the stock of many products (productId -> quantity) with one JDBC batch
+    @Override
+    public void returnStock(Map<Integer, Integer> quantities) {
+        String sql = "UPDATE products SET stock = stock + ? WHERE product_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+                statement.setInt(1, line.getValue());
+                statement.setInt(2, line.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        stockChanged.addAll(quantities.keySet());
+    }
+
+    // For stock written by other DAOs, e.g. inside a checkout transaction; call once it has committed
+    void stockChanged(Collection<Integer> productIds) {
+        stockChanged.addAll(productIds);
+    }
+
+    // One UPDATED event with the current rows of every product whose stock moved since the last run
+    @Scheduled(fixedDelayString = "${catalog.stock-events-ms:1000}")
+    public void publishStockChanges() {
+        List<Integer> productIds = new ArrayList<>();
+        for (Iterator<Integer> changed = stockChanged.iterator(); changed.hasNext(); ) {
+            productIds.add(changed.next());
+            changed.remove();
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+
+        List<Product> products;
+        try {
+            products = getByIds(productIds);
+        } catch (RuntimeException e) {
+            stockChanged.addAll(productIds);  // the next run tries again
+            throw e;
+        }
+        if (!products.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(products));
+        }
+    }
+
+    // Append the WHERE conditions shared by every product search
+    private static void appendFilters(StringBuilder sql, List<Object> parameters, ProductSearchCriteria criteria) {
+        if (criteria.getCategoryId() != null) {
+            sql.append(" AND category_id = ?");
+            parameters.add(criteria.getCategoryId());
+        }
+        if (criteria.getMinPrice() != null) {
+            sql.append(" AND price >= ?");
+            parameters.add(criteria.getMinPrice());
+        }
+        if (criteria.getMaxPrice() != null) {
+            sql.append(" AND price <= ?");
+            parameters.add(criteria.getMaxPrice());
+        }
+        if (criteria.getColor() != null && !criteria.getColor().isEmpty()) {
+            sql.append(" AND color = ?");
+            parameters.add(criteria.getColor());
+        }
+    }
+
+    // CASE WHEN price < 25 THEN 0 WHEN price < 50 THEN 1 ... ELSE n END, using the facet price ranges
+    private static String priceBucketExpression() {
+        StringBuilder expression = new StringBuilder("CASE");
+        for (int bucket = 1; bucket < ProductFacets.PRICE_BOUNDARIES.length; bucket++) {
+            expression.append(" WHEN price < ").append(ProductFacets.PRICE_BOUNDARIES[bucket].toPlainString())
+                      .append(" THEN ").append(bucket - 1);
+        }
+        return expression.append(" ELSE ").append(ProductFacets.PRICE_BOUNDARIES.length - 1).append(" END").toString();
+    }
+
+    private static void setParameters(PreparedStatement statement, List<?> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    private static ProductField sortField(ProductSort sort) {
+        switch (sort) {
+            case PRICE:
+                return ProductField.PRICE;
+            case NAME:
+                return ProductField.NAME;
+            default:
+                return ProductField.PRODUCT_ID;
+        }
+    }
+
+    private static String sortColumn(ProductSort sort) {
+        return sortField(sort).getColumn();
+    }
+
+    // Comma separated columns in the set's iteration order, which is the order queryRows reads them in
+    private static String columnList(Set<ProductField> fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        for (ProductField field : fields) {
+            columns.add(field.getColumn());
+        }
+        return columns.toString();
+    }
+
+    private static String cursorAfter(ProductSort sort, Object sortValue, int productId) {
+        String value;
+        switch (sort) {
+            case PRICE:
+                value = ((BigDecimal) sortValue).toPlainString();
+                break;
+            case NAME:
+                value = (String) sortValue;
+                break;
+            default:
+                value = "";
+        }
+        return KeysetCursor.encode(sort.name(), value, String.valueOf(productId));
+    }
+
+    private static int parseCursorInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    private static BigDecimal parseCursorDecimal(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    // Read one selected column by position, with the JDBC type of its field
+    private static Object readColumn(ResultSet row, int index, ProductField field) throws SQLException {
+        switch (field) {
+            case PRODUCT_ID:
+            case CATEGORY_ID:
+            case STOCK:
+                return row.getInt(index);
+            case PRICE:
+                return row.getBigDecimal(index);
+            case FEATURED:
+                return row.getBoolean(index);
+            default:
+                return row.getString(index);
+        }
     }
 
-    // Map a ResultSet row to a Product object
+    // Map a row selected with COLUMNS to a Product object; columns are read by position, not by name
     protected static Product mapRow(ResultSet row) throws SQLException {
-        int productId = row.getInt("product_id");
-        String name = row.getString("name");
-        BigDecimal price = row.getBigDecimal("price");
-        int categoryId = row.getInt("category_id");
-        String description = row.getString("description");
-        String color = row.getString("color");
-        int stock = row.getInt("stock");
-        boolean isFeatured = row.getBoolean("featured");
-        String imageUrl = row.getString("image_url");
+        int productId = row.getInt(1);
+        String name = row.getString(2);
+        BigDecimal price = row.getBigDecimal(3);
+        int categoryId = row.getInt(4);
+        String description = row.getString(5);
+        String color = row.getString(6);
+        int stock = row.getInt(7);
+        boolean isFeatured = row.getBoolean(8);
+        String imageUrl = row.getString(9);
 
         return new Product(productId, name, price, categoryId, description, color, stock, isFeatured, imageUrl);
     }
@@ -0,0 +1,227 @@
+package org.yearup.data.mysql;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.SalesReportDao;
+import org.yearup.models.CategoryRevenue;
+import org.yearup.models.ProductSales;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    The sales rollups behind /reports. sales_by_product and sales_by_category_day hold running totals,
+    so a report reads a few pre-aggregated rows however many orders there are; sales_rollup_orders
+    records which orders the totals include.
+
+    addOrder and the rebuild share the aggregate queries: addOrder runs them for one order's line items
+    and adds the result to the live tables, the rebuild runs them over the whole history into copies of
+    the tables (sales_..._rebuild) and then swaps the copies in with one RENAME TABLE. The rollup tables
+    carry no foreign keys for that reason - CREATE TABLE ... LIKE does not copy them.
+ */
+@Component
+public class MySqlSalesReportDao extends MySqlDaoBase implements SalesReportDao {
+    private static final String LINE_REVENUE = "SUM(li.sales_price * li.quantity - li.discount)";
+
+    // %1$s is the table written, %2$s the line item filter: one order, or the orders claimed in a rebuild
+    private static final String PRODUCT_ROLLUP = "INSERT INTO %1$s (product_id, units, revenue) " +
+            "SELECT * FROM (SELECT li.product_id, SUM(li.quantity) AS sold, " + LINE_REVENUE + " AS earned " +
+            "FROM order_line_items li %2$s GROUP BY li.product_id) AS s " +
+            "ON DUPLICATE KEY UPDATE units = %1$s.units + s.sold, revenue = %1$s.revenue + s.earned";
+    private static final String CATEGORY_ROLLUP = "INSERT INTO %1$s (sales_date, category_id, units, revenue) " +
+            "SELECT * FROM (SELECT DATE(o.date) AS sales_day, p.category_id, SUM(li.quantity) AS sold, " + LINE_REVENUE + " AS earned " +
+            "FROM order_line_items li JOIN orders o ON o.order_id = li.order_id JOIN products p ON p.product_id = li.product_id " +
+            "%2$s GROUP BY DATE(o.date), p.category_id) AS s " +
+            "ON DUPLICATE KEY UPDATE units = %1$s.units + s.sold, revenue = %1$s.revenue + s.earned";
+    private static final String ONE_ORDER = "WHERE li.order_id = ?";
+    private static final String CLAIMED = "JOIN sales_rollup_orders_rebuild c ON c.order_id = li.order_id";
+
+    private static final String CLAIMS = "sales_rollup_orders";
+    private static final String BY_CATEGORY = "sales_by_category_day";
+    private static final String BY_PRODUCT = "sales_by_product";
+    private static final String[] TABLES = {CLAIMS, BY_CATEGORY, BY_PRODUCT};
+
+    public MySqlSalesReportDao(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    // walks ix_sales_by_product_units backwards, so it reads limit rows and no more
+    @Override
+    public List<ProductSales> getTopProducts(int limit) {
+        String sql = "SELECT s.product_id, p.name, s.units, s.revenue " +
+                "FROM sales_by_product s JOIN products p ON p.product_id = s.product_id " +
+                "ORDER BY s.units DESC, s.product_id DESC LIMIT ?";
+
+        List<ProductSales> top = new ArrayList<>();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, limit);
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    top.add(new ProductSales(row.getInt(1), row.getString(2), row.getInt(3), row.getBigDecimal(4)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return top;
+    }
+
+    // a primary key range scan: at most one row per day and category in the range
+    @Override
+    public List<CategoryRevenue> getRevenue(LocalDate from, LocalDate to, Integer categoryId) {
+        String sql = "SELECT r.sales_date, r.category_id, c.name, r.units, r.revenue " +
+                "FROM sales_by_category_day r JOIN categories c ON c.category_id = r.category_id " +
+                "WHERE r.sales_date BETWEEN ? AND ?" +
+                (categoryId != null ? " AND r.category_id = ?" : "") +
+                " ORDER BY r.sales_date, r.category_id";
+
+        List<CategoryRevenue> revenue = new ArrayList<>();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setDate(1, Date.valueOf(from));
+            statement.setDate(2, Date.valueOf(to));
+            if (categoryId != null) {
+                statement.setInt(3, categoryId);
+            }
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    revenue.add(new CategoryRevenue(row.getDate(1).toLocalDate(), row.getInt(2), row.getString(3),
+                                                    row.getInt(4), row.getBigDecimal(5)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return revenue;
+    }
+
+    // One transaction: claim the order in sales_rollup_orders, then add its lines to both rollups. The claim
+    // makes a retry by the order pipeline a no-op instead of counting the order twice.
+    @Override
+    public boolean addOrder(int orderId) {
+        String claimSql = "INSERT IGNORE INTO sales_rollup_orders (order_id) VALUES (?)";
+
+        try (Connection connection = getConnection()) {
+            JdbcTransaction transaction = JdbcTransaction.begin(connection);
+            try (PreparedStatement claimStatement = connection.prepareStatement(claimSql);
+                 PreparedStatement categoryStatement = connection.prepareStatement(String.format(CATEGORY_ROLLUP, BY_CATEGORY, ONE_ORDER));
+                 PreparedStatement productStatement = connection.prepareStatement(String.format(PRODUCT_ROLLUP, BY_PRODUCT, ONE_ORDER))) {
+                claimStatement.setInt(1, orderId);
+                if (claimStatement.executeUpdate() == 0) {
+                    transaction.rollback();
+                    return false;
+                }
+
+                categoryStatement.setInt(1, orderId);
+                categoryStatement.executeUpdate();
+                productStatement.setInt(1, orderId);
+                productStatement.executeUpdate();
+                transaction.commit();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.end();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Step one, while addOrder carries on against the live tables: claim every order up to the highest order id
+    // in empty copies of the tables, then sum the line items of exactly the claimed orders into them. Each
+    // statement commits on its own under READ COMMITTED, where INSERT ... SELECT reads the order tables as a
+    // snapshot instead of locking them, so a checkout running meanwhile never waits for the rebuild.
+    @Override
+    public int prepareRebuild() {
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            try (Statement statement = connection.createStatement();
+                 PreparedStatement claimStatement = connection.prepareStatement(
+                         "INSERT INTO sales_rollup_orders_rebuild (order_id) SELECT order_id FROM orders WHERE order_id <= ?")) {
+                // leftovers of a rebuild that failed part way
+                for (String table : TABLES) {
+                    statement.executeUpdate("DROP TABLE IF EXISTS " + table + "_rebuild, " + table + "_retired");
+                    statement.executeUpdate("CREATE TABLE " + table + "_rebuild LIKE " + table);
+                }
+
+                int watermark;
+                try (ResultSet row = statement.executeQuery("SELECT COALESCE(MAX(order_id), 0) FROM orders")) {
+                    row.next();
+                    watermark = row.getInt(1);
+                }
+                claimStatement.setInt(1, watermark);
+                int orders = claimStatement.executeUpdate();
+                statement.executeUpdate(String.format(CATEGORY_ROLLUP, BY_CATEGORY + "_rebuild", CLAIMED));
+                statement.executeUpdate(String.format(PRODUCT_ROLLUP, BY_PRODUCT + "_rebuild", CLAIMED));
+                return orders;
+            } finally {
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Step two, while addOrder is held off: copy in the orders addOrder counted in the live tables that the
+    // copies lack - those placed past the watermark, or still uncommitted below it when step one read - then
+    // swap the copies in with one RENAME TABLE, which readers see as a single step, and drop the old tables.
+    @Override
+    public int finishRebuild() {
+        String missingSql = "SELECT l.order_id FROM sales_rollup_orders l " +
+                "LEFT JOIN sales_rollup_orders_rebuild r ON r.order_id = l.order_id WHERE r.order_id IS NULL";
+        String claimSql = "INSERT INTO sales_rollup_orders_rebuild (order_id) VALUES (?)";
+
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement();
+                 PreparedStatement claimStatement = connection.prepareStatement(claimSql);
+                 PreparedStatement categoryStatement = connection.prepareStatement(String.format(CATEGORY_ROLLUP, BY_CATEGORY + "_rebuild", ONE_ORDER));
+                 PreparedStatement productStatement = connection.prepareStatement(String.format(PRODUCT_ROLLUP, BY_PRODUCT + "_rebuild", ONE_ORDER))) {
+                List<Integer> missing = new ArrayList<>();
+                try (ResultSet row = statement.executeQuery(missingSql)) {
+                    while (row.next()) {
+                        missing.add(row.getInt(1));
+                    }
+                }
+                for (int orderId : missing) {
+                    claimStatement.setInt(1, orderId);
+                    claimStatement.addBatch();
+                    categoryStatement.setInt(1, orderId);
+                    categoryStatement.addBatch();
+                    productStatement.setInt(1, orderId);
+                    productStatement.addBatch();
+                }
+                if (!missing.isEmpty()) {
+                    claimStatement.executeBatch();
+                    categoryStatement.executeBatch();
+                    productStatement.executeBatch();
+                }
+
+                List<String> renames = new ArrayList<>();
+                List<String> retired = new ArrayList<>();
+                for (String table : TABLES) {
+                    renames.add(table + " TO " + table + "_retired");
+                    renames.add(table + "_rebuild TO " + table);
+                    retired.add(table + "_retired");
+                }
+                statement.executeUpdate("RENAME TABLE " + String.join(", ", renames));
+                statement.executeUpdate("DROP TABLE " + String.join(", ", retired));
+                return missing.size();
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.yearup.data.mysql;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.CartStore;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+@Component
+public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDao, CartStore {
+
+    public MySqlShoppingCartDao(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    // Load the whole cart, products included, with a single JOIN - one round trip however many items it holds
+    @Override
+    public ShoppingCart getByUserId(int userId) {
+        String sql = "SELECT " + MySqlProductDao.JOINED_COLUMNS + ", sc.quantity " +
+                "FROM shopping_cart sc JOIN products p ON p.product_id = sc.product_id " +
+                "WHERE sc.user_id = ?";
+
+        ShoppingCart cart = new ShoppingCart();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, userId);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    Product product = MySqlProductDao.mapRow(row);
+
+                    ShoppingCartItem item = new ShoppingCartItem();
+                    item.setProduct(product);
+                    item.setQuantity(row.getInt(10));
+                    cart.add(item);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return cart;
+    }
+
+    // Put one more of the product in the cart - a new row, or one more on the existing row
+    @Override
+    public void addProduct(int userId, int productId) {
+        String sql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, 1) " +
+                "ON DUPLICATE KEY UPDATE quantity = quantity + 1";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, userId);
+            statement.setInt(2, productId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Set the quantity of a product already in the cart; zero or less takes it out.
+    // Returns false when the product was not in the cart.
+    @Override
+    public boolean updateQuantity(int userId, int productId, int quantity) {
+        String sql = quantity > 0
+                ? "UPDATE shopping_cart SET quantity = ? WHERE user_id = ? AND product_id = ?"
+                : "DELETE FROM shopping_cart WHERE user_id = ? AND product_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (quantity > 0) {
+                statement.setInt(index++, quantity);
+            }
+            statement.setInt(index++, userId);
+            statement.setInt(index, productId);
+
+            // MySQL reports matched rows here only with useAffectedRows=false, the Connector/J default
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Apply many quantity changes in one transaction: a single batched upsert adds each delta to the line
+    // (creating it if needed), then any line at zero or below is removed
+    @Override
+    public void addQuantities(int userId, Map<Integer, Integer> deltas) {
+        // VALUES(quantity) is the delta; unlike a second placeholder it lets the driver send the batch as one multi-row INSERT
+        String upsertSql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+        String cleanupSql = "DELETE FROM shopping_cart WHERE user_id = ? AND quantity <= 0";
+
+        try (Connection connection = getConnection()) {
+            JdbcTransaction transaction = JdbcTransaction.begin(connection);
+            try (PreparedStatement upsert = connection.prepareStatement(upsertSql);
+                 PreparedStatement cleanup = connection.prepareStatement(cleanupSql)) {
+                for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+                    upsert.setInt(1, userId);
+                    upsert.setInt(2, delta.getKey());
+                    upsert.setInt(3, delta.getValue());
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+
+                cleanup.setInt(1, userId);
+                cleanup.executeUpdate();
+                transaction.commit();
+            } catch (SQLException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.end();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Write many cart changes in one transaction: quantities are userId -> (productId -> quantity) and a
+    // quantity of zero deletes the line. Every upsert goes out as one batch and every delete as another.
+    // All or nothing: one line that cannot be written, e.g. for a deleted product, fails the whole call.
+    @Override
+    public void saveQuantities(Map<Integer, Map<Integer, Integer>> quantities) {
+        String upsertSql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+        String deleteSql = "DELETE FROM shopping_cart WHERE user_id = ? AND product_id = ?";
+
+        try (Connection connection = getConnection()) {
+            JdbcTransaction transaction = JdbcTransaction.begin(connection);
+            try (PreparedStatement upsert = connection.prepareStatement(upsertSql);
+                 PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+                for (Map.Entry<Integer, Map<Integer, Integer>> cart : quantities.entrySet()) {
+                    for (Map.Entry<Integer, Integer> line : cart.getValue().entrySet()) {
+                        if (line.getValue() > 0) {
+                            upsert.setInt(1, cart.getKey());
+                            upsert.setInt(2, line.getKey());
+                            upsert.setInt(3, line.getValue());
+                            upsert.addBatch();
+                        } else {
+                            delete.setInt(1, cart.getKey());
+                            delete.setInt(2, line.getKey());
+                            delete.addBatch();
+                        }
+                    }
+                }
+                upsert.executeBatch();
+                delete.executeBatch();
+                transaction.commit();
+            } catch (SQLException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.end();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Remove every item from the user's cart
+    @Override
+    public void clear(int userId) {
+        String sql = "DELETE FROM shopping_cart WHERE user_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, userId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResult
+{
+    private int imported;
+    private List<Integer> productIds = new ArrayList<>();  // generated ids, in input order
+    private List<RowError> errors = new ArrayList<>();
+    private List<String> warnings = new ArrayList<>();  // problems after rows were stored; the rows stay imported
+
+    public void addImported(int productId)
+    {
+        imported++;
+        productIds.add(productId);
+    }
+
+    public void addError(int line, String message)
+    {
+        errors.add(new RowError(line, message));
+    }
+
+    public void addWarning(String message)
+    {
+        warnings.add(message);
+    }
+
+    public int getImported()
+    {
+        return imported;
+    }
+
+    public void setImported(int imported)
+    {
+        this.imported = imported;
+    }
+
+    public List<Integer> getProductIds()
+    {
+        return productIds;
+    }
+
+    public void setProductIds(List<Integer> productIds)
+    {
+        this.productIds = productIds;
+    }
+
+    public List<RowError> getErrors()
+    {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors)
+    {
+        this.errors = errors;
+    }
+
+    public List<String> getWarnings()
+    {
+        return warnings;
+    }
+
+    public void setWarnings(List<String> warnings)
+    {
+        this.warnings = warnings;
+    }
+
+    public static class RowError
+    {
+        private int line;
+        private String message;
+
+        public RowError()
+        {
+        }
+
+        public RowError(int line, String message)
+        {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine()
+        {
+            return line;
+        }
+
+        public void setLine(int line)
+        {
+            this.line = line;
+        }
+
+        public String getMessage()
+        {
+            return message;
+        }
+
+        public void setMessage(String message)
+        {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.yearup.models;
+
+// one line of a PATCH /cart request: add (or, when negative, take away) quantity of a product
+public class CartDelta
+{
+    private int productId;
+    private int quantity;
+
+    public CartDelta()
+    {
+    }
+
+    public CartDelta(int productId, int quantity)
+    {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public int getQuantity()
+    {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity)
+    {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,77 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// What one category sold on one day, for the revenue report
+public class CategoryRevenue
+{
+    private LocalDate date;
+    private int categoryId;
+    private String categoryName;
+    private int units;
+    private BigDecimal revenue;  // after discounts
+
+    public CategoryRevenue()
+    {
+    }
+
+    public CategoryRevenue(LocalDate date, int categoryId, String categoryName, int units, BigDecimal revenue)
+    {
+        this.date = date;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    public LocalDate getDate()
+    {
+        return date;
+    }
+
+    public void setDate(LocalDate date)
+    {
+        this.date = date;
+    }
+
+    public int getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId)
+    {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryName()
+    {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName)
+    {
+        this.categoryName = categoryName;
+    }
+
+    public int getUnits()
+    {
+        return units;
+    }
+
+    public void setUnits(int units)
+    {
+        this.units = units;
+    }
+
+    public BigDecimal getRevenue()
+    {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue)
+    {
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,88 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+// What a category landing page shows about the category's products
+public class CategorySummary
+{
+    private int categoryId;
+    private String name;
+    private int productCount;
+    private int inStockCount;
+    private BigDecimal minPrice;  // null when the category has no products
+    private BigDecimal maxPrice;
+
+    public CategorySummary()
+    {
+    }
+
+    public CategorySummary(int categoryId, String name, int productCount, int inStockCount, BigDecimal minPrice, BigDecimal maxPrice)
+    {
+        this.categoryId = categoryId;
+        this.name = name;
+        this.productCount = productCount;
+        this.inStockCount = inStockCount;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public int getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId)
+    {
+        this.categoryId = categoryId;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public int getProductCount()
+    {
+        return productCount;
+    }
+
+    public void setProductCount(int productCount)
+    {
+        this.productCount = productCount;
+    }
+
+    public int getInStockCount()
+    {
+        return inStockCount;
+    }
+
+    public void setInStockCount(int inStockCount)
+    {
+        this.inStockCount = inStockCount;
+    }
+
+    public BigDecimal getMinPrice()
+    {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice)
+    {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice()
+    {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice)
+    {
+        this.maxPrice = maxPrice;
+    }
+}
@@ -0,0 +1,115 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+/*
+    A decimal held as a long unscaled value and a scale - the same representation as BigDecimal, but
+    without the BigInteger and object churn - for totalling carts and orders. Results follow the
+    BigDecimal rules exactly (multiply adds the scales, add and subtract keep the larger scale), so
+    toBigDecimal() gives the value AND scale the BigDecimal arithmetic would have.
+
+    Nothing is ever rounded. Any operation whose result does not fit in a long throws
+    ArithmeticException, and callers fall back to BigDecimal for that input.
+ */
+public final class Money
+{
+    public static final Money ZERO = new Money(0, 0);
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private final long unscaled;
+    private final int scale;
+
+    private Money(long unscaled, int scale)
+    {
+        this.unscaled = unscaled;
+        this.scale = scale;
+    }
+
+    public static Money of(BigDecimal value)
+    {
+        if (value.scale() < 0)
+        {
+            throw new ArithmeticException("Negative scales are not supported: " + value);
+        }
+        return new Money(value.unscaledValue().longValueExact(), value.scale());
+    }
+
+    public Money times(int factor)
+    {
+        return new Money(Math.multiplyExact(unscaled, factor), scale);
+    }
+
+    public Money times(Money factor)
+    {
+        return new Money(Math.multiplyExact(unscaled, factor.unscaled), scaleOfProduct(factor));
+    }
+
+    public Money plus(Money other)
+    {
+        int resultScale = Math.max(scale, other.scale);
+        return new Money(Math.addExact(rescale(resultScale), other.rescale(resultScale)), resultScale);
+    }
+
+    public Money minus(Money other)
+    {
+        int resultScale = Math.max(scale, other.scale);
+        return new Money(Math.subtractExact(rescale(resultScale), other.rescale(resultScale)), resultScale);
+    }
+
+    public BigDecimal toBigDecimal()
+    {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    // the unscaled value at a larger scale, e.g. 12.5 (125, 1) at scale 2 is 1250
+    private long rescale(int newScale)
+    {
+        int shift = newScale - scale;
+        if (shift == 0)
+        {
+            return unscaled;
+        }
+        if (shift >= POWERS_OF_TEN.length)
+        {
+            throw new ArithmeticException("Scale difference too large: " + shift);
+        }
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[shift]);
+    }
+
+    private int scaleOfProduct(Money factor)
+    {
+        int result = scale + factor.scale;
+        if (result >= POWERS_OF_TEN.length)
+        {
+            throw new ArithmeticException("Scale too large: " + result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money money = (Money) o;
+        return unscaled == money.unscaled && scale == money.scale;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(unscaled) * 31 + scale;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toBigDecimal().toPlainString();
+    }
+}
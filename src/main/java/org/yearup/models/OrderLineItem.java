@@ -0,0 +1,93 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+public class OrderLineItem
+{
+    private int orderLineItemId;
+    private int orderId;
+    private int productId;
+    private BigDecimal salesPrice;  // the unit price when the order was placed
+    private int quantity;
+    private BigDecimal discount = BigDecimal.ZERO;  // amount taken off the whole line
+
+    public OrderLineItem()
+    {
+    }
+
+    public OrderLineItem(int orderLineItemId, int orderId, int productId, BigDecimal salesPrice, int quantity, BigDecimal discount)
+    {
+        this.orderLineItemId = orderLineItemId;
+        this.orderId = orderId;
+        this.productId = productId;
+        this.salesPrice = salesPrice;
+        this.quantity = quantity;
+        this.discount = discount;
+    }
+
+    public int getOrderLineItemId()
+    {
+        return orderLineItemId;
+    }
+
+    public void setOrderLineItemId(int orderLineItemId)
+    {
+        this.orderLineItemId = orderLineItemId;
+    }
+
+    public int getOrderId()
+    {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId)
+    {
+        this.orderId = orderId;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public BigDecimal getSalesPrice()
+    {
+        return salesPrice;
+    }
+
+    public void setSalesPrice(BigDecimal salesPrice)
+    {
+        this.salesPrice = salesPrice;
+    }
+
+    public int getQuantity()
+    {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity)
+    {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getDiscount()
+    {
+        return discount;
+    }
+
+    public void setDiscount(BigDecimal discount)
+    {
+        this.discount = discount;
+    }
+
+    // sales price * quantity less the discount, in long arithmetic (see Money)
+    public Money lineTotal()
+    {
+        return Money.of(salesPrice).times(quantity).minus(Money.of(discount));
+    }
+}
@@ -0,0 +1,54 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderPage
+{
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private List<Order> orders = new ArrayList<>();
+    private String next;  // cursor for the following page, null on the last page
+
+    public OrderPage()
+    {
+    }
+
+    public OrderPage(List<Order> orders, String next)
+    {
+        this.orders = orders;
+        this.next = next;
+    }
+
+    // clamps to 1..MAX_LIMIT so a single page can never pull a heavy buyer's whole history
+    public static int clampLimit(Integer limit)
+    {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public List<Order> getOrders()
+    {
+        return orders;
+    }
+
+    public void setOrders(List<Order> orders)
+    {
+        this.orders = orders;
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    public void setNext(String next)
+    {
+        this.next = next;
+    }
+
+    public boolean hasNext()
+    {
+        return next != null;
+    }
+}
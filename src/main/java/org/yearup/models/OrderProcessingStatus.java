@@ -0,0 +1,74 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.List;
+
+// Where an order is in the processing pipeline; a new instance replaces the old one at every step
+public class OrderProcessingStatus
+{
+    public enum State
+    {
+        QUEUED,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final int orderId;
+    private final int userId;
+    private final State state;
+    private final List<String> completedStages;
+    private final String failedStage;
+    private final String message;
+    private final Instant updatedAt;
+
+    public OrderProcessingStatus(int orderId, int userId, State state, List<String> completedStages,
+                                 String failedStage, String message, Instant updatedAt)
+    {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.state = state;
+        this.completedStages = List.copyOf(completedStages);
+        this.failedStage = failedStage;
+        this.message = message;
+        this.updatedAt = updatedAt;
+    }
+
+    public int getOrderId()
+    {
+        return orderId;
+    }
+
+    @JsonIgnore
+    public int getUserId()
+    {
+        return userId;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    public List<String> getCompletedStages()
+    {
+        return completedStages;
+    }
+
+    public String getFailedStage()
+    {
+        return failedStage;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public Instant getUpdatedAt()
+    {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,128 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+/*
+    A merchandising discount. Every rule targets either one product (productId) or a whole category
+    (categoryId), never both:
+
+    PERCENT_OFF    discountPercent off every unit, e.g. 0.15 for 15% off
+    QUANTITY_TIER  discountPercent off every unit once the line holds at least minQuantity units;
+                   several tiers on the same target form a ladder
+    BUY_X_GET_Y    for every minQuantity units bought, freeQuantity more are free
+ */
+public class PricingRule
+{
+    public enum Type
+    {
+        PERCENT_OFF,
+        QUANTITY_TIER,
+        BUY_X_GET_Y
+    }
+
+    private int ruleId;
+    private Type type;
+    private Integer productId;
+    private Integer categoryId;
+    private int minQuantity = 1;
+    private int freeQuantity;
+    private BigDecimal discountPercent = BigDecimal.ZERO;
+    private boolean active = true;
+
+    public PricingRule()
+    {
+    }
+
+    public PricingRule(int ruleId, Type type, Integer productId, Integer categoryId, int minQuantity,
+                       int freeQuantity, BigDecimal discountPercent, boolean active)
+    {
+        this.ruleId = ruleId;
+        this.type = type;
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.minQuantity = minQuantity;
+        this.freeQuantity = freeQuantity;
+        this.discountPercent = discountPercent;
+        this.active = active;
+    }
+
+    public int getRuleId()
+    {
+        return ruleId;
+    }
+
+    public void setRuleId(int ruleId)
+    {
+        this.ruleId = ruleId;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public void setType(Type type)
+    {
+        this.type = type;
+    }
+
+    public Integer getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(Integer productId)
+    {
+        this.productId = productId;
+    }
+
+    public Integer getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId)
+    {
+        this.categoryId = categoryId;
+    }
+
+    public int getMinQuantity()
+    {
+        return minQuantity;
+    }
+
+    public void setMinQuantity(int minQuantity)
+    {
+        this.minQuantity = minQuantity;
+    }
+
+    public int getFreeQuantity()
+    {
+        return freeQuantity;
+    }
+
+    public void setFreeQuantity(int freeQuantity)
+    {
+        this.freeQuantity = freeQuantity;
+    }
+
+    public BigDecimal getDiscountPercent()
+    {
+        return discountPercent;
+    }
+
+    public void setDiscountPercent(BigDecimal discountPercent)
+    {
+        this.discountPercent = discountPercent;
+    }
+
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    public void setActive(boolean active)
+    {
+        this.active = active;
+    }
+}
@@ -13,6 +13,7 @@ public class Product
     private int stock;
     private boolean isFeatured;
     private String imageUrl;
+    private Money priceMoney;  // price as Money, made on first use; carts total the same products over and over
 
     public Product()
     {
@@ -59,6 +60,21 @@ public class Product
     public void setPrice(BigDecimal price)
     {
         this.price = price;
+        this.priceMoney = null;
+    }
+
+    // the price as Money, converted once per price rather than on every cart total. Money is immutable,
+    // so threads racing to fill the cache at worst convert twice.
+    // Throws ArithmeticException when the price does not fit in a long.
+    public Money priceMoney()
+    {
+        Money money = priceMoney;
+        if (money == null)
+        {
+            money = Money.of(price);
+            priceMoney = money;
+        }
+        return money;
     }
 
     public int getCategoryId()
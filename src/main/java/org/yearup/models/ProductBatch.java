@@ -0,0 +1,41 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the products found for a multi-get (?ids=...), in the requested order, and the ids that do not exist
+public class ProductBatch
+{
+    private List<Product> products = new ArrayList<>();
+    private List<Integer> missingIds = new ArrayList<>();
+
+    public ProductBatch()
+    {
+    }
+
+    public ProductBatch(List<Product> products, List<Integer> missingIds)
+    {
+        this.products = products;
+        this.missingIds = missingIds;
+    }
+
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    public void setProducts(List<Product> products)
+    {
+        this.products = products;
+    }
+
+    public List<Integer> getMissingIds()
+    {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Integer> missingIds)
+    {
+        this.missingIds = missingIds;
+    }
+}
@@ -0,0 +1,107 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Counts shown next to the browse filters: products per category, per color and per price range.
+public class ProductFacets
+{
+    // lower bounds of the price ranges; the last range is open-ended
+    public static final BigDecimal[] PRICE_BOUNDARIES = {
+            BigDecimal.ZERO, new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"),
+            new BigDecimal("250"), new BigDecimal("500")
+    };
+
+    private int total;
+    private Map<Integer, Integer> categories = new TreeMap<>();
+    private Map<String, Integer> colors = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);  // "Red" and "red" are one filter, as in MySQL
+    private Map<String, Integer> prices = new LinkedHashMap<>();
+
+    public ProductFacets()
+    {
+        // list every range, even empty ones, so the client can render a stable filter list
+        for (int bucket = 0; bucket < PRICE_BOUNDARIES.length; bucket++)
+        {
+            prices.put(priceLabel(bucket), 0);
+        }
+    }
+
+    public void add(Product product)
+    {
+        add(product.getCategoryId(), product.getColor(), priceBucket(product.getPrice()), 1);
+    }
+
+    public void add(int categoryId, String color, int priceBucket, int count)
+    {
+        total += count;
+        categories.merge(categoryId, count, Integer::sum);
+        if (color != null && !color.isEmpty())
+        {
+            colors.merge(color, count, Integer::sum);
+        }
+        prices.merge(priceLabel(priceBucket), count, Integer::sum);
+    }
+
+    public static int priceBucket(BigDecimal price)
+    {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BOUNDARIES.length && price.compareTo(PRICE_BOUNDARIES[bucket + 1]) >= 0)
+        {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    // "0-25", "25-50", ... "500+"
+    public static String priceLabel(int bucket)
+    {
+        String from = PRICE_BOUNDARIES[bucket].toPlainString();
+        if (bucket + 1 == PRICE_BOUNDARIES.length)
+        {
+            return from + "+";
+        }
+        return from + "-" + PRICE_BOUNDARIES[bucket + 1].toPlainString();
+    }
+
+    public int getTotal()
+    {
+        return total;
+    }
+
+    public void setTotal(int total)
+    {
+        this.total = total;
+    }
+
+    public Map<Integer, Integer> getCategories()
+    {
+        return categories;
+    }
+
+    public void setCategories(Map<Integer, Integer> categories)
+    {
+        this.categories = categories;
+    }
+
+    public Map<String, Integer> getColors()
+    {
+        return colors;
+    }
+
+    public void setColors(Map<String, Integer> colors)
+    {
+        this.colors = colors;
+    }
+
+    public Map<String, Integer> getPrices()
+    {
+        return prices;
+    }
+
+    public void setPrices(Map<String, Integer> prices)
+    {
+        this.prices = prices;
+    }
+}
@@ -0,0 +1,116 @@
+package org.yearup.models;
+
+import java.util.*;
+
+// The product properties a client can ask for with fields=..., each with the column it is read from.
+public enum ProductField
+{
+    PRODUCT_ID("productId", "product_id"),
+    NAME("name", "name"),
+    PRICE("price", "price"),
+    CATEGORY_ID("categoryId", "category_id"),
+    DESCRIPTION("description", "description"),
+    COLOR("color", "color"),
+    STOCK("stock", "stock"),
+    FEATURED("featured", "featured"),
+    IMAGE_URL("imageUrl", "image_url");
+
+    private final String property;
+    private final String column;
+
+    ProductField(String property, String column)
+    {
+        this.property = property;
+        this.column = column;
+    }
+
+    public String getProperty()
+    {
+        return property;
+    }
+
+    public String getColumn()
+    {
+        return column;
+    }
+
+    // comma separated JSON property names, e.g. "name,price,imageUrl"; productId is always included
+    // so projected rows can still be linked to the product. An empty list selects every field.
+    public static Set<ProductField> parse(String fields)
+    {
+        if (fields == null || fields.isBlank())
+        {
+            return EnumSet.allOf(ProductField.class);
+        }
+
+        Set<ProductField> selected = EnumSet.of(PRODUCT_ID);
+        for (String name : fields.split(","))
+        {
+            String property = name.trim();
+            if (property.isEmpty())
+            {
+                continue;
+            }
+            selected.add(fromProperty(property));
+        }
+        return selected;
+    }
+
+    public static ProductField fromProperty(String property)
+    {
+        for (ProductField field : values())
+        {
+            if (field.property.equalsIgnoreCase(property))
+            {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown product field: " + property);
+    }
+
+    public Object valueOf(Product product)
+    {
+        switch (this)
+        {
+            case PRODUCT_ID:
+                return product.getProductId();
+            case NAME:
+                return product.getName();
+            case PRICE:
+                return product.getPrice();
+            case CATEGORY_ID:
+                return product.getCategoryId();
+            case DESCRIPTION:
+                return product.getDescription();
+            case COLOR:
+                return product.getColor();
+            case STOCK:
+                return product.getStock();
+            case FEATURED:
+                return product.isFeatured();
+            default:
+                return product.getImageUrl();
+        }
+    }
+
+    // the selected properties of a product already in memory, in declaration order
+    public static Map<String, Object> project(Product product, Set<ProductField> fields)
+    {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (ProductField field : fields)
+        {
+            row.put(field.property, field.valueOf(product));
+        }
+        return row;
+    }
+
+    public static List<Map<String, Object>> project(List<Product> products, Set<ProductField> fields)
+    {
+        List<Map<String, Object>> rows = new ArrayList<>(products.size());
+        for (Product product : products)
+        {
+            rows.add(project(product, fields));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,45 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductPage
+{
+    private List<Product> products = new ArrayList<>();
+    private String next;  // cursor for the following page, null on the last page
+
+    public ProductPage()
+    {
+    }
+
+    public ProductPage(List<Product> products, String next)
+    {
+        this.products = products;
+        this.next = next;
+    }
+
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    public void setProducts(List<Product> products)
+    {
+        this.products = products;
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    public void setNext(String next)
+    {
+        this.next = next;
+    }
+
+    public boolean hasNext()
+    {
+        return next != null;
+    }
+}
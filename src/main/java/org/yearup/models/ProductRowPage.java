@@ -0,0 +1,47 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// a page of projected products (fields=...), each row holding only the selected properties
+public class ProductRowPage
+{
+    private List<Map<String, Object>> rows = new ArrayList<>();
+    private String next;  // cursor for the following page, null on the last page
+
+    public ProductRowPage()
+    {
+    }
+
+    public ProductRowPage(List<Map<String, Object>> rows, String next)
+    {
+        this.rows = rows;
+        this.next = next;
+    }
+
+    public List<Map<String, Object>> getRows()
+    {
+        return rows;
+    }
+
+    public void setRows(List<Map<String, Object>> rows)
+    {
+        this.rows = rows;
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    public void setNext(String next)
+    {
+        this.next = next;
+    }
+
+    public boolean hasNext()
+    {
+        return next != null;
+    }
+}
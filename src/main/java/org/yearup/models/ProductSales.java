@@ -0,0 +1,64 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+// One product's sales over the whole order history, for the top sellers report
+public class ProductSales
+{
+    private int productId;
+    private String name;
+    private int units;
+    private BigDecimal revenue;  // after discounts
+
+    public ProductSales()
+    {
+    }
+
+    public ProductSales(int productId, String name, int units, BigDecimal revenue)
+    {
+        this.productId = productId;
+        this.name = name;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public int getUnits()
+    {
+        return units;
+    }
+
+    public void setUnits(int units)
+    {
+        this.units = units;
+    }
+
+    public BigDecimal getRevenue()
+    {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue)
+    {
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,110 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+public class ProductSearchCriteria
+{
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    private Integer categoryId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private String color;
+    private ProductSort sort = ProductSort.ID;
+    private int limit = DEFAULT_LIMIT;
+    private String after;
+
+    public ProductSearchCriteria()
+    {
+    }
+
+    public ProductSearchCriteria(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        this.categoryId = categoryId;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.color = color;
+    }
+
+    public Integer getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId)
+    {
+        this.categoryId = categoryId;
+    }
+
+    public BigDecimal getMinPrice()
+    {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice)
+    {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice()
+    {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice)
+    {
+        this.maxPrice = maxPrice;
+    }
+
+    public String getColor()
+    {
+        return color;
+    }
+
+    public void setColor(String color)
+    {
+        this.color = color;
+    }
+
+    public ProductSort getSort()
+    {
+        return sort;
+    }
+
+    public void setSort(ProductSort sort)
+    {
+        this.sort = sort == null ? ProductSort.ID : sort;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    // clamps to 1..MAX_LIMIT so a single page can never pull the whole table
+    public void setLimit(Integer limit)
+    {
+        this.limit = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public String getAfter()
+    {
+        return after;
+    }
+
+    public void setAfter(String after)
+    {
+        this.after = after;
+    }
+
+    // applies the category, price and color filters to a product that is already in memory,
+    // with the same semantics as the SQL (color compares case-insensitively, blank color means any)
+    public boolean matches(Product product)
+    {
+        if (categoryId != null && product.getCategoryId() != categoryId) return false;
+        if (minPrice != null && product.getPrice().compareTo(minPrice) < 0) return false;
+        if (maxPrice != null && product.getPrice().compareTo(maxPrice) > 0) return false;
+        return color == null || color.isEmpty() || color.equalsIgnoreCase(product.getColor());
+    }
+}
@@ -0,0 +1,28 @@
+package org.yearup.models;
+
+import java.util.Locale;
+
+public enum ProductSort
+{
+    ID,
+    PRICE,
+    NAME;
+
+    // accepts the values used in the query string: id, price, name
+    public static ProductSort fromParameter(String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return ID;
+        }
+
+        try
+        {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("Unknown sort '" + value + "'. Use id, price or name.");
+        }
+    }
+}
@@ -33,11 +33,29 @@ public class ShoppingCart
         return items.get(productId);
     }
 
+    // summed in long arithmetic (see Money), converting to BigDecimal once at the end
     public BigDecimal getTotal()
+    {
+        try
+        {
+            Money total = Money.ZERO;
+            for (ShoppingCartItem item : items.values())
+            {
+                total = total.plus(item.lineTotal());
+            }
+            return total.toBigDecimal();
+        }
+        catch (ArithmeticException ex)
+        {
+            return exactTotal();  // beyond long range
+        }
+    }
+
+    BigDecimal exactTotal()
     {
         BigDecimal total = items.values()
                                 .stream()
-                                .map(i -> i.getLineTotal())
+                                .map(i -> i.exactLineTotal())
                                 .reduce( BigDecimal.ZERO, (lineTotal, subTotal) -> subTotal.add(lineTotal));
 
         return total;
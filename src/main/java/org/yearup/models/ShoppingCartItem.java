@@ -9,6 +9,8 @@ public class ShoppingCartItem
     private Product product = null;
     private int quantity = 1;
     private BigDecimal discountPercent = BigDecimal.ZERO;
+    private Money discountMoney = Money.ZERO;  // discountPercent as Money, made on first use after it changes
+    private int freeQuantity;  // units given away by a buy-x-get-y deal
 
 
     public Product getProduct()
@@ -39,6 +41,17 @@ public class ShoppingCartItem
     public void setDiscountPercent(BigDecimal discountPercent)
     {
         this.discountPercent = discountPercent;
+        this.discountMoney = null;
+    }
+
+    public int getFreeQuantity()
+    {
+        return freeQuantity;
+    }
+
+    public void setFreeQuantity(int freeQuantity)
+    {
+        this.freeQuantity = freeQuantity;
     }
 
     @JsonIgnore
@@ -48,9 +61,35 @@ public class ShoppingCartItem
     }
 
     public BigDecimal getLineTotal()
+    {
+        try
+        {
+            return lineTotal().toBigDecimal();
+        }
+        catch (ArithmeticException ex)
+        {
+            return exactLineTotal();  // beyond long range
+        }
+    }
+
+    // price * paid units less the discount, in long arithmetic - the same value and scale as getLineTotal.
+    // Throws ArithmeticException when the result does not fit in a long.
+    public Money lineTotal()
+    {
+        if (discountMoney == null)
+        {
+            discountMoney = Money.of(discountPercent);
+        }
+        Money subTotal = product.priceMoney().times(quantity - freeQuantity);
+        Money discountAmount = subTotal.times(discountMoney);
+
+        return subTotal.minus(discountAmount);
+    }
+
+    BigDecimal exactLineTotal()
     {
         BigDecimal basePrice = product.getPrice();
-        BigDecimal quantity = new BigDecimal(this.quantity);
+        BigDecimal quantity = new BigDecimal(this.quantity - freeQuantity);
 
         BigDecimal subTotal = basePrice.multiply(quantity);
         BigDecimal discountAmount = subTotal.multiply(discountPercent);
@@ -67,6 +67,12 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
 
+                // operational metrics are for admins; everything else is secured per method
+                .and()
+                .authorizeRequests()
+                .antMatchers("/actuator/metrics/**").hasRole("ADMIN")
+                .anyRequest().permitAll()
+
                 .and()
                 .apply(securityConfigurerAdapter());
     }
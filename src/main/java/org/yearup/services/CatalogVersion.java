@@ -0,0 +1,57 @@
+package org.yearup.services;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CatalogReloadedEvent;
+import org.yearup.data.CategoryChangedEvent;
+import org.yearup.data.ProductChangedEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    A counter bumped by every product or category write, and by a reload that finds rows changed
+    behind the application's back. The catalog endpoints use it as their ETag:
+    while it has not moved, every catalog response is byte-for-byte what the client already holds, so
+    an If-None-Match can be answered with 304 without reading anything.
+
+    The listeners run last, after the in-memory read models have applied the same event: a client that is
+    handed the new tag must also be handed the new data, or it would keep the stale response under a tag
+    that only moves on at the next change.
+
+    The tag starts with the boot time so tags handed out before a restart never match afterwards.
+ */
+@Component
+public class CatalogVersion
+{
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event)
+    {
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCategoryChanged(CategoryChangedEvent event)
+    {
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogReloaded(CatalogReloadedEvent event)
+    {
+        version.incrementAndGet();
+    }
+
+    // strong ETag value, quoted as the header expects
+    public String etag()
+    {
+        return "\"" + Long.toString(epoch, 36) + "-" + version.get() + "\"";
+    }
+}
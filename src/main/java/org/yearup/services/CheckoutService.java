@@ -0,0 +1,139 @@
+package org.yearup.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Places an order for everything in a user's cart. The order is built from the cart rows in the
+    database - a write-behind cart store is flushed first - and priced with the same rules the cart
+    endpoints show, so the customer pays what the cart said.
+
+    The stock of most lines is taken inside the order transaction, with one batch of conditional
+    decrements, so a failed checkout rolls it back with the order. Hot products (stock.hot-products)
+    are reserved from their in-memory lease before the order is written instead, and released again
+    if writing it fails, or confirmed on the request thread once it commits - before the order is
+    handed on, so the expiry sweep cannot give the units back while the order waits in a queue.
+    Either way two customers can never buy the last unit twice.
+
+    Everything else after the commit - the confirmation and analytics records - runs on the
+    OrderPipeline. The OrderWriter decides whether the order commits on its own or as part of a
+    group commit.
+ */
+@Component
+public class CheckoutService
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CheckoutService.class);
+
+    private final ShoppingCartDao shoppingCartDao;
+    private final OrderWriter orderWriter;
+    private final PricingEngine pricingEngine;
+    private final StockReservations stockReservations;
+    private final OrderPipeline orderPipeline;
+    private final Counter oversold;
+
+    @Autowired
+    public CheckoutService(ShoppingCartDao shoppingCartDao, OrderWriter orderWriter, PricingEngine pricingEngine,
+                           StockReservations stockReservations, OrderPipeline orderPipeline, MeterRegistry registry)
+    {
+        this.shoppingCartDao = shoppingCartDao;
+        this.orderWriter = orderWriter;
+        this.pricingEngine = pricingEngine;
+        this.stockReservations = stockReservations;
+        this.orderPipeline = orderPipeline;
+        this.oversold = Counter.builder("stock.oversold")
+                               .description("Order lines whose reserved units were sold to someone else before the order confirmed them")
+                               .register(registry);
+    }
+
+    // throws InsufficientStockException when a line cannot be filled, and IllegalStateException when
+    // there is nothing to order or nowhere to ship it
+    public Order checkout(int userId)
+    {
+        shoppingCartDao.flush(userId);
+        Map<Integer, Integer> reserved = hotQuantities(shoppingCartDao.getByUserId(userId));
+        List<StockReservations.Reservation> reservations = reserve(reserved);
+
+        Order order;
+        try
+        {
+            order = orderWriter.createFromCart(userId, reserved.keySet(), cart -> {
+                // the cart is locked now; its hot lines must still be the ones the stock was reserved for
+                if (!hotQuantities(cart).equals(reserved))
+                {
+                    throw new IllegalStateException("The cart changed during checkout, please try again.");
+                }
+                return pricingEngine.apply(cart);
+            });
+        }
+        catch (RuntimeException ex)
+        {
+            reservations.forEach(stockReservations::release);
+            throw ex;
+        }
+
+        shoppingCartDao.evict(userId);
+        confirm(order, reservations);
+        orderPipeline.submit(new PlacedOrder(order));
+        return order;
+    }
+
+    // the units stay sold now; an order whose units expired and were sold first is logged and counted,
+    // it is committed already and is not undone here
+    private void confirm(Order order, List<StockReservations.Reservation> reservations)
+    {
+        for (StockReservations.Reservation reservation : reservations)
+        {
+            if (!stockReservations.confirm(reservation))
+            {
+                oversold.increment();
+                LOG.error("order {} is oversold: {} units of product {} expired and were sold before the order confirmed them",
+                          order.getOrderId(), reservation.getQuantity(), reservation.getProductId());
+            }
+        }
+    }
+
+    // all or nothing: when one line cannot be filled, the lines reserved so far are released
+    private List<StockReservations.Reservation> reserve(Map<Integer, Integer> quantities)
+    {
+        List<StockReservations.Reservation> reservations = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet())
+        {
+            StockReservations.Reservation reservation = stockReservations.reserve(line.getKey(), line.getValue());
+            if (reservation == null)
+            {
+                reservations.forEach(stockReservations::release);
+                throw new InsufficientStockException(line.getKey());
+            }
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+
+    // the lines whose stock is reserved ahead; the order transaction takes the rest
+    private Map<Integer, Integer> hotQuantities(ShoppingCart cart)
+    {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (ShoppingCartItem item : cart.getItems().values())
+        {
+            if (stockReservations.isHot(item.getProductId()))
+            {
+                quantities.put(item.getProductId(), item.getQuantity());
+            }
+        }
+        return quantities;
+    }
+}
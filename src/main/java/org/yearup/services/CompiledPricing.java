@@ -0,0 +1,228 @@
+package org.yearup.services;
+
+import org.yearup.models.PricingRule;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/*
+    A set of pricing rules compiled into two lookup tables, one keyed by product id and one by
+    category id. Each entry holds everything the rules say about that target: a quantity ladder of
+    percentages (PERCENT_OFF is a tier starting at one unit) and the buy-x-get-y offers. Pricing a
+    line is two map lookups and a binary search of the ladder, however many rules are active.
+
+    Each line gets the single deal that saves the customer the most, product and category rules
+    alike: either the best percentage reached or the most free units. Deals never stack.
+
+    Instances are immutable and safe to share between threads.
+ */
+public final class CompiledPricing
+{
+    public static final CompiledPricing EMPTY = compile(List.of());
+
+    private final Map<Integer, Deals> byProduct;
+    private final Map<Integer, Deals> byCategory;
+    private final int ruleCount;
+
+    private CompiledPricing(Map<Integer, Deals> byProduct, Map<Integer, Deals> byCategory, int ruleCount)
+    {
+        this.byProduct = byProduct;
+        this.byCategory = byCategory;
+        this.ruleCount = ruleCount;
+    }
+
+    // inactive and invalid rules are left out
+    public static CompiledPricing compile(Collection<PricingRule> rules)
+    {
+        Map<Integer, DealsBuilder> products = new HashMap<>();
+        Map<Integer, DealsBuilder> categories = new HashMap<>();
+        int count = 0;
+
+        for (PricingRule rule : rules)
+        {
+            if (!rule.isActive() || validate(rule) != null)
+            {
+                continue;
+            }
+
+            DealsBuilder deals = rule.getProductId() != null
+                    ? products.computeIfAbsent(rule.getProductId(), id -> new DealsBuilder())
+                    : categories.computeIfAbsent(rule.getCategoryId(), id -> new DealsBuilder());
+            deals.add(rule);
+            count++;
+        }
+
+        return new CompiledPricing(build(products), build(categories), count);
+    }
+
+    // null when the rule can be applied, otherwise what is wrong with it
+    public static String validate(PricingRule rule)
+    {
+        if (rule.getType() == null)
+        {
+            return "type is required.";
+        }
+        if ((rule.getProductId() == null) == (rule.getCategoryId() == null))
+        {
+            return "A rule targets either a productId or a categoryId.";
+        }
+
+        switch (rule.getType())
+        {
+            case BUY_X_GET_Y:
+                if (rule.getMinQuantity() < 1 || rule.getFreeQuantity() < 1)
+                {
+                    return "minQuantity and freeQuantity must both be at least 1.";
+                }
+                return null;
+            case QUANTITY_TIER:
+                if (rule.getMinQuantity() < 1)
+                {
+                    return "minQuantity must be at least 1.";
+                }
+                // fall through - a tier needs a discount like any percentage rule
+            default:
+                BigDecimal percent = rule.getDiscountPercent();
+                if (percent == null || percent.signum() <= 0 || percent.compareTo(BigDecimal.ONE) > 0)
+                {
+                    return "discountPercent must be greater than 0 and at most 1.";
+                }
+                return null;
+        }
+    }
+
+    public int getRuleCount()
+    {
+        return ruleCount;
+    }
+
+    // sets the discount of every line in the cart; returns the same cart
+    public ShoppingCart apply(ShoppingCart cart)
+    {
+        for (ShoppingCartItem item : cart.getItems().values())
+        {
+            apply(item);
+        }
+        return cart;
+    }
+
+    void apply(ShoppingCartItem item)
+    {
+        int quantity = item.getQuantity();
+        Deals product = byProduct.get(item.getProductId());
+        Deals category = byCategory.get(item.getProduct().getCategoryId());
+
+        BigDecimal percent = BigDecimal.ZERO;
+        int free = 0;
+        for (Deals deals : new Deals[] { product, category })
+        {
+            if (deals != null)
+            {
+                percent = percent.max(deals.percentFor(quantity));
+                free = Math.max(free, deals.freeUnitsFor(quantity));
+            }
+        }
+
+        // both are measured in units: 'free' units against quantity * percent units' worth
+        boolean freeSavesMore = BigDecimal.valueOf(free).compareTo(percent.multiply(BigDecimal.valueOf(quantity))) > 0;
+        item.setDiscountPercent(freeSavesMore ? BigDecimal.ZERO : percent);
+        item.setFreeQuantity(freeSavesMore ? free : 0);
+    }
+
+    private static Map<Integer, Deals> build(Map<Integer, DealsBuilder> builders)
+    {
+        Map<Integer, Deals> deals = new HashMap<>(builders.size() * 4 / 3 + 1);
+        builders.forEach((id, builder) -> deals.put(id, builder.build()));
+        return deals;
+    }
+
+    // everything the rules say about one product or category
+    private static final class Deals
+    {
+        private final int[] tierMinimums;         // ascending
+        private final BigDecimal[] tierPercents;  // never decreasing, so the last tier reached is the best
+        private final int[] offerGroups;          // units bought plus units free
+        private final int[] offerFree;
+
+        private Deals(int[] tierMinimums, BigDecimal[] tierPercents, int[] offerGroups, int[] offerFree)
+        {
+            this.tierMinimums = tierMinimums;
+            this.tierPercents = tierPercents;
+            this.offerGroups = offerGroups;
+            this.offerFree = offerFree;
+        }
+
+        BigDecimal percentFor(int quantity)
+        {
+            int index = Arrays.binarySearch(tierMinimums, quantity);
+            if (index < 0)
+            {
+                index = -index - 2;  // the tier below the insertion point
+            }
+            return index < 0 ? BigDecimal.ZERO : tierPercents[index];
+        }
+
+        // offers per target are a handful at most, unlike the rules overall
+        int freeUnitsFor(int quantity)
+        {
+            int best = 0;
+            for (int i = 0; i < offerGroups.length; i++)
+            {
+                best = Math.max(best, quantity / offerGroups[i] * offerFree[i]);
+            }
+            return best;
+        }
+    }
+
+    private static final class DealsBuilder
+    {
+        private final TreeMap<Integer, BigDecimal> tiers = new TreeMap<>();
+        private final Set<List<Integer>> offers = new LinkedHashSet<>();
+
+        void add(PricingRule rule)
+        {
+            switch (rule.getType())
+            {
+                case PERCENT_OFF:
+                    tiers.merge(1, rule.getDiscountPercent(), BigDecimal::max);
+                    break;
+                case QUANTITY_TIER:
+                    tiers.merge(rule.getMinQuantity(), rule.getDiscountPercent(), BigDecimal::max);
+                    break;
+                case BUY_X_GET_Y:
+                    offers.add(List.of(rule.getMinQuantity() + rule.getFreeQuantity(), rule.getFreeQuantity()));
+                    break;
+            }
+        }
+
+        Deals build()
+        {
+            int[] minimums = new int[tiers.size()];
+            BigDecimal[] percents = new BigDecimal[tiers.size()];
+            int i = 0;
+            BigDecimal best = BigDecimal.ZERO;
+            for (Map.Entry<Integer, BigDecimal> tier : tiers.entrySet())
+            {
+                // a higher tier never gives less than the tiers below it
+                best = best.max(tier.getValue());
+                minimums[i] = tier.getKey();
+                percents[i] = best;
+                i++;
+            }
+
+            int[] groups = new int[offers.size()];
+            int[] free = new int[offers.size()];
+            i = 0;
+            for (List<Integer> offer : offers)
+            {
+                groups[i] = offer.get(0);
+                free[i] = offer.get(1);
+                i++;
+            }
+
+            return new Deals(minimums, percents, groups, free);
+        }
+    }
+}
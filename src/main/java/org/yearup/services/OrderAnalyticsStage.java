@@ -0,0 +1,36 @@
+package org.yearup.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.OrderDao;
+
+// One summary row per order (lines, units, total) for reporting
+@Component
+public class OrderAnalyticsStage implements OrderStage
+{
+    private final OrderDao orderDao;
+
+    @Autowired
+    public OrderAnalyticsStage(OrderDao orderDao)
+    {
+        this.orderDao = orderDao;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "analytics";
+    }
+
+    @Override
+    public int getOrder()
+    {
+        return 300;
+    }
+
+    @Override
+    public void process(PlacedOrder placed)
+    {
+        orderDao.recordAnalytics(placed.getOrder());
+    }
+}
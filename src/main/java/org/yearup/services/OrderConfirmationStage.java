@@ -0,0 +1,39 @@
+package org.yearup.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.OrderDao;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Records that the order went through, with the total charged
+@Component
+public class OrderConfirmationStage implements OrderStage
+{
+    private final OrderDao orderDao;
+
+    @Autowired
+    public OrderConfirmationStage(OrderDao orderDao)
+    {
+        this.orderDao = orderDao;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "confirmation";
+    }
+
+    @Override
+    public int getOrder()
+    {
+        return 200;
+    }
+
+    @Override
+    public void process(PlacedOrder placed)
+    {
+        orderDao.recordConfirmation(placed.getOrder(), LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+}
@@ -0,0 +1,292 @@
+package org.yearup.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.OrderComparator;
+import org.springframework.stereotype.Component;
+import org.yearup.models.Order;
+import org.yearup.models.OrderProcessingStatus;
+import org.yearup.models.OrderProcessingStatus.State;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Runs the OrderStage beans for every committed order off the request thread. Checkout puts the
+    order on a bounded queue (orders.pipeline.capacity) and returns; orders.pipeline.workers workers
+    take orders off the queue and run the stages in order, retrying a failed stage up to
+    orders.pipeline.max-attempts times.
+
+    The workers are virtual threads when the runtime has them (Java 21+) and platform threads
+    otherwise - the build targets Java 17, so the virtual thread executor is looked up reflectively.
+
+    Back-pressure: when the queue stays full for orders.pipeline.offer-timeout-ms, the request thread
+    processes its own order, which slows checkouts down instead of dropping work. Metrics:
+    orders.pipeline.queue_depth and orders.pipeline.remaining_capacity (gauges), orders.pipeline.caller_runs
+    (orders the queue had no room for), orders.pipeline.wait and orders.pipeline.process (timers) and
+    orders.pipeline.failed.
+
+    The processing status of recent orders (the last STATUS_RETENTION) is kept in memory for polling.
+ */
+@Component
+public class OrderPipeline
+{
+    private static final Logger LOG = LoggerFactory.getLogger(OrderPipeline.class);
+    private static final int STATUS_RETENTION = 10_000;
+
+    private final List<OrderStage> stages;
+    private final BlockingQueue<Job> queue;
+    private final ExecutorService workers;
+    private final long offerTimeoutMs;
+    private final int maxAttempts;
+    private final Map<Integer, OrderProcessingStatus> statuses = Collections.synchronizedMap(
+            new LinkedHashMap<>()
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, OrderProcessingStatus> eldest)
+                {
+                    return size() > STATUS_RETENTION;
+                }
+            });
+    private volatile boolean running = true;
+
+    private final Counter callerRuns;
+    private final Counter failed;
+    private final Timer waitTimer;
+    private final Timer processTimer;
+
+    @Autowired
+    public OrderPipeline(List<OrderStage> stages, MeterRegistry registry,
+                         @Value("${orders.pipeline.capacity:1000}") int capacity,
+                         @Value("${orders.pipeline.workers:8}") int workerCount,
+                         @Value("${orders.pipeline.offer-timeout-ms:50}") long offerTimeoutMs,
+                         @Value("${orders.pipeline.max-attempts:3}") int maxAttempts)
+    {
+        this(stages, registry, new ArrayBlockingQueue<>(capacity), workerCount, offerTimeoutMs, maxAttempts);
+    }
+
+    // takes the queue, so tests can step in between submit's steps
+    OrderPipeline(List<OrderStage> stages, MeterRegistry registry, BlockingQueue<Job> queue, int workerCount,
+                  long offerTimeoutMs, int maxAttempts)
+    {
+        List<OrderStage> sorted = new ArrayList<>(stages);
+        sorted.sort(OrderComparator.INSTANCE);
+        this.stages = List.copyOf(sorted);
+        this.queue = queue;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxAttempts = maxAttempts;
+
+        Gauge.builder("orders.pipeline.queue_depth", queue, BlockingQueue::size)
+             .description("Committed orders waiting for processing")
+             .register(registry);
+        Gauge.builder("orders.pipeline.remaining_capacity", queue, BlockingQueue::remainingCapacity)
+             .description("Orders the queue can take before checkouts process their own")
+             .register(registry);
+        callerRuns = Counter.builder("orders.pipeline.caller_runs")
+                            .description("Orders processed on the request thread because the queue was full")
+                            .register(registry);
+        failed = Counter.builder("orders.pipeline.failed")
+                        .description("Orders whose processing failed after every retry")
+                        .register(registry);
+        waitTimer = Timer.builder("orders.pipeline.wait")
+                         .description("Time from checkout until a worker picks the order up")
+                         .register(registry);
+        processTimer = Timer.builder("orders.pipeline.process")
+                            .description("Time to run every stage for one order")
+                            .register(registry);
+
+        workers = newExecutor(workerCount);
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers.execute(this::drain);
+        }
+    }
+
+    // queues the order, or processes it right here when the queue stays full; returns the status to poll
+    public OrderProcessingStatus submit(PlacedOrder placed)
+    {
+        Order order = placed.getOrder();
+        OrderProcessingStatus status = update(order, State.QUEUED, List.of(), null, null);
+        Job job = new Job(placed, System.nanoTime());
+
+        boolean queued = false;
+        if (running)
+        {
+            try
+            {
+                queued = queue.offer(job, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // shutdown may have begun between the check and the offer, and the workers may already have found the
+        // queue empty and stopped; if none of them took the job, it is this thread's to process
+        if (queued && !running && queue.remove(job))
+        {
+            return process(job);
+        }
+        if (!queued)
+        {
+            callerRuns.increment();
+            return process(job);
+        }
+        return status;
+    }
+
+    // null once the order has aged out of the retained statuses (or was never processed here)
+    public OrderProcessingStatus getStatus(int orderId)
+    {
+        return statuses.get(orderId);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException
+    {
+        // the workers finish what is queued, then stop
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS))
+        {
+            LOG.error("{} orders were still waiting for processing at shutdown", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    private void drain()
+    {
+        while (running || !queue.isEmpty())
+        {
+            try
+            {
+                Job job = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (job != null)
+                {
+                    process(job);
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                return;
+            }
+            catch (RuntimeException ex)
+            {
+                LOG.error("unexpected error in the order pipeline", ex);
+            }
+        }
+    }
+
+    private OrderProcessingStatus process(Job job)
+    {
+        long started = System.nanoTime();
+        waitTimer.record(started - job.queuedAt, TimeUnit.NANOSECONDS);
+
+        Order order = job.placed.getOrder();
+        List<String> completed = new ArrayList<>();
+        try
+        {
+            for (OrderStage stage : stages)
+            {
+                update(order, State.PROCESSING, completed, null, null);
+                try
+                {
+                    runWithRetries(stage, job.placed);
+                }
+                catch (RuntimeException ex)
+                {
+                    failed.increment();
+                    LOG.error("order {} failed in stage {}", order.getOrderId(), stage.getName(), ex);
+                    return update(order, State.FAILED, completed, stage.getName(), ex.getMessage());
+                }
+                completed.add(stage.getName());
+            }
+            return update(order, State.COMPLETED, completed, null, null);
+        }
+        finally
+        {
+            processTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void runWithRetries(OrderStage stage, PlacedOrder placed)
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                stage.process(placed);
+                return;
+            }
+            catch (RuntimeException ex)
+            {
+                if (attempt >= maxAttempts)
+                {
+                    throw ex;
+                }
+                LOG.warn("order {}: stage {} failed (attempt {} of {}), retrying",
+                         placed.getOrder().getOrderId(), stage.getName(), attempt, maxAttempts, ex);
+                try
+                {
+                    Thread.sleep(100L * attempt);  // cheap on a virtual thread
+                }
+                catch (InterruptedException interrupted)
+                {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private OrderProcessingStatus update(Order order, State state, List<String> completed, String failedStage, String message)
+    {
+        OrderProcessingStatus status = new OrderProcessingStatus(order.getOrderId(), order.getUserId(), state, completed,
+                                                                 failedStage, message, Instant.now());
+        statuses.put(order.getOrderId(), status);
+        return status;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() on Java 21+, a fixed pool of platform threads before that
+    static ExecutorService newExecutor(int platformThreads)
+    {
+        try
+        {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOG.info("order pipeline running on virtual threads");
+            return executor;
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            LOG.info("virtual threads are not available, order pipeline running on {} platform threads", platformThreads);
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, task -> {
+                Thread thread = new Thread(task, "order-pipeline-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static final class Job
+    {
+        private final PlacedOrder placed;
+        private final long queuedAt;
+
+        private Job(PlacedOrder placed, long queuedAt)
+        {
+            this.placed = placed;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
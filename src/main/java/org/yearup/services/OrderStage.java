@@ -0,0 +1,16 @@
+package org.yearup.services;
+
+import org.springframework.core.Ordered;
+
+/*
+    One step of the work done after an order is committed. Every OrderStage bean is run by the
+    OrderPipeline, lowest getOrder() first; a stage only runs once the stages before it succeeded.
+    A failed stage is retried, so process() must be safe to run more than once for the same order.
+ */
+public interface OrderStage extends Ordered
+{
+    // shown in the order's processing status
+    String getName();
+
+    void process(PlacedOrder placed);
+}
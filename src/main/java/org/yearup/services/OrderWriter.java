@@ -0,0 +1,219 @@
+package org.yearup.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.OrderDao;
+import org.yearup.data.PendingCheckout;
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCart;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/*
+    Writes checkouts to the database. By default every checkout is its own transaction, and so its own
+    commit and log flush.
+
+    With orders.group-commit.enabled, checkouts are handed to a single writer thread that combines the
+    ones arriving within orders.group-commit.window-ms of each other - up to orders.group-commit.max-batch
+    of them - into one transaction (OrderDao.createFromCarts), so a flash sale pays one commit per batch
+    instead of one per order. Each caller still waits for, and gets, its own order or its own exception:
+    a checkout that fails on its own (an empty cart, a changed cart) fails alone, and when the shared
+    writes fail the batch is retried one checkout at a time, so one bad order cannot fail its neighbours.
+
+    A user is never in a batch twice; a second checkout by the same user waits for the next batch and
+    finds the cart already ordered, exactly as it would after a per-order commit. Metrics:
+    orders.group_commit.batch_size and orders.group_commit.fallbacks (batches retried one by one).
+ */
+@Component
+public class OrderWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(OrderWriter.class);
+
+    private final OrderDao orderDao;
+    private final boolean groupCommit;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<PendingCheckout> queue = new LinkedBlockingQueue<>();  // bounded by the waiting request threads
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+
+    @Autowired
+    public OrderWriter(OrderDao orderDao, MeterRegistry registry,
+                       @Value("${orders.group-commit.enabled:false}") boolean groupCommit,
+                       @Value("${orders.group-commit.window-ms:2}") long windowMs,
+                       @Value("${orders.group-commit.max-batch:64}") int maxBatch)
+    {
+        this.orderDao = orderDao;
+        this.groupCommit = groupCommit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatch = maxBatch;
+
+        batchSize = DistributionSummary.builder("orders.group_commit.batch_size")
+                                       .description("Checkouts written per group commit")
+                                       .register(registry);
+        fallbacks = Counter.builder("orders.group_commit.fallbacks")
+                           .description("Group commits that failed and were retried one checkout at a time")
+                           .register(registry);
+
+        if (groupCommit)
+        {
+            writer = new Thread(this::write, "order-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        else
+        {
+            writer = null;
+        }
+    }
+
+    // same contract as OrderDao.createFromCart; with group commit on, pricing runs on the writer thread
+    public Order createFromCart(int userId, Set<Integer> reserved, UnaryOperator<ShoppingCart> pricing)
+    {
+        if (!groupCommit || !running)
+        {
+            return orderDao.createFromCart(userId, reserved, pricing);
+        }
+
+        PendingCheckout checkout = new PendingCheckout(userId, reserved, pricing);
+        queue.add(checkout);
+        if (!running && queue.remove(checkout))
+        {
+            // shut down meanwhile - the writer may be gone already
+            return orderDao.createFromCart(userId, reserved, pricing);
+        }
+        try
+        {
+            return checkout.getResult().join();
+        }
+        catch (CompletionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException
+    {
+        // checkouts arriving from now on commit on their own; the writer finishes what is queued
+        running = false;
+        if (writer != null)
+        {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private void write()
+    {
+        List<PendingCheckout> deferred = new ArrayList<>();
+        while (running || !queue.isEmpty() || !deferred.isEmpty())
+        {
+            try
+            {
+                List<PendingCheckout> batch = nextBatch(deferred);
+                if (!batch.isEmpty())
+                {
+                    commit(batch);
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                return;
+            }
+            catch (RuntimeException ex)
+            {
+                LOG.error("unexpected error in the order writer", ex);
+            }
+        }
+    }
+
+    // the first checkout waiting, plus whatever arrives within the window, one checkout per user. A user's
+    // second checkout goes back in deferred for the next batch.
+    private List<PendingCheckout> nextBatch(List<PendingCheckout> deferred) throws InterruptedException
+    {
+        List<PendingCheckout> waiting = new ArrayList<>(deferred);
+        deferred.clear();
+        if (waiting.isEmpty())
+        {
+            PendingCheckout first = queue.poll(200, TimeUnit.MILLISECONDS);
+            if (first == null)
+            {
+                return waiting;
+            }
+            waiting.add(first);
+        }
+
+        List<PendingCheckout> batch = new ArrayList<>();
+        Set<Integer> users = new HashSet<>();
+        long deadline = System.nanoTime() + windowNanos;
+        Iterator<PendingCheckout> carriedOver = waiting.iterator();
+        while (batch.size() < maxBatch)
+        {
+            PendingCheckout checkout = carriedOver.hasNext() ? carriedOver.next() : queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (checkout == null)
+            {
+                break;
+            }
+            if (users.add(checkout.getUserId()))
+            {
+                batch.add(checkout);
+            }
+            else
+            {
+                deferred.add(checkout);
+            }
+        }
+        carriedOver.forEachRemaining(deferred::add);
+        return batch;
+    }
+
+    private void commit(List<PendingCheckout> batch)
+    {
+        batchSize.record(batch.size());
+        try
+        {
+            orderDao.createFromCarts(batch);
+            return;
+        }
+        catch (RuntimeException ex)
+        {
+            fallbacks.increment();
+            LOG.warn("group commit of {} checkouts failed, writing them one at a time", batch.size(), ex);
+        }
+
+        for (PendingCheckout checkout : batch)
+        {
+            if (checkout.isDone())
+            {
+                continue;
+            }
+            try
+            {
+                checkout.complete(orderDao.createFromCart(checkout.getUserId(), checkout.getReserved(), checkout.getPricing()));
+            }
+            catch (RuntimeException ex)
+            {
+                checkout.fail(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.yearup.services;
+
+import org.yearup.models.Order;
+
+// A committed order on its way through the OrderPipeline
+public class PlacedOrder
+{
+    private final Order order;
+
+    public PlacedOrder(Order order)
+    {
+        this.order = order;
+    }
+
+    public Order getOrder()
+    {
+        return order;
+    }
+}
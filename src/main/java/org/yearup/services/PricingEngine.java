@@ -0,0 +1,61 @@
+package org.yearup.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.PricingRuleDao;
+import org.yearup.data.PricingRulesChangedEvent;
+import org.yearup.models.ShoppingCart;
+
+import javax.annotation.PostConstruct;
+
+/*
+    Prices carts with the active pricing rules. The rules are compiled (see CompiledPricing) on
+    startup, after every rule write and on a schedule (pricing.refresh-ms, five minutes by default)
+    that picks up rows changed outside the application. Pricing a cart reads the compiled rules
+    with a single volatile read and never touches the database.
+ */
+@Component
+public class PricingEngine
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PricingEngine.class);
+
+    private final PricingRuleDao ruleDao;
+    private volatile CompiledPricing pricing = CompiledPricing.EMPTY;
+
+    @Autowired
+    public PricingEngine(PricingRuleDao ruleDao)
+    {
+        this.ruleDao = ruleDao;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${pricing.refresh-ms:300000}", initialDelayString = "${pricing.refresh-ms:300000}")
+    public synchronized void reload()
+    {
+        try
+        {
+            pricing = CompiledPricing.compile(ruleDao.getActive());
+        }
+        catch (RuntimeException ex)
+        {
+            // keep pricing with the last good rules; the next reload tries again
+            LOG.warn("could not reload the pricing rules", ex);
+        }
+    }
+
+    @EventListener
+    public void onRulesChanged(PricingRulesChangedEvent event)
+    {
+        reload();
+    }
+
+    // sets the discount of every line in the cart; returns the same cart
+    public ShoppingCart apply(ShoppingCart cart)
+    {
+        return pricing.apply(cart);
+    }
+}
@@ -0,0 +1,257 @@
+package org.yearup.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductInserter;
+import org.yearup.models.BulkImportResult;
+import org.yearup.models.Product;
+import org.yearup.utilities.Csv;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/*
+    Loads supplier catalogs of any size. The input is read one line at a time and inserted in chunks,
+    each chunk as a single JDBC batch in its own transaction, so memory stays bounded and a bad row
+    only costs its own chunk a retry. When a chunk fails, its rows are retried one by one to find the
+    rows at fault; every other row is still imported.
+
+    Each chunk publishes one ProductChangedEvent for all the rows it stored, after they are stored, so
+    a listener that fails cannot make the rows look unwritten and be inserted twice. Such a failure is
+    reported in the result's warnings instead; the rows are imported all the same.
+
+    Accepted formats: NDJSON (one product object per line) and CSV with a header row naming the
+    columns (name, price, categoryId, description, color, imageUrl, stock, featured).
+ */
+@Component
+public class ProductImportService
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductImportService.class);
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ProductInserter productDao;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public ProductImportService(ProductInserter productDao, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher)
+    {
+        this.productDao = productDao;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public BulkImportResult importNdjson(BufferedReader reader) throws IOException
+    {
+        return importLines(reader, false);
+    }
+
+    public BulkImportResult importCsv(BufferedReader reader) throws IOException
+    {
+        return importLines(reader, true);
+    }
+
+    private BulkImportResult importLines(BufferedReader reader, boolean csv) throws IOException
+    {
+        BulkImportResult result = new BulkImportResult();
+        List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkLines = new ArrayList<>(CHUNK_SIZE);
+        Map<String, Integer> columns = null;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            if (line.isBlank())
+            {
+                continue;
+            }
+
+            // a quoted CSV field may hold line breaks; the record is reported by the line it starts on
+            int recordLine = lineNumber;
+            String next;
+            while (csv && Csv.continuesOnNextLine(line) && (next = reader.readLine()) != null)
+            {
+                line = line + "\n" + next;
+                lineNumber++;
+            }
+
+            // a bad header makes every row unreadable, so it fails the whole request
+            if (csv && columns == null)
+            {
+                columns = readHeader(line);
+                continue;
+            }
+
+            try
+            {
+                Product product = csv ? fromCsv(columns, line) : fromJson(line);
+                validate(product);
+
+                chunk.add(product);
+                chunkLines.add(recordLine);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                result.addError(recordLine, ex.getMessage());
+            }
+
+            if (chunk.size() == CHUNK_SIZE)
+            {
+                insert(chunk, chunkLines, result);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+                chunkLines = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+
+        if (!chunk.isEmpty())
+        {
+            insert(chunk, chunkLines, result);
+        }
+        return result;
+    }
+
+    private void insert(List<Product> chunk, List<Integer> lines, BulkImportResult result)
+    {
+        List<Product> stored = new ArrayList<>(chunk.size());
+        try
+        {
+            stored.addAll(productDao.insertAll(chunk));
+        }
+        catch (RuntimeException chunkFailed)
+        {
+            // the chunk was rolled back - retry row by row so only the offending rows are rejected
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                try
+                {
+                    stored.addAll(productDao.insertAll(List.of(chunk.get(i))));
+                }
+                catch (RuntimeException rowFailed)
+                {
+                    result.addError(lines.get(i), rootMessage(rowFailed));
+                }
+            }
+        }
+        stored.forEach(product -> result.addImported(product.getProductId()));
+
+        if (!stored.isEmpty())
+        {
+            try
+            {
+                eventPublisher.publishEvent(ProductChangedEvent.created(stored));
+            }
+            catch (RuntimeException listenerFailed)
+            {
+                LOG.error("imported {} products, but updating the catalog views failed", stored.size(), listenerFailed);
+                result.addWarning(stored.size() + " products were imported, but the catalog may not show them until it reloads: "
+                                  + rootMessage(listenerFailed));
+            }
+        }
+    }
+
+    private Product fromJson(String line)
+    {
+        try
+        {
+            return objectMapper.readValue(line, Product.class);
+        }
+        catch (JsonProcessingException ex)
+        {
+            throw new IllegalArgumentException("Invalid JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> readHeader(String line)
+    {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = Csv.parseLine(line);
+        for (int i = 0; i < names.size(); i++)
+        {
+            // accept both the JSON property names and the database column names
+            String name = names.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            columns.put(name, i);
+        }
+
+        for (String required : List.of("name", "price", "categoryid"))
+        {
+            if (!columns.containsKey(required))
+            {
+                throw new IllegalArgumentException("CSV header is missing the '" + required + "' column.");
+            }
+        }
+        return columns;
+    }
+
+    private static Product fromCsv(Map<String, Integer> columns, String line)
+    {
+        List<String> fields = Csv.parseLine(line);
+        Product product = new Product();
+        try
+        {
+            product.setName(field(columns, fields, "name"));
+            String price = field(columns, fields, "price");
+            product.setPrice(price == null ? null : new BigDecimal(price));
+            String categoryId = field(columns, fields, "categoryid");
+            product.setCategoryId(categoryId == null ? 0 : Integer.parseInt(categoryId));
+            product.setDescription(field(columns, fields, "description"));
+            product.setColor(field(columns, fields, "color"));
+            product.setImageUrl(field(columns, fields, "imageurl"));
+            String stock = field(columns, fields, "stock");
+            product.setStock(stock == null ? 0 : Integer.parseInt(stock));
+            String featured = field(columns, fields, "featured");
+            product.setFeatured("true".equalsIgnoreCase(featured) || "1".equals(featured));
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("Invalid number: " + ex.getMessage());
+        }
+        return product;
+    }
+
+    private static String field(Map<String, Integer> columns, List<String> fields, String column)
+    {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size())
+        {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void validate(Product product)
+    {
+        if (product.getName() == null || product.getName().isBlank())
+        {
+            throw new IllegalArgumentException("name is required.");
+        }
+        if (product.getPrice() == null || product.getPrice().signum() < 0)
+        {
+            throw new IllegalArgumentException("price is required and cannot be negative.");
+        }
+        if (product.getCategoryId() <= 0)
+        {
+            throw new IllegalArgumentException("categoryId is required.");
+        }
+    }
+
+    private static String rootMessage(Throwable ex)
+    {
+        while (ex.getCause() != null)
+        {
+            ex = ex.getCause();
+        }
+        return ex.getMessage();
+    }
+}
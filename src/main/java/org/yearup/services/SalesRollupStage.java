@@ -0,0 +1,35 @@
+package org.yearup.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Adds the order to the top sellers and revenue rollups
+@Component
+public class SalesRollupStage implements OrderStage
+{
+    private final SalesRollups salesRollups;
+
+    @Autowired
+    public SalesRollupStage(SalesRollups salesRollups)
+    {
+        this.salesRollups = salesRollups;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "sales rollups";
+    }
+
+    @Override
+    public int getOrder()
+    {
+        return 400;
+    }
+
+    @Override
+    public void process(PlacedOrder placed)
+    {
+        salesRollups.add(placed.getOrder());
+    }
+}
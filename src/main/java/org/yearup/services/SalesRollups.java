@@ -0,0 +1,66 @@
+package org.yearup.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.SalesReportDao;
+import org.yearup.models.Order;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+    Keeps the sales rollups behind /reports current. The SalesRollupStage adds every committed order
+    as it goes through the OrderPipeline - a few upserts per order - so the reports never aggregate
+    the raw order history on request.
+
+    rebuild() recomputes the rollups from the raw history, for after a migration or whenever the
+    totals are in doubt. The long part builds copies of the rollup tables while orders keep being
+    added to the live ones; only the short swap at the end holds adding off, and checkout never
+    waits at all. Like the other in-memory coordination here, this assumes a single application
+    instance; the database still never counts an order twice.
+ */
+@Component
+public class SalesRollups
+{
+    private final SalesReportDao salesReportDao;
+    private final ReadWriteLock rebuilding = new ReentrantReadWriteLock();
+    private final Object oneRebuild = new Object();
+
+    @Autowired
+    public SalesRollups(SalesReportDao salesReportDao)
+    {
+        this.salesReportDao = salesReportDao;
+    }
+
+    // false when the order was counted already
+    public boolean add(Order order)
+    {
+        rebuilding.readLock().lock();
+        try
+        {
+            return salesReportDao.addOrder(order.getOrderId());
+        }
+        finally
+        {
+            rebuilding.readLock().unlock();
+        }
+    }
+
+    // returns the number of orders counted; a second rebuild waits, since both would build the same copies
+    public int rebuild()
+    {
+        synchronized (oneRebuild)
+        {
+            int counted = salesReportDao.prepareRebuild();
+            rebuilding.writeLock().lock();
+            try
+            {
+                return counted + salesReportDao.finishRebuild();
+            }
+            finally
+            {
+                rebuilding.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.yearup.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.StockLedger;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Holds stock for orders while they are placed. reserve() takes the units off the stock right away,
+    confirm() keeps them taken once the order is written and release() puts them back. Reservations
+    that are neither confirmed nor released within stock.reservation-ttl-ms (ten minutes by default)
+    are released by the scheduled sweep, so an abandoned checkout cannot hold stock for good.
+
+    A reservation settles exactly once: confirm, release and the sweep all compare-and-set its state
+    away from PENDING, and only the winner moves stock. A committed order whose reservation the sweep
+    released first takes its units again; if they have been sold meanwhile, confirm() reports the
+    order as oversold.
+
+    Most products reserve straight against MySQL with a conditional UPDATE (MySqlProductDao.takeStock),
+    which never oversells. Checkouts of the same product still queue on its row lock, which is what a
+    promotion does to a single SKU. The products in stock.hot-products are fronted by an in-memory
+    counter instead: it leases stock.lease-size units at a time with the same conditional UPDATE, and
+    reservations take from the lease with a compare-and-set - one database write per lease instead of
+    one per reservation. Every stock.reconcile-ms the sweep hands leases that saw no reservations back
+    to MySQL in one batch, as does shutdown, so an idle product's stock column is exact.
+
+    Leased units are missing from the stock column while leased. If the application dies they are lost
+    to sale until the stock is corrected - it can undersell, never oversell. Reservations live in memory,
+    so, like the write-behind cart, this assumes a single application instance.
+ */
+@Component
+public class StockReservations
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StockReservations.class);
+
+    private final StockLedger ledger;
+    private final Clock clock;
+    private final Duration timeToLive;
+    private final int leaseSize;
+    private final Map<Integer, HotStock> hotStock;
+    private final Map<Long, Reservation> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> owed = new ConcurrentHashMap<>();  // productId -> units to put back in MySQL
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Autowired
+    public StockReservations(StockLedger ledger,
+                             @Value("${stock.hot-products:}") String hotProducts,
+                             @Value("${stock.lease-size:50}") int leaseSize,
+                             @Value("${stock.reservation-ttl-ms:600000}") long timeToLiveMs)
+    {
+        this(ledger, parseIds(hotProducts), leaseSize, Duration.ofMillis(timeToLiveMs), Clock.systemUTC());
+    }
+
+    StockReservations(StockLedger ledger, Set<Integer> hotProducts, int leaseSize, Duration timeToLive, Clock clock)
+    {
+        this.ledger = ledger;
+        this.leaseSize = leaseSize;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+
+        Map<Integer, HotStock> hot = new HashMap<>();
+        hotProducts.forEach(productId -> hot.put(productId, new HotStock(productId)));
+        this.hotStock = Map.copyOf(hot);
+    }
+
+    // whether the product is fronted by an in-memory lease (stock.hot-products)
+    public boolean isHot(int productId)
+    {
+        return hotStock.containsKey(productId);
+    }
+
+    // null when there are not enough units left
+    public Reservation reserve(int productId, int quantity)
+    {
+        if (quantity <= 0)
+        {
+            throw new IllegalArgumentException("quantity must be positive.");
+        }
+
+        HotStock hot = hotStock.get(productId);
+        boolean taken = hot != null ? hot.take(quantity) : ledger.takeStock(productId, quantity);
+        if (!taken)
+        {
+            return null;
+        }
+
+        Reservation reservation = new Reservation(nextId.incrementAndGet(), productId, quantity, clock.instant().plus(timeToLive));
+        pending.put(reservation.getReservationId(), reservation);
+        return reservation;
+    }
+
+    // the order was written, so the units stay sold; confirming again is a no-op. When the sweep released
+    // the reservation first, the units are taken again - false when they are gone, i.e. the order is oversold.
+    public boolean confirm(Reservation reservation)
+    {
+        if (reservation.settle(Reservation.State.CONFIRMED))
+        {
+            pending.remove(reservation.getReservationId());
+            return true;
+        }
+        if (reservation.state.get() == Reservation.State.CONFIRMED)
+        {
+            return true;
+        }
+
+        // released by the sweep; take the units back before anyone else confirms it
+        if (!reservation.state.compareAndSet(Reservation.State.RELEASED, Reservation.State.CONFIRMED))
+        {
+            return true;
+        }
+        try
+        {
+            HotStock hot = hotStock.get(reservation.getProductId());
+            return hot != null ? hot.take(reservation.getQuantity()) : ledger.takeStock(reservation.getProductId(), reservation.getQuantity());
+        }
+        catch (RuntimeException ex)
+        {
+            reservation.state.set(Reservation.State.RELEASED);  // nothing was taken; a retry tries again
+            throw ex;
+        }
+    }
+
+    public void release(Reservation reservation)
+    {
+        if (reservation.settle(Reservation.State.RELEASED))
+        {
+            pending.remove(reservation.getReservationId());
+            giveBack(reservation.getProductId(), reservation.getQuantity());
+            returnOwed();
+        }
+    }
+
+    public int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    // releases expired reservations and returns idle leases, all in one batch
+    @Scheduled(fixedDelayString = "${stock.reconcile-ms:5000}")
+    public void sweep()
+    {
+        Instant now = clock.instant();
+        for (Reservation reservation : pending.values())
+        {
+            if (reservation.getExpiresAt().isBefore(now) && reservation.settle(Reservation.State.RELEASED))
+            {
+                pending.remove(reservation.getReservationId());
+                giveBack(reservation.getProductId(), reservation.getQuantity());
+            }
+        }
+
+        for (HotStock hot : hotStock.values())
+        {
+            int unused = hot.drainIfIdle();
+            if (unused > 0)
+            {
+                owed.merge(hot.productId, unused, Integer::sum);
+            }
+        }
+        returnOwed();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        for (HotStock hot : hotStock.values())
+        {
+            int unused = hot.leased.getAndSet(0);
+            if (unused > 0)
+            {
+                owed.merge(hot.productId, unused, Integer::sum);
+            }
+        }
+        returnOwed();
+        if (!owed.isEmpty())
+        {
+            LOG.error("could not return leased stock to the database before shutdown: {}", owed);
+        }
+    }
+
+    // a hot product's units go back to its lease; everyone else's to MySQL
+    private void giveBack(int productId, int quantity)
+    {
+        HotStock hot = hotStock.get(productId);
+        if (hot != null)
+        {
+            hot.leased.addAndGet(quantity);
+        }
+        else
+        {
+            owed.merge(productId, quantity, Integer::sum);
+        }
+    }
+
+    private synchronized void returnOwed()
+    {
+        Map<Integer, Integer> batch = new HashMap<>();
+        for (Integer productId : owed.keySet())
+        {
+            Integer quantity = owed.remove(productId);
+            if (quantity != null)
+            {
+                batch.put(productId, quantity);
+            }
+        }
+        if (batch.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            ledger.returnStock(batch);
+        }
+        catch (RuntimeException ex)
+        {
+            // keep owing the units; the next sweep retries
+            batch.forEach((productId, quantity) -> owed.merge(productId, quantity, Integer::sum));
+            LOG.warn("could not return stock for {} products, will retry", batch.size(), ex);
+        }
+    }
+
+    private static Set<Integer> parseIds(String ids)
+    {
+        Set<Integer> parsed = new HashSet<>();
+        for (String id : ids.split(","))
+        {
+            if (!id.isBlank())
+            {
+                parsed.add(Integer.parseInt(id.trim()));
+            }
+        }
+        return parsed;
+    }
+
+    // the in-memory counter in front of one hot product
+    private final class HotStock
+    {
+        private final int productId;
+        private final AtomicInteger leased = new AtomicInteger();  // units taken from MySQL and not reserved yet
+        private volatile boolean used;                              // reserved from since the last sweep
+
+        private HotStock(int productId)
+        {
+            this.productId = productId;
+        }
+
+        boolean take(int quantity)
+        {
+            used = true;
+            while (!tryTake(quantity))
+            {
+                // one thread refills while the others keep taking whatever is left
+                synchronized (this)
+                {
+                    if (tryTake(quantity))
+                    {
+                        return true;
+                    }
+
+                    int lease = Math.max(leaseSize, quantity);
+                    if (ledger.takeStock(productId, lease))
+                    {
+                        leased.addAndGet(lease);
+                        continue;
+                    }
+
+                    // less than a lease left in MySQL - take just what is missing, if that much is there
+                    int missing = quantity - leased.get();
+                    if (missing > 0 && !ledger.takeStock(productId, missing))
+                    {
+                        return false;
+                    }
+                    leased.addAndGet(Math.max(missing, 0));
+                }
+            }
+            return true;
+        }
+
+        private boolean tryTake(int quantity)
+        {
+            int current = leased.get();
+            while (current >= quantity)
+            {
+                if (leased.compareAndSet(current, current - quantity))
+                {
+                    return true;
+                }
+                current = leased.get();
+            }
+            return false;
+        }
+
+        int drainIfIdle()
+        {
+            if (used)
+            {
+                used = false;
+                return 0;
+            }
+            return leased.getAndSet(0);
+        }
+    }
+
+    public static final class Reservation
+    {
+        private enum State
+        {
+            PENDING,
+            CONFIRMED,
+            RELEASED
+        }
+
+        private final long reservationId;
+        private final int productId;
+        private final int quantity;
+        private final Instant expiresAt;
+        private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+
+        private Reservation(long reservationId, int productId, int quantity, Instant expiresAt)
+        {
+            this.reservationId = reservationId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        public long getReservationId()
+        {
+            return reservationId;
+        }
+
+        public int getProductId()
+        {
+            return productId;
+        }
+
+        public int getQuantity()
+        {
+            return quantity;
+        }
+
+        public Instant getExpiresAt()
+        {
+            return expiresAt;
+        }
+
+        // true for the one caller that moves the reservation out of PENDING
+        private boolean settle(State outcome)
+        {
+            return state.compareAndSet(State.PENDING, outcome);
+        }
+    }
+}
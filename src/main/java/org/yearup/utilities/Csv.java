@@ -0,0 +1,90 @@
+package org.yearup.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal RFC 4180 helpers: fields are comma separated and may be quoted, with "" standing for a literal
+// quote inside a quoted field. A quoted field may hold line breaks, so a record can span several lines;
+// readers join lines while continuesOnNextLine says the record is still open.
+public final class Csv
+{
+    private Csv()
+    {
+    }
+
+    public static List<String> parseLine(String line)
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    field.append(c);
+                }
+            }
+            else if (c == '"')
+            {
+                quoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+            {
+                field.append(c);
+            }
+        }
+
+        if (quoted)
+        {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // true when the text ends inside a quoted field - an odd number of quotes, since "" comes in pairs
+    public static boolean continuesOnNextLine(String text)
+    {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) == '"')
+            {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 1;
+    }
+
+    // quotes the value only when it contains a comma, quote or line break
+    public static String escape(String value)
+    {
+        if (value == null)
+        {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+        {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,42 @@
+package org.yearup.utilities;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A fixed set of locks shared out by key: the same key always gets the same lock, and different keys
+// usually get different ones. Work on one key is serialized without one global lock for everything,
+// and the memory stays fixed however many keys there are.
+public final class StripedLock
+{
+    private final Lock[] stripes;
+    private final int mask;
+
+    // the stripe count is rounded up to a power of two; 1 (or less) gives a single lock
+    public StripedLock(int stripes)
+    {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++)
+        {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public Lock forKey(int key)
+    {
+        return stripes[stripe(key)];
+    }
+
+    public int size()
+    {
+        return stripes.length;
+    }
+
+    // consecutive ids (users 1, 2, 3...) land on different stripes
+    public int stripe(int key)
+    {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -84,4 +84,14 @@ public class TestDatabaseConfig
 
         return dataSource;
     }
+
+    // A connection of its own to the test database that commits like a pooled one, for the few tests that count
+    // commits: the shared connection above is rolled back after every test, which a commit on it would defeat.
+    // Nothing undoes what goes through this one, so a test using it deletes its rows itself.
+    public SingleConnectionDataSource committingDataSource()
+    {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(String.format("%s/%s", serverUrl, testDb), username, password, true);
+        dataSource.setAutoCommit(true);
+        return dataSource;
+    }
 }
@@ -0,0 +1,58 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.BulkImportResult;
+import org.yearup.models.Product;
+import org.yearup.services.ProductImportService;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductStreamsTest
+{
+    @Test
+    public void acceptsGzip_shouldHonor_theQValues()
+    {
+        assertTrue(ProductStreams.acceptsGzip("gzip, deflate, br"), "Because gzip is listed.");
+        assertTrue(ProductStreams.acceptsGzip("br;q=1.0, GZIP;q=0.5"), "Because any weight above zero accepts gzip.");
+        assertTrue(ProductStreams.acceptsGzip("*"), "Because the wildcard accepts every coding.");
+        assertFalse(ProductStreams.acceptsGzip("gzip;q=0"), "Because q=0 means the client refuses gzip.");
+        assertFalse(ProductStreams.acceptsGzip("*;q=1, gzip;q=0.0"), "Because the explicit gzip entry wins over the wildcard.");
+        assertFalse(ProductStreams.acceptsGzip("identity"), "Because gzip is not listed.");
+        assertFalse(ProductStreams.acceptsGzip(null), "Because a client without the header gets plain bytes.");
+    }
+
+    @Test
+    public void csvExport_shouldImportBack_aDescriptionWithLineBreaks() throws IOException
+    {
+        // arrange
+        Product desk = new Product(7, "Desk, oak", new BigDecimal("199.99"), 2,
+                                   "Solid oak.\nSeats \"four\".\r\nAssembly required.", "Brown", 3, true, "desk.jpg");
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        ProductStreams.csvExport(consumer -> consumer.accept(desk, "Home"), false).writeTo(exported);
+
+        List<Product> stored = new ArrayList<>();  // stands in for MySQL, keeping whatever is inserted
+        ProductImportService importer = new ProductImportService(products -> {
+            stored.addAll(products);
+            return products;
+        }, new ObjectMapper(), event -> { });
+
+        // act
+        BulkImportResult result = importer.importCsv(new BufferedReader(new StringReader(exported.toString(StandardCharsets.UTF_8))));
+
+        // assert
+        assertTrue(result.getErrors().isEmpty(), "Because every exported record is readable.");
+        assertEquals(1, stored.size(), "Because the quoted line breaks belong to one record.");
+        Product imported = stored.get(0);
+        assertEquals("Desk, oak", imported.getName(), "Because the name survives the round trip.");
+        assertEquals("Solid oak.\nSeats \"four\".\nAssembly required.", imported.getDescription(),
+                "Because the line breaks and quotes survive the round trip, each break read as \\n.");
+        assertEquals("Brown", imported.getColor(), "Because the fields after the description are still in their columns.");
+    }
+}
@@ -0,0 +1,219 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductDao;
+import org.yearup.data.memory.FeaturedProducts;
+import org.yearup.data.memory.ProductTextIndex;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductRowPage;
+import org.yearup.models.ProductSearchCriteria;
+import org.yearup.services.CatalogVersion;
+import org.yearup.services.ProductImportService;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProductsControllerTest
+{
+    private final FakeProducts database = new FakeProducts();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setup()
+    {
+        database.rows.add(new Product(1, "Oak Desk", new BigDecimal("199.99"), 2, "seats four", "Brown", 3, true, "desk.jpg"));
+        database.rows.add(new Product(2, "Desk Lamp", new BigDecimal("19.99"), 2, null, "Red", 0, false, null));
+
+        ProductsController controller = new ProductsController(database, objectMapper, new ProductTextIndex(() -> database.rows),
+                                                               new ProductImportService(database, objectMapper, event -> { }),
+                                                               catalogVersion, new FeaturedProducts(List::of, event -> { }));
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    public void search_shouldAnswer304_toTheCurrentETag_withoutReadingProducts() throws Exception
+    {
+        // arrange
+        String etag = mvc.perform(get("/products"))
+                         .andExpect(status().isOk())
+                         .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        int reads = database.reads;
+
+        // act / assert
+        mvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+           .andExpect(status().isNotModified())
+           .andExpect(content().string(""));
+        assertNotNull(etag, "Because catalog reads carry the catalog version as their ETag.");
+        assertEquals(reads, database.reads, "Because the 304 is answered before the handler reads anything.");
+    }
+
+    @Test
+    public void search_shouldAnswer200_onceTheCatalogChanged() throws Exception
+    {
+        // arrange
+        String etag = mvc.perform(get("/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        catalogVersion.onProductChanged(ProductChangedEvent.updated(database.rows.get(0)));
+
+        // act
+        String fresh = mvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                          .andExpect(status().isOk())
+                          .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // assert
+        assertNotEquals(etag, fresh, "Because a product write moves the catalog version.");
+    }
+
+    @Test
+    public void searchStream_shouldWrite_theSameJsonArrayAsSearch() throws Exception
+    {
+        // arrange
+        String listed = mvc.perform(get("/products")).andReturn().getResponse().getContentAsString();
+
+        // act - the body is written on an async thread once the handler returns
+        MvcResult started = mvc.perform(get("/products").param("stream", "true"))
+                               .andExpect(request().asyncStarted())
+                               .andReturn();
+        String streamed = mvc.perform(asyncDispatch(started))
+                             .andExpect(status().isOk())
+                             .andReturn().getResponse().getContentAsString();
+
+        // assert
+        assertEquals(objectMapper.readTree(listed), objectMapper.readTree(streamed),
+                "Because streaming changes how the array is written, not what it holds.");
+        assertEquals(2, objectMapper.readTree(streamed).size(), "Because both products were streamed.");
+        assertEquals(1, database.streams, "Because the products are pushed from one database read.");
+    }
+
+    // stands in for MySQL, serving the rows the test set up and counting the reads
+    private static class FakeProducts implements ProductDao
+    {
+        private final List<Product> rows = new ArrayList<>();
+        private int reads;
+        private int streams;
+
+        @Override
+        public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+        {
+            reads++;
+            return new ArrayList<>(rows);
+        }
+
+        @Override
+        public void stream(ProductSearchCriteria criteria, Consumer<Product> consumer)
+        {
+            streams++;
+            rows.forEach(consumer);
+        }
+
+        @Override
+        public ProductPage searchPage(ProductSearchCriteria criteria)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Map<String, Object>> searchFields(ProductSearchCriteria criteria, Set<ProductField> fields)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProductRowPage searchPageFields(ProductSearchCriteria criteria, Set<ProductField> fields)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void exportWithCategories(BiConsumer<Product, String> consumer)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProductFacets getFacets(ProductSearchCriteria criteria)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> listByCategoryId(int categoryId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> listFeatured()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Product getById(int productId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> getByIds(Collection<Integer> productIds)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Product create(Product product)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> createAll(List<Product> products)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> insertAll(List<Product> products)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void update(int productId, Product product)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean adjustStock(int productId, int delta)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(int productId)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.yearup.data.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.CategoryChangedEvent;
+import org.yearup.data.CategoryDao;
+import org.yearup.models.Category;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingCategoryDaoTest
+{
+    private final FakeCategories database = new FakeCategories();
+    private CachingCategoryDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database.rows.put(1, new Category(1, "Electronics", "gadgets"));
+        database.rows.put(2, new Category(2, "Fashion", "clothes"));
+        dao = new CachingCategoryDao(database);
+        dao.load();
+        database.events = dao::onCategoryChanged;
+    }
+
+    @Test
+    public void update_shouldServe_theWrittenCategory()
+    {
+        // act
+        dao.update(1, new Category(1, "Electronics & Audio", "gadgets"));
+
+        // assert
+        assertEquals("Electronics & Audio", dao.getById(1).getName(), "Because the update reached the cache.");
+    }
+
+    @Test
+    public void update_shouldReadAgain_aCategoryItCouldNotReadBack()
+    {
+        // arrange - the write goes through, the read after it fails
+        database.failReads = true;
+        assertThrows(IllegalStateException.class, () -> dao.update(1, new Category(1, "Electronics & Audio", "gadgets")));
+        database.failReads = false;
+
+        // act
+        Category category = dao.getById(1);
+
+        // assert
+        assertEquals("Electronics & Audio", category.getName(), "Because the old cached copy must not outlive the update.");
+    }
+
+    @Test
+    public void getById_shouldRemember_aCategoryAddedOutsideTheApplication()
+    {
+        // arrange
+        database.rows.put(3, new Category(3, "Garden", "plants"));
+        dao.getById(3);
+        database.failReads = true;
+
+        // act
+        Category category = dao.getById(3);
+
+        // assert
+        assertEquals("Garden", category.getName(), "Because the first read cached the row.");
+    }
+
+    @Test
+    public void getById_shouldReport_aFailedRead_ofACategoryNotCached()
+    {
+        // arrange - added outside the application, then MySQL becomes unreachable
+        database.rows.put(3, new Category(3, "Garden", "plants"));
+        database.failReads = true;
+
+        // act / assert
+        assertThrows(IllegalStateException.class, () -> dao.getById(3), "Because the caller must not read the failure as a 404.");
+    }
+
+    @Test
+    public void delete_shouldForget_aCategoryMySqlNoLongerHas()
+    {
+        // act
+        dao.delete(2);
+
+        // assert
+        assertNull(dao.getById(2), "Because MySQL read the category back as not found.");
+        assertEquals(1, dao.getAllCategories().size(), "Because only one category is left.");
+    }
+
+    @Test
+    public void getAllCategories_shouldRetry_aFailedLoad()
+    {
+        // arrange - MySQL is unreachable at startup
+        database.failReads = true;
+        CachingCategoryDao cache = new CachingCategoryDao(database);
+        cache.load();
+        database.failReads = false;
+
+        // act
+        List<Category> categories = cache.getAllCategories();
+
+        // assert
+        assertEquals(2, categories.size(), "Because a failed load is not an empty table.");
+    }
+
+    @Test
+    public void getAllCategories_shouldCache_anEmptyTable()
+    {
+        // arrange
+        database.rows.clear();
+        CachingCategoryDao cache = new CachingCategoryDao(database);
+        cache.load();
+        database.listings = 0;
+
+        // act
+        cache.getAllCategories();
+        cache.getAllCategories();
+
+        // assert
+        assertEquals(0, database.listings, "Because an empty table loaded fine and needs no second read.");
+    }
+
+    // stands in for MySQL: the categories table as a map, with reads that can be made to fail, publishing
+    // its writes as MySqlCategoryDao does
+    private static class FakeCategories implements CategoryDao
+    {
+        private final Map<Integer, Category> rows = new HashMap<>();
+        private Consumer<CategoryChangedEvent> events = event -> { };
+        private boolean failReads;
+        private int listings;
+
+        @Override
+        public List<Category> getAllCategories()
+        {
+            if (failReads)
+            {
+                throw new IllegalStateException("Communications link failure");
+            }
+            listings++;
+            return new ArrayList<>(rows.values());
+        }
+
+        @Override
+        public Category getById(int categoryId)
+        {
+            if (failReads)
+            {
+                throw new IllegalStateException("Communications link failure");
+            }
+            return rows.get(categoryId);
+        }
+
+        @Override
+        public Category create(Category category)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void update(int categoryId, Category category)
+        {
+            rows.put(categoryId, category);
+            events.accept(CategoryChangedEvent.updated(getById(categoryId)));
+        }
+
+        @Override
+        public void delete(int categoryId)
+        {
+            rows.remove(categoryId);
+            events.accept(CategoryChangedEvent.deleted(categoryId));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.yearup.data.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductFieldSource;
+import org.yearup.models.Category;
+import org.yearup.models.CategorySummary;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductSearchCriteria;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategorySummariesTest
+{
+    private final FakeProducts database = new FakeProducts();
+    private CategorySummaries summaries;
+
+    @BeforeEach
+    public void setup()
+    {
+        database.store(product(1, 1, "10.00", 5));
+        database.store(product(2, 1, "30.00", 0));
+        database.store(product(3, 2, "20.00", 2));
+        database.store(product(4, 2, "20.00", 1));
+        summaries = new CategorySummaries(database);
+        summaries.load();
+    }
+
+    @Test
+    public void create_shouldMatch_aFullRecompute()
+    {
+        // act - a new cheapest product, and the first of category 3
+        List<Product> created = List.of(product(5, 1, "5.00", 1), product(6, 3, "99.00", 0));
+        created.forEach(database::store);
+        summaries.onProductChanged(ProductChangedEvent.created(created));
+
+        // assert
+        assertMatchesRecompute();
+        assertEquals(new BigDecimal("5.00"), summarize(1).getMinPrice(), "Because product 5 is the cheapest in category 1.");
+    }
+
+    @Test
+    public void priceChange_shouldMatch_aFullRecompute()
+    {
+        // act - one of the two products at 20.00 goes up, so 20.00 must stay the minimum
+        Product changed = product(3, 2, "25.00", 2);
+        database.store(changed);
+        summaries.onProductChanged(ProductChangedEvent.updated(changed));
+
+        // assert
+        assertMatchesRecompute();
+        assertEquals(new BigDecimal("20.00"), summarize(2).getMinPrice(), "Because product 4 still costs 20.00.");
+        assertEquals(new BigDecimal("25.00"), summarize(2).getMaxPrice(), "Because product 3 now costs 25.00.");
+    }
+
+    @Test
+    public void categoryMove_shouldMatch_aFullRecompute()
+    {
+        // act - the out-of-stock 30.00 product moves from category 1 to 2
+        Product moved = product(2, 2, "30.00", 0);
+        database.store(moved);
+        summaries.onProductChanged(ProductChangedEvent.updated(moved));
+
+        // assert
+        assertMatchesRecompute();
+        assertEquals(1, summarize(1).getProductCount(), "Because product 2 left category 1.");
+        assertEquals(new BigDecimal("10.00"), summarize(1).getMaxPrice(), "Because 30.00 left category 1 with product 2.");
+        assertEquals(3, summarize(2).getProductCount(), "Because product 2 joined category 2.");
+    }
+
+    @Test
+    public void delete_shouldMatch_aFullRecompute()
+    {
+        // act - category 1 loses its cheapest product, then category 2 both of its products
+        for (int productId : List.of(1, 3, 4))
+        {
+            database.drop(productId);
+            summaries.onProductChanged(ProductChangedEvent.deleted(productId));
+        }
+
+        // assert
+        assertMatchesRecompute();
+        assertEquals(new BigDecimal("30.00"), summarize(1).getMinPrice(), "Because only product 2 is left in category 1.");
+        assertEquals(0, summarize(2).getProductCount(), "Because category 2 has no products left.");
+        assertNull(summarize(2).getMinPrice(), "Because an empty category has no price range.");
+    }
+
+    @Test
+    public void summarize_shouldRetry_aLoadThatFailed()
+    {
+        // arrange - MySQL is unreachable at startup
+        database.unreachable = true;
+        CategorySummaries fresh = new CategorySummaries(database);
+        fresh.load();
+        database.unreachable = false;
+
+        // act
+        CategorySummary summary = fresh.summarize(new Category(2, "category 2", null));
+
+        // assert
+        assertEquals(2, summary.getProductCount(), "Because a failed load is retried, not served as empty categories.");
+    }
+
+    @Test
+    public void onProductChanged_shouldRetry_aLoadThatFailed()
+    {
+        // arrange - MySQL is unreachable at startup
+        database.unreachable = true;
+        CategorySummaries fresh = new CategorySummaries(database);
+        fresh.load();
+        database.unreachable = false;
+
+        // act - the first write after it
+        Product created = product(5, 1, "5.00", 1);
+        database.store(created);
+        fresh.onProductChanged(ProductChangedEvent.created(List.of(created)));
+
+        // assert
+        assertEquals(3, fresh.summarize(new Category(1, "category 1", null)).getProductCount(),
+                "Because the write reloads every product, not only the one it carries.");
+    }
+
+    private void assertMatchesRecompute()
+    {
+        CategorySummaries recomputed = new CategorySummaries(database);
+        recomputed.load();
+        for (int categoryId = 1; categoryId <= 3; categoryId++)
+        {
+            Category category = new Category(categoryId, "category " + categoryId, null);
+            assertEquals(describe(recomputed.summarize(category)), describe(summaries.summarize(category)),
+                    "Because the kept totals of category " + categoryId + " must equal a scan of the products.");
+        }
+    }
+
+    private CategorySummary summarize(int categoryId)
+    {
+        return summaries.summarize(new Category(categoryId, "category " + categoryId, null));
+    }
+
+    private static String describe(CategorySummary summary)
+    {
+        return summary.getProductCount() + " products, " + summary.getInStockCount() + " in stock, "
+               + summary.getMinPrice() + " to " + summary.getMaxPrice();
+    }
+
+    private static Product product(int productId, int categoryId, String price, int stock)
+    {
+        return new Product(productId, "product " + productId, new BigDecimal(price), categoryId, null, "Red", stock, false, null);
+    }
+
+    // stands in for MySQL: the products table as a map, projected as searchFields would
+    private static class FakeProducts implements ProductFieldSource
+    {
+        private final Map<Integer, Product> rows = new TreeMap<>();
+        private boolean unreachable;
+
+        void store(Product product)
+        {
+            rows.put(product.getProductId(), product);
+        }
+
+        void drop(int productId)
+        {
+            rows.remove(productId);
+        }
+
+        @Override
+        public List<Map<String, Object>> searchFields(ProductSearchCriteria criteria, Set<ProductField> fields)
+        {
+            if (unreachable)
+            {
+                throw new IllegalStateException("Communications link failure");
+            }
+            List<Map<String, Object>> projected = new ArrayList<>();
+            for (Product product : rows.values())
+            {
+                Map<String, Object> row = new HashMap<>();
+                row.put(ProductField.PRODUCT_ID.getProperty(), product.getProductId());
+                row.put(ProductField.CATEGORY_ID.getProperty(), product.getCategoryId());
+                row.put(ProductField.PRICE.getProperty(), product.getPrice());
+                row.put(ProductField.STOCK.getProperty(), product.getStock());
+                projected.add(row);
+            }
+            return projected;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.yearup.data.memory;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeaturedProductsTest
+{
+    private List<Product> rows = List.of();  // what MySQL lists as featured
+    private final List<Object> events = new ArrayList<>();
+    private final FeaturedProducts featured = new FeaturedProducts(() -> rows, events::add);
+
+    @Test
+    public void reload_shouldAnnounce_aListChangedOutsideTheApplication()
+    {
+        // arrange
+        rows = List.of(lamp("19.99"));
+        featured.reload();
+        events.clear();
+
+        // act - a SQL script changed the price
+        rows = List.of(lamp("24.99"));
+        featured.reload();
+
+        // assert
+        assertEquals(1, events.size(), "Because the served list changed, so the catalog ETag must move.");
+        assertEquals(new BigDecimal("24.99"), featured.list().get(0).getPrice(), "Because the reload serves the new row.");
+    }
+
+    @Test
+    public void reload_shouldStayQuiet_whenNothingChanged()
+    {
+        // arrange
+        rows = List.of(lamp("19.99"));
+        featured.reload();
+        events.clear();
+
+        // act - the same row, read again
+        rows = List.of(lamp("19.990"));
+        featured.reload();
+
+        // assert
+        assertTrue(events.isEmpty(), "Because clients holding the current ETag still hold the current list.");
+    }
+
+    private static Product lamp(String price)
+    {
+        return new Product(1, "Lamp", new BigDecimal(price), 1, "a lamp", "Red", 5, true, "lamp.jpg");
+    }
+}
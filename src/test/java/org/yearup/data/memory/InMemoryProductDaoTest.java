@@ -0,0 +1,91 @@
+package org.yearup.data.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.mysql.BaseDaoTestClass;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemoryProductDaoTest extends BaseDaoTestClass
+{
+    private MySqlProductDao mySqlDao;
+    private InMemoryProductDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        // deliver the events MySqlProductDao publishes straight to the catalog, as Spring would
+        mySqlDao = new MySqlProductDao(dataSource, event -> dao.onProductChanged((ProductChangedEvent) event));
+        dao = new InMemoryProductDao(mySqlDao);
+        dao.load();
+    }
+
+    @Test
+    public void search_shouldReturn_theSameProductsAsMySql()
+    {
+        // arrange
+        BigDecimal minPrice = new BigDecimal("25");
+        BigDecimal maxPrice = new BigDecimal("100");
+
+        // act
+        var expected = ids(mySqlDao.search(1, minPrice, maxPrice, null));
+        var actual = ids(dao.search(1, minPrice, maxPrice, null));
+
+        // assert
+        assertEquals(expected, actual, "Because the catalog should match the database for category 1 between $25 and $100.");
+    }
+
+    @Test
+    public void search_byColor_shouldIgnoreCase()
+    {
+        // arrange
+        var expected = ids(mySqlDao.search(null, null, null, "black"));
+
+        // act
+        var actual = ids(dao.search(null, null, null, "BLACK"));
+
+        // assert
+        assertEquals(expected, actual, "Because MySQL matches colors without regard to case.");
+    }
+
+    @Test
+    public void update_shouldRefresh_theCatalog()
+    {
+        // arrange
+        Product product = mySqlDao.getById(1);
+        product.setPrice(new BigDecimal("1.00"));
+
+        // act
+        dao.update(1, product);
+        var actual = dao.search(null, null, new BigDecimal("1.00"), null);
+
+        // assert
+        assertEquals(List.of(1), ids(actual), "Because product 1 was just re-priced to $1.00.");
+    }
+
+    @Test
+    public void delete_shouldRemove_theProductFromTheCatalog()
+    {
+        // arrange
+        Product product = mySqlDao.create(new Product(0, "Temporary", new BigDecimal("5.00"), 1, "", "Black", 1, false, ""));
+
+        // act
+        dao.delete(product.getProductId());
+
+        // assert
+        assertNull(dao.getById(product.getProductId()), "Because the product was deleted.");
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        return products.stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,145 @@
+package org.yearup.data.memory;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.models.Product;
+import org.yearup.models.ProductSearchCriteria;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductTextIndexTest
+{
+    private final List<Product> rows = new ArrayList<>();
+    private boolean unreachable;
+
+    @Test
+    public void tokenize_shouldLowercase_andDrop_stopWordsAndSingleLetters()
+    {
+        // act
+        List<String> tokens = ProductTextIndex.tokenize("The Noise-Cancelling HEADPHONES, for 2x a set");
+
+        // assert
+        assertEquals(List.of("noise", "cancelling", "headphones", "2x", "set"), tokens,
+                "Because words split on anything but letters and digits, and stop words and single letters say nothing.");
+    }
+
+    @Test
+    public void search_shouldMatch_aPrefix_belowTheWholeWord()
+    {
+        // arrange
+        rows.add(product(1, "Headphones Wireless", null, 1));
+        rows.add(product(2, "Head Torch", null, 1));
+        rows.add(product(3, "Desk Lamp", null, 1));
+
+        // act
+        List<Integer> found = ids(index().search("head", new ProductSearchCriteria()));
+
+        // assert
+        assertEquals(List.of(2, 1), found, "Because \"head\" is a word of product 2 and only the start of one in product 1.");
+    }
+
+    @Test
+    public void search_shouldRank_aWordInTheName_aboveOneInTheDescription()
+    {
+        // arrange
+        rows.add(product(1, "Oak Chair", "fits under any desk", 1));
+        rows.add(product(2, "Oak Desk", "seats four", 1));
+        rows.add(product(3, "Pine Shelf", "holds books", 1));
+
+        // act
+        List<Integer> desk = ids(index().search("desk", new ProductSearchCriteria()));
+        List<Integer> oakDesk = ids(index().search("oak desk", new ProductSearchCriteria()));
+
+        // assert
+        assertEquals(List.of(2, 1), desk, "Because BM25 weighs the name three times the description.");
+        assertEquals(List.of(2, 1), oakDesk, "Because both products hold both words, the desk in the name first.");
+        assertTrue(ids(index().search("oak books", new ProductSearchCriteria())).isEmpty(), "Because every query word must match.");
+    }
+
+    @Test
+    public void search_shouldApply_theFilters()
+    {
+        // arrange
+        rows.add(product(1, "Oak Desk", null, 1));
+        rows.add(product(2, "Pine Desk", null, 2));
+
+        // act
+        List<Integer> found = ids(index().search("desk", new ProductSearchCriteria(2, null, null, null)));
+
+        // assert
+        assertEquals(List.of(2), found, "Because only product 2 is in category 2.");
+    }
+
+    @Test
+    public void search_shouldKeep_theCommonestTerms_whenAPrefixMatchesTooMany()
+    {
+        // arrange - 70 one-off terms "tea00".."tea69" sort ahead of "tezz", which three products share
+        for (int i = 0; i < 70; i++)
+        {
+            rows.add(product(100 + i, String.format("Tea%02d", i), null, 1));
+        }
+        rows.add(product(1, "Tezz Mug", null, 1));
+        rows.add(product(2, "Tezz Cup", null, 1));
+        rows.add(product(3, "Tezz Jug", null, 1));
+
+        // act
+        List<Integer> found = ids(index().search("te", new ProductSearchCriteria()));
+
+        // assert
+        assertTrue(found.containsAll(List.of(1, 2, 3)), "Because the term in the most products is scored, however late it sorts.");
+        assertEquals(3 + 63, found.size(), "Because a short prefix still scores 64 terms: \"tezz\" and 63 of the others.");
+    }
+
+    @Test
+    public void onProductChanged_shouldRetry_aLoadThatFailed()
+    {
+        // arrange - MySQL is unreachable at startup
+        rows.add(product(1, "Oak Desk", null, 1));
+        unreachable = true;
+        ProductTextIndex index = new ProductTextIndex(this::loadAll);
+        index.load();
+        unreachable = false;
+        rows.add(product(2, "Pine Desk", null, 1));
+
+        // act - the write of product 2 is the first event
+        index.onProductChanged(ProductChangedEvent.created(List.of(rows.get(1))));
+
+        // assert
+        assertEquals(Set.of(1, 2), new HashSet<>(ids(index.search("desk", new ProductSearchCriteria()))),
+                "Because the event loads every product, not only the one it carries.");
+    }
+
+    private ProductTextIndex index()
+    {
+        ProductTextIndex index = new ProductTextIndex(this::loadAll);
+        index.load();
+        return index;
+    }
+
+    private static Product product(int productId, String name, String description, int categoryId)
+    {
+        return new Product(productId, name, new BigDecimal("10.00"), categoryId, description, "Red", 5, false, null);
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        return products.stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+
+    // stands in for MySQL, returning the rows the test set up
+    private List<Product> loadAll()
+    {
+        if (unreachable)
+        {
+            throw new IllegalStateException("Communications link failure");
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,341 @@
+package org.yearup.data.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.CartStore;
+import org.yearup.data.ProductLookup;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindShoppingCartDaoStressTest
+{
+    private static final int STRIPES = 64;
+    private static final long IDLE_MS = 1_800_000;
+
+    @Test
+    public void concurrentUpdates_shouldNotLose_anyQuantity() throws Exception
+    {
+        // arrange
+        int threads = 8;
+        int users = 64;
+        int productsPerUser = 5;
+        int updatesPerThread = 25_000;
+
+        RecordingCartDao database = new RecordingCartDao();
+        WriteBehindShoppingCartDao dao = new WriteBehindShoppingCartDao(database, null, new SimpleMeterRegistry(), STRIPES, IDLE_MS);
+
+        int[][][] expected = new int[threads][users + 1][productsPerUser + 1];
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // act - every thread mixes single adds and batched deltas over the same users, with flushes in between
+        Future<?> flusher = pool.submit(() -> {
+            while (running.get())
+            {
+                dao.flushAll();
+            }
+        });
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            int thread = t;
+            workers.add(pool.submit(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < updatesPerThread; i++)
+                {
+                    int userId = 1 + random.nextInt(users);
+                    int productId = 1 + random.nextInt(productsPerUser);
+                    if (random.nextBoolean())
+                    {
+                        dao.addProduct(userId, productId);
+                        expected[thread][userId][productId]++;
+                    }
+                    else
+                    {
+                        dao.addQuantities(userId, Map.of(productId, 2));
+                        expected[thread][userId][productId] += 2;
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers)
+        {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        flusher.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        dao.flushAll();
+
+        // assert
+        for (int userId = 1; userId <= users; userId++)
+        {
+            for (int productId = 1; productId <= productsPerUser; productId++)
+            {
+                int total = 0;
+                for (int thread = 0; thread < threads; thread++)
+                {
+                    total += expected[thread][userId][productId];
+                }
+                assertEquals(total, database.quantity(userId, productId),
+                        "Because every update to user " + userId + ", product " + productId + " should reach the database.");
+            }
+        }
+    }
+
+    @Test
+    public void aSlowCartRead_shouldNotBlock_usersOnTheSameStripe() throws Exception
+    {
+        // arrange - one stripe, so both users share a lock
+        int busyUser = 1;
+        int otherUser = 2;
+
+        // reading the busy user's cart from MySQL hangs
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingCartDao database = new RecordingCartDao()
+        {
+            @Override
+            public ShoppingCart getByUserId(int userId)
+            {
+                if (userId == busyUser)
+                {
+                    try
+                    {
+                        release.await();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new ShoppingCart();
+            }
+        };
+        WriteBehindShoppingCartDao dao = new WriteBehindShoppingCartDao(database, null, new SimpleMeterRegistry(), 1, IDLE_MS);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        // act
+        Future<?> busy = pool.submit(() -> dao.addProduct(busyUser, 1));
+        int user = otherUser;
+        Future<?> other = pool.submit(() -> {
+            for (int i = 0; i < 1_000; i++)
+            {
+                dao.addProduct(user, 1);
+            }
+        });
+
+        // assert - the other user finishes while the busy one is still stuck
+        other.get(10, TimeUnit.SECONDS);
+        release.countDown();
+        busy.get(10, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        dao.flushAll();
+        assertEquals(1_000, database.quantity(otherUser, 1), "Because the other user's updates never waited for the busy cart's read.");
+    }
+
+    @Test
+    public void aCartReadBeforeACheckout_shouldNotBeInstalledAfterIt() throws Exception
+    {
+        // arrange - user 1 has product 1 in the database; the first read of the cart stalls after reading it
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingCartDao database = new RecordingCartDao()
+        {
+            @Override
+            public ShoppingCart getByUserId(int userId)
+            {
+                ShoppingCart cart = super.getByUserId(userId);
+                if (read.getCount() > 0)
+                {
+                    read.countDown();
+                    try
+                    {
+                        release.await();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return cart;
+            }
+        };
+        database.saveQuantities(Map.of(1, Map.of(1, 1)));
+        WriteBehindShoppingCartDao dao = new WriteBehindShoppingCartDao(database, new CatalogWithout(Set.of()),
+                                                                        new SimpleMeterRegistry(), STRIPES, IDLE_MS);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        // act - a checkout orders the cart and evicts it while the stale read is in flight
+        Future<ShoppingCart> cart = pool.submit(() -> dao.getByUserId(1));
+        read.await(10, TimeUnit.SECONDS);
+        database.saveQuantities(Map.of(1, Map.of(1, 0)));
+        dao.evict(1);
+        release.countDown();
+
+        // assert
+        assertTrue(cart.get(10, TimeUnit.SECONDS).getItems().isEmpty(), "Because the ordered line must not come back.");
+        assertEquals(2, database.loads.get(1), "Because the copy read before the checkout was thrown away and read again.");
+        pool.shutdown();
+    }
+
+    @Test
+    public void flush_shouldWrite_theOtherCarts_andDropTheLinesOfADeletedProduct()
+    {
+        // arrange - product 99 is deleted after user 1 put it in the cart
+        RecordingCartDao database = new RecordingCartDao();
+        database.deletedProducts.add(99);
+        WriteBehindShoppingCartDao dao = new WriteBehindShoppingCartDao(database, new CatalogWithout(database.deletedProducts),
+                                                                        new SimpleMeterRegistry(), STRIPES, IDLE_MS);
+        dao.addProduct(1, 1);
+        dao.addProduct(1, 99);
+        dao.addProduct(2, 1);
+
+        // act
+        dao.flushAll();
+        int writes = database.writes;
+        dao.flushAll();
+
+        // assert
+        assertEquals(1, database.quantity(2, 1), "Because user 2's cart does not depend on user 1's.");
+        assertEquals(1, database.quantity(1, 1), "Because user 1's other line is still written.");
+        assertEquals(0, database.quantity(1, 99), "Because the deleted product cannot be written.");
+        assertEquals(Set.of(1), dao.getByUserId(1).getItems().keySet(), "Because the deleted product was dropped from the cart.");
+        assertEquals(writes, database.writes, "Because nothing is left to retry.");
+    }
+
+    @Test
+    public void flush_shouldRetry_aCartThatFailed()
+    {
+        // arrange - the database is down for user 1's first write
+        RecordingCartDao database = new RecordingCartDao();
+        database.failUser = 1;
+        WriteBehindShoppingCartDao dao = new WriteBehindShoppingCartDao(database, new CatalogWithout(Set.of()),
+                                                                        new SimpleMeterRegistry(), STRIPES, IDLE_MS);
+        dao.addProduct(1, 1);
+        dao.addProduct(2, 1);
+
+        // act
+        dao.flushAll();
+        int afterFailure = database.quantity(1, 1);
+        database.failUser = 0;
+        dao.flushAll();
+
+        // assert
+        assertEquals(0, afterFailure, "Because user 1's write failed.");
+        assertEquals(1, database.quantity(2, 1), "Because user 2's cart was written anyway.");
+        assertEquals(1, database.quantity(1, 1), "Because the failed cart is retried on the next flush.");
+    }
+
+    @Test
+    public void evictIdle_shouldForget_cleanCarts_only()
+    {
+        // arrange - every cart counts as idle
+        RecordingCartDao database = new RecordingCartDao();
+        WriteBehindShoppingCartDao dao = new WriteBehindShoppingCartDao(database, null, new SimpleMeterRegistry(), STRIPES, 0);
+        dao.addProduct(1, 1);
+        dao.flush(1);
+        dao.addProduct(2, 1);  // not written yet
+
+        // act
+        dao.evictIdle();
+        dao.addProduct(1, 1);
+        dao.addProduct(2, 1);
+        dao.flushAll();
+
+        // assert
+        assertEquals(2, database.loads.get(1), "Because user 1's clean cart was forgotten and read again.");
+        assertEquals(1, database.loads.get(2), "Because user 2's cart had changes to write.");
+        assertEquals(2, database.quantity(1, 1), "Because the reloaded cart starts from what was written.");
+        assertEquals(2, database.quantity(2, 1), "Because no change to the dirty cart was lost.");
+    }
+
+    // stands in for the catalog: every product exists except the deleted ones
+    private static class CatalogWithout implements ProductLookup
+    {
+        private final Set<Integer> deleted;
+
+        CatalogWithout(Set<Integer> deleted)
+        {
+            this.deleted = deleted;
+        }
+
+        @Override
+        public List<Product> getByIds(Collection<Integer> productIds)
+        {
+            return productIds.stream()
+                             .filter(productId -> !deleted.contains(productId))
+                             .map(CatalogWithout::product)
+                             .collect(Collectors.toList());
+        }
+
+        private static Product product(int productId)
+        {
+            Product product = new Product();
+            product.setProductId(productId);
+            return product;
+        }
+    }
+
+    // stands in for MySQL: carts start empty and every flushed batch is applied to a map. A write is all or
+    // nothing and fails for a line of a deleted product (the foreign key) or any line of failUser.
+    private static class RecordingCartDao implements CartStore
+    {
+        private final Map<Integer, Map<Integer, Integer>> rows = new HashMap<>();
+        private final Map<Integer, Integer> loads = new ConcurrentHashMap<>();  // userId -> carts read
+        private final Set<Integer> deletedProducts = new HashSet<>();
+        private volatile int failUser;
+        private int writes;
+
+        @Override
+        public synchronized ShoppingCart getByUserId(int userId)
+        {
+            loads.merge(userId, 1, Integer::sum);
+            ShoppingCart cart = new ShoppingCart();
+            rows.getOrDefault(userId, Map.of()).forEach((productId, quantity) -> {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(CatalogWithout.product(productId));
+                item.setQuantity(quantity);
+                cart.add(item);
+            });
+            return cart;
+        }
+
+        @Override
+        public synchronized void saveQuantities(Map<Integer, Map<Integer, Integer>> quantities)
+        {
+            writes++;
+            quantities.forEach((userId, lines) -> lines.forEach((productId, quantity) -> {
+                if (userId == failUser || (quantity > 0 && deletedProducts.contains(productId)))
+                {
+                    throw new IllegalStateException("cannot write user " + userId + ", product " + productId);
+                }
+            }));
+            quantities.forEach((userId, lines) -> lines.forEach((productId, quantity) -> {
+                Map<Integer, Integer> cart = rows.computeIfAbsent(userId, id -> new HashMap<>());
+                if (quantity > 0)
+                {
+                    cart.put(productId, quantity);
+                }
+                else
+                {
+                    cart.remove(productId);
+                }
+            }));
+        }
+
+        synchronized int quantity(int userId, int productId)
+        {
+            return rows.getOrDefault(userId, Map.of()).getOrDefault(productId, 0);
+        }
+    }
+}
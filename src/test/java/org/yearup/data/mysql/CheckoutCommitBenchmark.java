@@ -0,0 +1,152 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yearup.configurations.DatabaseConfig;
+import org.yearup.data.PendingCheckout;
+import org.yearup.models.Profile;
+import org.yearup.models.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Checkout on a real MySQL: the same carts placed with one createFromCart - and one COMMIT - each, against
+    one createFromCarts for all of them under a single COMMIT, as OrderWriter's group commit does. Each
+    operation places every cart, so divide by the cart count for the time per order.
+
+    Uses the server and credentials in src/test/resources/application.properties and a pool set up by
+    DatabaseConfig, so batches go out as the application sends them. It loads test-data.sql into a database
+    of its own, easyshop_benchmark, and drops it at the end. Not part of the test run; run main() from the
+    IDE, or
+
+        mvn test-compile exec:java -Dexec.mainClass=org.yearup.data.mysql.CheckoutCommitBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutCommitBenchmark
+{
+    private static final String DATABASE = "easyshop_benchmark";
+
+    @Param({"1", "10", "50"})
+    public int carts;
+
+    private Properties settings;
+    private BasicDataSource dataSource;
+    private MySqlOrderDao orderDao;
+    private MySqlShoppingCartDao cartDao;
+    private final Map<Integer, Map<Integer, Integer>> quantities = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws IOException, SQLException
+    {
+        settings = new Properties();
+        try (InputStream in = CheckoutCommitBenchmark.class.getResourceAsStream("/application.properties"))
+        {
+            settings.load(in);
+        }
+        execute("DROP DATABASE IF EXISTS " + DATABASE, "CREATE DATABASE " + DATABASE);
+
+        dataSource = new DatabaseConfig(String.format("%s/%s", settings.getProperty("datasource.url"), DATABASE),
+                                        settings.getProperty("datasource.username"),
+                                        settings.getProperty("datasource.password")).dataSource();
+        try (Connection connection = dataSource.getConnection();
+             Reader script = new InputStreamReader(CheckoutCommitBenchmark.class.getResourceAsStream("/test-data.sql"), StandardCharsets.UTF_8))
+        {
+            ScriptRunner runner = new ScriptRunner(connection);
+            runner.setAutoCommit(true);
+            runner.setLogWriter(null);
+            runner.runScript(script);
+        }
+
+        orderDao = new MySqlOrderDao(dataSource);
+        cartDao = new MySqlShoppingCartDao(dataSource);
+        MySqlUserDao userDao = new MySqlUserDao(dataSource);
+        MySqlProfileDao profileDao = new MySqlProfileDao(dataSource);
+        for (int i = 0; i < carts; i++)
+        {
+            User user = userDao.create(new User(0, "benchmark-" + i, "password", "ROLE_USER"));
+            profileDao.create(new Profile(user.getId(), "Bench", "Mark", "800-555-0000", "bench@email.com",
+                                          "12 Test Lane", "Dallas", "TX", "75051"));
+            quantities.put(user.getId(), Map.of(1, 1, 3, 2));
+        }
+    }
+
+    // every operation empties the carts it places; a few milliseconds of checkout per operation keep the
+    // per-invocation setup from skewing the timings
+    @Setup(Level.Invocation)
+    public void fillCarts() throws SQLException
+    {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.executeUpdate("UPDATE products SET stock = 1000000");  // never runs short, however long it runs
+        }
+        cartDao.saveQuantities(quantities);
+    }
+
+    @Benchmark
+    public void perOrderCommit()
+    {
+        for (int userId : quantities.keySet())
+        {
+            orderDao.createFromCart(userId, Set.of(), cart -> cart);
+        }
+    }
+
+    @Benchmark
+    public void groupCommit()
+    {
+        List<PendingCheckout> checkouts = new ArrayList<>();
+        for (int userId : quantities.keySet())
+        {
+            checkouts.add(new PendingCheckout(userId, Set.of(), cart -> cart));
+        }
+        orderDao.createFromCarts(checkouts);
+        checkouts.forEach(checkout -> checkout.getResult().join());  // a failed checkout would flatter the batch
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() throws SQLException
+    {
+        dataSource.close();
+        execute("DROP DATABASE IF EXISTS " + DATABASE);
+    }
+
+    // runs statements against the server outside any application database, as TestDatabaseConfig does
+    private void execute(String... sql) throws SQLException
+    {
+        try (Connection connection = DriverManager.getConnection(settings.getProperty("datasource.url") + "/sys",
+                                                                 settings.getProperty("datasource.username"),
+                                                                 settings.getProperty("datasource.password"));
+             Statement statement = connection.createStatement())
+        {
+            for (String each : sql)
+            {
+                statement.execute(each);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(CheckoutCommitBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,349 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.yearup.configuration.TestDatabaseConfig;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.PendingCheckout;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderPage;
+import org.yearup.models.Profile;
+import org.yearup.models.User;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MySqlOrderDaoTest extends BaseDaoTestClass
+{
+    private static final String ADDRESS = "12 Test Lane";
+
+    @Autowired
+    private TestDatabaseConfig database;
+
+    private MySqlOrderDao dao;
+    private MySqlShoppingCartDao cartDao;
+    private MySqlProductDao productDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        productDao = new MySqlProductDao(dataSource);
+        dao = new MySqlOrderDao(dataSource, productDao);
+        cartDao = new MySqlShoppingCartDao(dataSource);
+    }
+
+    // every test orders as a new user of its own, so it sees no orders but its own
+    private int newCustomer()
+    {
+        return newCustomer(dataSource);
+    }
+
+    private static int newCustomer(DataSource dataSource)
+    {
+        User user = new MySqlUserDao(dataSource).create(new User(0, "orders-" + UUID.randomUUID(), "password", "ROLE_USER"));
+        new MySqlProfileDao(dataSource).create(new Profile(user.getId(), "Test", "Customer", "800-555-0000",
+                                                           "test@email.com", ADDRESS, "Dallas", "TX", "75051"));
+        return user.getId();
+    }
+
+    @Test
+    public void createFromCart_shouldWrite_thePricedLinesAndEmptyTheCart()
+    {
+        // arrange
+        int userId = newCustomer();
+        cartDao.addProduct(userId, 1);
+        cartDao.addProduct(userId, 1);
+        cartDao.addProduct(userId, 3);
+
+        // act - 10% off product 1
+        Order order = dao.createFromCart(userId, Set.of(), cart -> {
+            cart.get(1).setDiscountPercent(new BigDecimal("0.10"));
+            return cart;
+        });
+
+        // assert
+        assertTrue(order.getOrderId() > 0, "Because the order should have its generated id.");
+        assertEquals(ADDRESS, order.getAddress(), "Because the order ships to the profile address.");
+        assertEquals(2, order.getLineItems().size(), "Because the cart held two products.");
+
+        OrderLineItem smartphones = order.getLineItems().stream().filter(line -> line.getProductId() == 1).findFirst().orElseThrow();
+        assertEquals(2, smartphones.getQuantity(), "Because product 1 was added twice.");
+        assertEquals(new BigDecimal("100.00"), smartphones.getDiscount(), "Because 10% of 2 * 499.99 is 100.00 rounded to cents.");
+        assertEquals(new BigDecimal("999.97"), order.getTotal(), "Because 999.98 - 100.00 + 99.99 is 999.97.");
+        assertTrue(cartDao.getByUserId(userId).getItems().isEmpty(), "Because checkout empties the cart.");
+    }
+
+    @Test
+    public void createFromCart_shouldLeaveTheCommit_toATransactionAlreadyOpen() throws SQLException
+    {
+        // arrange - the shared test connection has autocommit off, as a caller's open transaction would
+        int userId = newCustomer();
+        cartDao.addProduct(userId, 1);
+
+        // act
+        int orderId = dao.createFromCart(userId, Set.of(), cart -> cart).getOrderId();
+
+        // assert
+        SingleConnectionDataSource other = database.committingDataSource();
+        try
+        {
+            assertNull(new MySqlOrderDao(other).getById(userId, orderId), "Because the order is committed, or rolled back, with the caller's transaction.");
+        }
+        finally
+        {
+            other.destroy();
+        }
+        assertNotNull(dao.getById(userId, orderId), "Because the caller's own transaction sees the order.");
+    }
+
+    @Test
+    public void createFromCart_shouldRefuse_anEmptyCart()
+    {
+        // arrange
+        int userId = newCustomer();
+
+        // act / assert
+        assertThrows(IllegalStateException.class, () -> dao.createFromCart(userId, Set.of(), cart -> cart),
+                "Because there is nothing to order.");
+    }
+
+    @Test
+    public void getByUserId_shouldPage_newestFirst_withTheLineItems()
+    {
+        // arrange - three orders of one product each, placed in that order
+        int userId = newCustomer();
+        int[] orderIds = new int[3];
+        for (int i = 0; i < orderIds.length; i++)
+        {
+            cartDao.addProduct(userId, i + 1);
+            orderIds[i] = dao.createFromCart(userId, Set.of(), cart -> cart).getOrderId();
+        }
+
+        // act
+        OrderPage first = dao.getByUserId(userId, 2, null);
+        OrderPage second = dao.getByUserId(userId, 2, first.getNext());
+
+        // assert
+        assertEquals(2, first.getOrders().size(), "Because the first page is full.");
+        assertEquals(orderIds[2], first.getOrders().get(0).getOrderId(), "Because the newest order comes first.");
+        assertEquals(orderIds[1], first.getOrders().get(1).getOrderId(), "Because orders are newest first.");
+        assertTrue(first.hasNext(), "Because a third order is left.");
+        assertEquals(orderIds[0], second.getOrders().get(0).getOrderId(), "Because the second page starts past the cursor.");
+        assertFalse(second.hasNext(), "Because nothing is left after the oldest order.");
+        assertEquals(1, second.getOrders().get(0).getLineItems().size(), "Because the line items come with the page.");
+        assertEquals(1, second.getOrders().get(0).getLineItems().get(0).getProductId(), "Because the oldest order was for product 1.");
+    }
+
+    @Test
+    public void getById_shouldNotReturn_anotherUsersOrder()
+    {
+        // arrange
+        int userId = newCustomer();
+        cartDao.addProduct(userId, 1);
+        int orderId = dao.createFromCart(userId, Set.of(), cart -> cart).getOrderId();
+
+        // act
+        Order own = dao.getById(userId, orderId);
+        Order someoneElses = dao.getById(1, orderId);
+
+        // assert
+        assertEquals(1, own.getLineItems().size(), "Because the order holds one product.");
+        assertNull(someoneElses, "Because the order belongs to the other user.");
+    }
+
+    @Test
+    public void getByUserId_shouldRefuse_aForgedCursor()
+    {
+        // act / assert
+        assertThrows(IllegalArgumentException.class, () -> dao.getByUserId(1, 10, "not-a-cursor"),
+                "Because the cursor was not issued by the dao.");
+    }
+
+    @Test
+    public void createFromCarts_shouldPlaceEachOrder_andFailOnlyTheEmptyCart()
+    {
+        // arrange - one user has a cart, the other an empty one
+        int fullUser = newCustomer();
+        int emptyUser = newCustomer();
+        cartDao.addProduct(fullUser, 1);
+        cartDao.addProduct(fullUser, 3);
+        PendingCheckout full = new PendingCheckout(fullUser, Set.of(), cart -> cart);
+        PendingCheckout empty = new PendingCheckout(emptyUser, Set.of(), cart -> cart);
+
+        // act
+        dao.createFromCarts(List.of(full, empty));
+
+        // assert
+        Order order = full.getResult().join();
+        assertTrue(order.getOrderId() > 0, "Because the order should have its generated id.");
+        assertEquals(ADDRESS, order.getAddress(), "Because the order ships to the profile address.");
+        assertEquals(2, dao.getById(fullUser, order.getOrderId()).getLineItems().size(), "Because both lines were written.");
+        assertTrue(cartDao.getByUserId(fullUser).getItems().isEmpty(), "Because checkout empties the cart.");
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> empty.getResult().join(),
+                "Because there is nothing to order for the other user.");
+        assertInstanceOf(IllegalStateException.class, failure.getCause(), "Because an empty cart is the caller's own error.");
+    }
+
+    @Test
+    public void createFromCart_shouldTake_theStockOfTheLinesNotReserved()
+    {
+        // arrange - product 3 was reserved ahead, product 1 was not
+        int userId = newCustomer();
+        cartDao.addProduct(userId, 1);
+        cartDao.addProduct(userId, 1);
+        cartDao.addProduct(userId, 3);
+        int stock1 = productDao.getById(1).getStock();
+        int stock3 = productDao.getById(3).getStock();
+
+        // act
+        dao.createFromCart(userId, Set.of(3), cart -> cart);
+
+        // assert
+        assertEquals(stock1 - 2, productDao.getById(1).getStock(), "Because the order took the two units of product 1.");
+        assertEquals(stock3, productDao.getById(3).getStock(), "Because product 3's unit was reserved already.");
+    }
+
+    @Test
+    public void createFromCart_shouldRollBack_whenALineIsShort()
+    {
+        // arrange - far more of product 1 than there is
+        int userId = newCustomer();
+        cartDao.addProduct(userId, 1);
+        cartDao.addProduct(userId, 3);
+        cartDao.updateQuantity(userId, 1, 1_000_000);
+        int stock3 = productDao.getById(3).getStock();
+
+        // act
+        InsufficientStockException failure = assertThrows(InsufficientStockException.class,
+                () -> dao.createFromCart(userId, Set.of(), cart -> cart), "Because product 1 cannot be filled.");
+
+        // assert
+        assertEquals(1, failure.getProductId(), "Because product 1 is the short line.");
+        assertEquals(stock3, productDao.getById(3).getStock(), "Because product 3's unit goes back with the order.");
+    }
+
+    @Test
+    public void createFromCarts_shouldFail_onlyTheCheckoutThatIsShort()
+    {
+        // arrange - one user wants more of product 1 than there is, the other one unit of product 3
+        int greedyUser = newCustomer();
+        int modestUser = newCustomer();
+        cartDao.addProduct(greedyUser, 1);
+        cartDao.addProduct(greedyUser, 3);
+        cartDao.updateQuantity(greedyUser, 1, 1_000_000);
+        cartDao.addProduct(modestUser, 3);
+        int stock3 = productDao.getById(3).getStock();
+        PendingCheckout greedy = new PendingCheckout(greedyUser, Set.of(), cart -> cart);
+        PendingCheckout modest = new PendingCheckout(modestUser, Set.of(), cart -> cart);
+
+        // act
+        dao.createFromCarts(List.of(greedy, modest));
+
+        // assert
+        CompletionException failure = assertThrows(CompletionException.class, () -> greedy.getResult().join(),
+                "Because product 1 cannot be filled for the greedy user.");
+        assertInstanceOf(InsufficientStockException.class, failure.getCause(), "Because the short line fails the checkout.");
+        assertTrue(modest.getResult().join().getOrderId() > 0, "Because one user's order does not depend on the other's.");
+        assertEquals(stock3 - 1, productDao.getById(3).getStock(), "Because only the modest user's unit of product 3 stays taken.");
+        assertEquals(2, cartDao.getByUserId(greedyUser).getItems().size(), "Because the failed checkout keeps its cart.");
+    }
+
+    // The group commit's saving measured on MySQL itself: COMMITs the server ran for the same ten checkouts. The
+    // commits are real, so the test runs on a connection of its own and deletes what it wrote afterwards
+    @Test
+    public void createFromCarts_shouldCommitOnce_forWhatThePerOrderPathCommitsTenTimes() throws SQLException
+    {
+        SingleConnectionDataSource committing = database.committingDataSource();
+        MySqlOrderDao dao = new MySqlOrderDao(committing);
+        MySqlShoppingCartDao cartDao = new MySqlShoppingCartDao(committing);
+        int stock3 = new MySqlProductDao(committing).getById(3).getStock();
+        List<Integer> users = new ArrayList<>();
+        try
+        {
+            // arrange
+            List<Integer> perOrderUsers = new ArrayList<>();
+            List<PendingCheckout> checkouts = new ArrayList<>();
+            for (int i = 0; i < 10; i++)
+            {
+                int perOrderUser = newCustomer(committing);
+                cartDao.addProduct(perOrderUser, 3);
+                perOrderUsers.add(perOrderUser);
+
+                int groupUser = newCustomer(committing);
+                cartDao.addProduct(groupUser, 3);
+                checkouts.add(new PendingCheckout(groupUser, Set.of(), cart -> cart));
+                users.add(perOrderUser);
+                users.add(groupUser);
+            }
+
+            // act
+            long start = commits(committing);
+            for (int userId : perOrderUsers)
+            {
+                dao.createFromCart(userId, Set.of(), cart -> cart);
+            }
+            long perOrderCommits = commits(committing) - start;
+
+            start = commits(committing);
+            dao.createFromCarts(checkouts);
+            long groupCommits = commits(committing) - start;
+
+            // assert
+            checkouts.forEach(checkout -> assertTrue(checkout.getResult().join().getOrderId() > 0, "Because every cart held a product."));
+            assertEquals(10, perOrderCommits, "Because the per-order path commits every order on its own.");
+            assertEquals(1, groupCommits, "Because the group commit writes all ten orders in one transaction.");
+        }
+        finally
+        {
+            remove(committing, users, stock3);
+            committing.destroy();
+        }
+    }
+
+    // the COMMIT statements the connection's session has run
+    private static long commits(DataSource dataSource) throws SQLException
+    {
+        Connection connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement();
+             ResultSet row = statement.executeQuery("SHOW SESSION STATUS LIKE 'Com_commit'"))
+        {
+            row.next();
+            return row.getLong(2);
+        }
+    }
+
+    // deletes the users a committing test created, with their orders and carts, and puts product 3's stock back
+    private static void remove(DataSource dataSource, List<Integer> users, int stock3) throws SQLException
+    {
+        String ids = users.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        Connection connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement())
+        {
+            if (!users.isEmpty())
+            {
+                statement.executeUpdate("DELETE li FROM order_line_items li JOIN orders o ON o.order_id = li.order_id WHERE o.user_id IN (" + ids + ")");
+                statement.executeUpdate("DELETE FROM orders WHERE user_id IN (" + ids + ")");
+                statement.executeUpdate("DELETE FROM shopping_cart WHERE user_id IN (" + ids + ")");
+                statement.executeUpdate("DELETE FROM profiles WHERE user_id IN (" + ids + ")");
+                statement.executeUpdate("DELETE FROM users WHERE user_id IN (" + ids + ")");
+            }
+            statement.executeUpdate("UPDATE products SET stock = " + stock3 + " WHERE product_id = 3");
+        }
+    }
+}
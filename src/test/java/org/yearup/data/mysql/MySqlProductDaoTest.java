@@ -3,10 +3,18 @@ package org.yearup.data.mysql;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
 import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductSearchCriteria;
+import org.yearup.models.ProductSort;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -45,4 +53,108 @@ class MySqlProductDaoTest extends BaseDaoTestClass
         assertEquals(expected.getPrice(), actual.getPrice(), "Because I tried to get product 1 from the database.");
     }
 
+    @Test
+    public void publishStockChanges_shouldPublish_oneEventForAllStockWrites()
+    {
+        // arrange
+        List<ProductChangedEvent> events = new ArrayList<>();
+        MySqlProductDao publishing = new MySqlProductDao(dataSource, event -> events.add((ProductChangedEvent) event));
+        publishing.takeStock(1, 2);
+        publishing.takeStock(1, 1);
+        publishing.returnStock(Map.of(2, 1));
+
+        // act
+        publishing.publishStockChanges();
+        publishing.publishStockChanges();
+
+        // assert
+        assertEquals(1, events.size(), "Because the stock writes are published together, and only once.");
+        Map<Integer, Integer> stock = events.get(0).getProducts().stream()
+                                            .collect(Collectors.toMap(Product::getProductId, Product::getStock));
+        assertEquals(2, stock.size(), "Because products 1 and 2 had their stock changed.");
+        assertEquals(47, stock.get(1), "Because the event carries the stock after the writes.");
+    }
+
+    @Test
+    public void update_shouldLeave_theStockAlone()
+    {
+        // arrange - an admin edits product 1 from a read taken before two units sold
+        Product edited = dao.getById(1);
+        dao.takeStock(1, 2);
+        edited.setName("Smartphone X");
+
+        // act
+        dao.update(1, edited);
+        boolean writtenOff = dao.adjustStock(1, -1000);
+        boolean restocked = dao.adjustStock(1, 10);
+
+        // assert
+        assertEquals("Smartphone X", dao.getById(1).getName(), "Because the other columns are updated.");
+        assertEquals(false, writtenOff, "Because the stock cannot go below zero.");
+        assertEquals(true, restocked, "Because units can always be added.");
+        assertEquals(58, dao.getById(1).getStock(), "Because 50 - 2 sold + 10 restocked is 58, whatever the stale read said.");
+    }
+
+    @Test
+    public void searchPage_shouldContinue_afterTheCursor()
+    {
+        // arrange
+        ProductSearchCriteria firstFour = new ProductSearchCriteria(1, null, null, null);
+        firstFour.setSort(ProductSort.PRICE);
+        firstFour.setLimit(4);
+
+        ProductSearchCriteria pageOfTwo = new ProductSearchCriteria(1, null, null, null);
+        pageOfTwo.setSort(ProductSort.PRICE);
+        pageOfTwo.setLimit(2);
+
+        // act
+        var expected = dao.searchPage(firstFour).getProducts();
+
+        var firstPage = dao.searchPage(pageOfTwo);
+        pageOfTwo.setAfter(firstPage.getNext());
+        var secondPage = dao.searchPage(pageOfTwo);
+
+        List<Product> actual = new ArrayList<>(firstPage.getProducts());
+        actual.addAll(secondPage.getProducts());
+
+        // assert
+        assertEquals(ids(expected), ids(actual), "Because two pages of 2 should be the same as one page of 4.");
+    }
+
+    @Test
+    public void searchFields_shouldReturn_onlyTheSelectedFields()
+    {
+        // arrange
+        ProductSearchCriteria criteria = new ProductSearchCriteria(1, null, null, null);
+        var fields = ProductField.parse("name,price");
+
+        // act
+        var rows = dao.searchFields(criteria, fields);
+        var first = rows.get(0);
+
+        // assert
+        assertEquals(List.of("productId", "name", "price"), new ArrayList<>(first.keySet()), "Because I only asked for name and price.");
+        assertEquals(new BigDecimal("499.99"), first.get("price"), "Because product 1 is the first product in category 1.");
+    }
+
+    @Test
+    public void getByIds_shouldReturn_foundProductsInTheRequestedOrder()
+    {
+        // arrange
+        List<Integer> requested = List.of(3, 999999, 1, 2, 1);
+
+        // act
+        var actual = dao.getByIds(requested);
+
+        // assert
+        assertEquals(List.of(3, 1, 2), ids(actual), "Because unknown and repeated ids are skipped and the rest keep their order.");
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        List<Integer> ids = new ArrayList<>();
+        products.forEach(product -> ids.add(product.getProductId()));
+        return ids;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.CategoryRevenue;
+import org.yearup.models.ProductSales;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MySqlSalesReportDaoTest extends BaseDaoTestClass
+{
+    private MySqlSalesReportDao dao;
+    private MySqlOrderDao orderDao;
+    private MySqlShoppingCartDao cartDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        dao = new MySqlSalesReportDao(dataSource);
+        orderDao = new MySqlOrderDao(dataSource);
+        cartDao = new MySqlShoppingCartDao(dataSource);
+    }
+
+    @Test
+    public void addOrder_shouldCount_eachOrderOnce()
+    {
+        // arrange - start from rollups that match whatever orders are already there
+        rebuild();
+        ProductSales before = sales(1);
+        int orderId = placeOrder(1, 1, 3);
+
+        // act
+        boolean first = dao.addOrder(orderId);
+        boolean again = dao.addOrder(orderId);
+
+        // assert
+        ProductSales after = sales(1);
+        assertTrue(first, "Because the order was not counted yet.");
+        assertFalse(again, "Because a retried stage must not count the order twice.");
+        assertEquals(units(before) + 2, after.getUnits(), "Because the order holds two units of product 1.");
+        assertEquals(revenue(before).add(new BigDecimal("999.98")), after.getRevenue(), "Because two units of product 1 cost 999.98.");
+    }
+
+    @Test
+    public void rebuild_shouldMatch_theIncrementalRollups()
+    {
+        // arrange
+        rebuild();
+        dao.addOrder(placeOrder(1, 1, 3));
+        dao.addOrder(placeOrder(2, 2, 2));
+        LocalDate today = LocalDate.now();
+        String topProducts = describeTop(dao.getTopProducts(100));
+        String revenue = describeRevenue(dao.getRevenue(today.minusDays(1), today.plusDays(1), null));
+
+        // act
+        int counted = rebuild();
+
+        // assert
+        assertTrue(counted >= 2, "Because both orders are part of the history.");
+        assertEquals(topProducts, describeTop(dao.getTopProducts(100)), "Because a rebuild recomputes the same product totals.");
+        assertEquals(revenue, describeRevenue(dao.getRevenue(today.minusDays(1), today.plusDays(1), null)),
+                "Because a rebuild recomputes the same daily category totals.");
+    }
+
+    @Test
+    public void rebuild_shouldKeep_anOrderAddedWhileItRan()
+    {
+        // arrange
+        rebuild();
+        int before = units(sales(3));
+        dao.prepareRebuild();
+        int orderId = placeOrder(3);
+        dao.addOrder(orderId);
+
+        // act
+        int caughtUp = dao.finishRebuild();
+
+        // assert
+        assertEquals(1, caughtUp, "Because the order came after the rebuild took its watermark.");
+        assertEquals(before + 1, units(sales(3)), "Because the swap keeps the order the live tables counted meanwhile.");
+        assertFalse(dao.addOrder(orderId), "Because the swapped-in tables know the order is counted.");
+    }
+
+    private int rebuild()
+    {
+        return dao.prepareRebuild() + dao.finishRebuild();
+    }
+
+    // checks out a cart holding one unit per product id given
+    private int placeOrder(int... productIds)
+    {
+        int userId = 2;
+        cartDao.clear(userId);
+        for (int productId : productIds)
+        {
+            cartDao.addProduct(userId, productId);
+        }
+        return orderDao.createFromCart(userId, Set.of(), cart -> cart).getOrderId();
+    }
+
+    private ProductSales sales(int productId)
+    {
+        return dao.getTopProducts(100).stream().filter(sales -> sales.getProductId() == productId).findFirst().orElse(null);
+    }
+
+    private static int units(ProductSales sales)
+    {
+        return sales == null ? 0 : sales.getUnits();
+    }
+
+    private static BigDecimal revenue(ProductSales sales)
+    {
+        return sales == null ? new BigDecimal("0.00") : sales.getRevenue();
+    }
+
+    private static String describeTop(List<ProductSales> top)
+    {
+        return top.stream().map(sales -> sales.getProductId() + ":" + sales.getUnits() + ":" + sales.getRevenue())
+                  .sorted().collect(Collectors.joining(","));
+    }
+
+    private static String describeRevenue(List<CategoryRevenue> revenue)
+    {
+        return revenue.stream().map(row -> row.getDate() + ":" + row.getCategoryId() + ":" + row.getUnits() + ":" + row.getRevenue())
+                      .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,57 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MySqlShoppingCartDaoTest extends BaseDaoTestClass
+{
+    private static final int USER_ID = 1;
+
+    private MySqlShoppingCartDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        dao = new MySqlShoppingCartDao(dataSource);
+    }
+
+    @Test
+    public void getByUserId_shouldReturn_itemsWithTheirProducts()
+    {
+        // arrange
+        int userId = USER_ID;
+        dao.addProduct(userId, 1);
+        dao.addProduct(userId, 1);
+
+        // act
+        var cart = dao.getByUserId(userId);
+
+        // assert
+        assertEquals(2, cart.get(1).getQuantity(), "Because I added product 1 twice.");
+        assertEquals(new BigDecimal("499.99"), cart.get(1).getProduct().getPrice(), "Because the product is loaded with the cart.");
+    }
+
+    @Test
+    public void addQuantities_shouldAdd_toExistingLinesAndRemoveEmptiedOnes()
+    {
+        // arrange
+        int userId = USER_ID;
+        dao.addProduct(userId, 1);
+        dao.addProduct(userId, 2);
+
+        // act
+        dao.addQuantities(userId, Map.of(1, 2, 2, -1, 3, 4));
+        var cart = dao.getByUserId(userId);
+
+        // assert
+        assertEquals(3, cart.get(1).getQuantity(), "Because 1 + 2 is 3.");
+        assertFalse(cart.contains(2), "Because 1 - 1 leaves nothing of product 2.");
+        assertEquals(4, cart.get(3).getQuantity(), "Because product 3 was not in the cart yet.");
+    }
+}
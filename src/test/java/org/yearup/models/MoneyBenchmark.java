@@ -0,0 +1,72 @@
+package org.yearup.models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Cart totals in Money against the same math in BigDecimal, for carts of 1, 10, 100 and 500 lines. Not part
+    of the test run (surefire only picks up *Test classes); run main() from the IDE, or
+
+        mvn test-compile exec:java -Dexec.mainClass=org.yearup.models.MoneyBenchmark -Dexec.classpathScope=test
+
+    The gc profiler shows the bytes allocated per total next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark
+{
+    private static final String[] DISCOUNTS = {"0", "0.1", "0.15", "0.125", "0.3333", "1"};
+
+    @Param({"1", "10", "100", "500"})
+    public int lines;
+
+    private ShoppingCart cart;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        cart = new ShoppingCart();
+        for (int productId = 1; productId <= lines; productId++)
+        {
+            Product product = new Product();
+            product.setProductId(productId);
+            product.setPrice(BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(product);
+            item.setQuantity(1 + random.nextInt(20));
+            item.setDiscountPercent(new BigDecimal(DISCOUNTS[random.nextInt(DISCOUNTS.length)]));
+            cart.add(item);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal money()
+    {
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal()
+    {
+        return cart.exactTotal();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(MoneyBenchmark.class.getSimpleName())
+                                       .addProfiler("gc")
+                                       .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package org.yearup.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoneyTest
+{
+    private static final String[] DISCOUNTS = {"0", "0.1", "0.15", "0.125", "0.3333", "1"};
+
+    @Test
+    public void getTotal_shouldMatch_theBigDecimalMath_forCartsOf1To500Lines()
+    {
+        Random random = new Random(42);
+        for (int lines = 1; lines <= 500; lines++)
+        {
+            // arrange
+            ShoppingCart cart = randomCart(random, lines);
+
+            // act
+            BigDecimal actual = cart.getTotal();
+            BigDecimal expected = cart.exactTotal();
+
+            // assert - equals() also compares the scale
+            assertEquals(expected, actual, "Because a cart of " + lines + " lines should total the same either way.");
+            for (ShoppingCartItem item : cart.getItems().values())
+            {
+                assertEquals(item.exactLineTotal(), item.getLineTotal(), "Because every line total should match exactly.");
+            }
+        }
+    }
+
+    @Test
+    public void getLineTotal_shouldFallBack_whenTheValueDoesNotFitInALong()
+    {
+        // arrange
+        ShoppingCartItem item = item(1, new BigDecimal("92233720368547758.07"), Integer.MAX_VALUE, BigDecimal.ZERO);
+
+        // act
+        BigDecimal actual = item.getLineTotal();
+
+        // assert
+        assertEquals(item.exactLineTotal(), actual, "Because an overflow should be computed with BigDecimal instead.");
+    }
+
+    @Test
+    public void plus_shouldKeep_theLargerScale()
+    {
+        // arrange
+        Money price = Money.of(new BigDecimal("12.5"));
+        Money tax = Money.of(new BigDecimal("0.125"));
+
+        // act
+        BigDecimal actual = price.plus(tax).toBigDecimal();
+
+        // assert
+        assertEquals(new BigDecimal("12.5").add(new BigDecimal("0.125")), actual, "Because 12.5 + 0.125 is 12.625 at scale 3.");
+    }
+
+    @Test
+    public void getLineTotal_shouldFollow_aNewPriceAndDiscount()
+    {
+        // arrange - the first total caches the price and discount as Money
+        ShoppingCartItem item = item(1, new BigDecimal("10.00"), 2, new BigDecimal("0.1"));
+        item.getLineTotal();
+
+        // act
+        item.getProduct().setPrice(new BigDecimal("12.50"));
+        item.setDiscountPercent(new BigDecimal("0.2"));
+        BigDecimal actual = item.getLineTotal();
+
+        // assert
+        assertEquals(new BigDecimal("20.000"), actual, "Because 2 * 12.50 less 20% is 20.00, at the scale of 12.50 * 0.2.");
+    }
+
+    private static ShoppingCart randomCart(Random random, int lines)
+    {
+        ShoppingCart cart = new ShoppingCart();
+        for (int productId = 1; productId <= lines; productId++)
+        {
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            BigDecimal discount = new BigDecimal(DISCOUNTS[random.nextInt(DISCOUNTS.length)]);
+            cart.add(item(productId, price, 1 + random.nextInt(20), discount));
+        }
+        return cart;
+    }
+
+    private static ShoppingCartItem item(int productId, BigDecimal price, int quantity, BigDecimal discount)
+    {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setPrice(price);
+
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setDiscountPercent(discount);
+        return item;
+    }
+}
@@ -0,0 +1,33 @@
+package org.yearup.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetsTest
+{
+    @Test
+    public void add_shouldCount_colorsThatDifferOnlyInCase_asOne()
+    {
+        // arrange
+        ProductFacets facets = new ProductFacets();
+
+        // act
+        facets.add(product("Red"));
+        facets.add(product("red"));
+        facets.add(product("RED"));
+        facets.add(product("Blue"));
+
+        // assert
+        assertEquals(Map.of("Blue", 1, "Red", 3), Map.copyOf(facets.getColors()),
+                "Because the color filter matches case-insensitively, like the facet counts MySQL groups.");
+    }
+
+    private static Product product(String color)
+    {
+        return new Product(1, "Lamp", new BigDecimal("19.99"), 1, null, color, 5, false, null);
+    }
+}
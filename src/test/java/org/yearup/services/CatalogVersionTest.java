@@ -0,0 +1,62 @@
+package org.yearup.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.memory.FeaturedProducts;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogVersionTest
+{
+    @Test
+    public void etag_shouldMove_onlyOnceTheCatalogServesTheChange()
+    {
+        // arrange - the version is registered first, so registration order alone would run it first
+        FeaturedProducts featured = new FeaturedProducts(() -> List.of(lamp("19.99")), event -> { });
+        RecordingVersion version = new RecordingVersion(featured);
+        String before;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext())
+        {
+            context.registerBean(RecordingVersion.class, () -> version);
+            context.registerBean(FeaturedProducts.class, () -> featured);
+            context.refresh();
+            before = version.etag();
+
+            // act
+            context.publishEvent(ProductChangedEvent.updated(lamp("24.99")));
+        }
+
+        // assert
+        assertNotEquals(before, version.etag(), "Because the price change is a new catalog.");
+        assertEquals(new BigDecimal("24.99"), version.priceSeen, "Because a client handed the new ETag must also be handed the new price.");
+    }
+
+    private static Product lamp(String price)
+    {
+        return new Product(1, "Lamp", new BigDecimal(price), 1, "a lamp", "Red", 5, true, "lamp.jpg");
+    }
+
+    // notes what the featured rail serves at the moment the version moves
+    private static class RecordingVersion extends CatalogVersion
+    {
+        private final FeaturedProducts featured;
+        private BigDecimal priceSeen;
+
+        RecordingVersion(FeaturedProducts featured)
+        {
+            this.featured = featured;
+        }
+
+        @Override
+        public void onProductChanged(ProductChangedEvent event)
+        {
+            priceSeen = featured.list().get(0).getPrice();
+            super.onProductChanged(event);
+        }
+    }
+}
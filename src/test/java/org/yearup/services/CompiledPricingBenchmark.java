@@ -0,0 +1,141 @@
+package org.yearup.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yearup.models.PricingRule;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    10,000 active pricing rules: the time to compile them, and to price carts of 1, 10, 100 and 500 lines
+    with the compiled tables against a scan of every rule per line. Not part of the test run (surefire only
+    picks up *Test classes); run main() from the IDE, or
+
+        mvn test-compile exec:java -Dexec.mainClass=org.yearup.services.CompiledPricingBenchmark -Dexec.classpathScope=test
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledPricingBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Rules
+    {
+        private final List<PricingRule> rules = new ArrayList<>();
+        private CompiledPricing pricing;
+
+        // a third each of percent-off, quantity tiers and buy-x-get-y, on 5,000 products and 50 categories
+        @Setup
+        public void setup()
+        {
+            Random random = new Random(7);
+            for (int i = 0; i < 10_000; i++)
+            {
+                Integer productId = random.nextBoolean() ? 1 + random.nextInt(5_000) : null;
+                Integer categoryId = productId == null ? 1 + random.nextInt(50) : null;
+                BigDecimal percent = new BigDecimal("0." + (1 + random.nextInt(50)));
+                int kind = random.nextInt(3);
+                if (kind == 0)
+                {
+                    rules.add(new PricingRule(0, PricingRule.Type.PERCENT_OFF, productId, categoryId, 1, 0, percent, true));
+                }
+                else if (kind == 1)
+                {
+                    rules.add(new PricingRule(0, PricingRule.Type.QUANTITY_TIER, productId, categoryId,
+                                              2 + random.nextInt(20), 0, percent, true));
+                }
+                else
+                {
+                    rules.add(new PricingRule(0, PricingRule.Type.BUY_X_GET_Y, productId == null ? 1 : productId, null,
+                                              1 + random.nextInt(4), 1 + random.nextInt(2), BigDecimal.ZERO, true));
+                }
+            }
+            pricing = CompiledPricing.compile(rules);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Cart
+    {
+        @Param({"1", "10", "100", "500"})
+        public int lines;
+
+        private ShoppingCart cart;
+
+        @Setup
+        public void setup()
+        {
+            Random random = new Random(42);
+            cart = new ShoppingCart();
+            for (int line = 0; line < lines; line++)
+            {
+                Product product = new Product();
+                product.setProductId(1 + line * 10);  // one line per product, spread over the rules' products
+                product.setCategoryId(1 + random.nextInt(50));
+                product.setPrice(new BigDecimal("19.99"));
+
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(product);
+                item.setQuantity(1 + random.nextInt(30));
+                cart.add(item);
+            }
+        }
+    }
+
+    @Benchmark
+    public CompiledPricing compile(Rules rules)
+    {
+        return CompiledPricing.compile(rules.rules);
+    }
+
+    @Benchmark
+    public ShoppingCart compiled(Rules rules, Cart cart)
+    {
+        return rules.pricing.apply(cart.cart);
+    }
+
+    // the units' worth each line saves under its best rule, found by looking at every rule
+    @Benchmark
+    public BigDecimal ruleScan(Rules rules, Cart cart)
+    {
+        BigDecimal saved = BigDecimal.ZERO;
+        for (ShoppingCartItem item : cart.cart.getItems().values())
+        {
+            int quantity = item.getQuantity();
+            BigDecimal best = BigDecimal.ZERO;
+            for (PricingRule rule : rules.rules)
+            {
+                boolean applies = rule.getProductId() != null
+                        ? rule.getProductId() == item.getProductId()
+                        : rule.getCategoryId() == item.getProduct().getCategoryId();
+                if (!applies || quantity < rule.getMinQuantity())
+                {
+                    continue;
+                }
+
+                BigDecimal saving = rule.getType() == PricingRule.Type.BUY_X_GET_Y
+                        ? BigDecimal.valueOf(quantity / (rule.getMinQuantity() + rule.getFreeQuantity()) * rule.getFreeQuantity())
+                        : rule.getDiscountPercent().multiply(BigDecimal.valueOf(quantity));
+                best = best.max(saving);
+            }
+            saved = saved.add(best);
+        }
+        return saved;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(CompiledPricingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
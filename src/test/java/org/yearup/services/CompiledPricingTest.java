@@ -0,0 +1,181 @@
+package org.yearup.services;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.models.PricingRule;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledPricingTest
+{
+    @Test
+    public void apply_shouldUse_theHighestTierReached()
+    {
+        // arrange
+        CompiledPricing pricing = CompiledPricing.compile(List.of(
+                percentOff(null, 1, "0.05"),
+                tier(null, 1, 10, "0.10"),
+                tier(null, 1, 50, "0.20")));
+        ShoppingCartItem few = item(1, 1, "10.00", 9);
+        ShoppingCartItem some = item(2, 1, "10.00", 10);
+        ShoppingCartItem many = item(3, 1, "10.00", 75);
+
+        // act
+        pricing.apply(few);
+        pricing.apply(some);
+        pricing.apply(many);
+
+        // assert
+        assertEquals(new BigDecimal("0.05"), few.getDiscountPercent(), "Because 9 units only reach the category-wide 5%.");
+        assertEquals(new BigDecimal("0.10"), some.getDiscountPercent(), "Because 10 units reach the 10% tier.");
+        assertEquals(new BigDecimal("0.20"), many.getDiscountPercent(), "Because 75 units reach the 20% tier.");
+        assertEquals(new BigDecimal("600.0000"), many.getLineTotal(), "Because 75 * 10.00 less 20% is 600.");
+    }
+
+    @Test
+    public void apply_shouldPick_theDealThatSavesMore()
+    {
+        // arrange - buy 2 get 1 free on product 7, 10% off its whole category
+        CompiledPricing pricing = CompiledPricing.compile(List.of(
+                buyXGetY(7, 2, 1),
+                percentOff(null, 3, "0.10")));
+        ShoppingCartItem two = item(7, 3, "30.00", 2);
+        ShoppingCartItem three = item(7, 3, "30.00", 3);
+
+        // act
+        pricing.apply(two);
+        pricing.apply(three);
+
+        // assert
+        assertEquals(0, two.getFreeQuantity(), "Because 2 units do not complete a buy-2-get-1 group.");
+        assertEquals(new BigDecimal("0.10"), two.getDiscountPercent(), "Because the category discount still applies.");
+        assertEquals(1, three.getFreeQuantity(), "Because one free unit saves more than 10% of three.");
+        assertEquals(BigDecimal.ZERO, three.getDiscountPercent(), "Because deals do not stack.");
+        assertEquals(new BigDecimal("60.00"), three.getLineTotal(), "Because only two of the three units are paid for.");
+    }
+
+    @Test
+    public void compile_shouldSkip_inactiveAndInvalidRules()
+    {
+        // arrange
+        PricingRule inactive = percentOff(5, null, "0.50");
+        inactive.setActive(false);
+        PricingRule bothTargets = percentOff(5, 1, "0.50");
+        PricingRule noFreeUnits = buyXGetY(5, 2, 0);
+
+        // act
+        CompiledPricing pricing = CompiledPricing.compile(List.of(inactive, bothTargets, noFreeUnits));
+        ShoppingCartItem item = item(5, 1, "10.00", 4);
+        pricing.apply(item);
+
+        // assert
+        assertEquals(0, pricing.getRuleCount(), "Because none of the rules can be applied.");
+        assertEquals(BigDecimal.ZERO, item.getDiscountPercent(), "Because no discount should be given.");
+        assertEquals(0, item.getFreeQuantity(), "Because no units should be free.");
+    }
+
+    // Stands in for a benchmark: 10,000 active rules, checked against a scan of every rule per line
+    @Test
+    public void apply_shouldMatch_aFullRuleScan_with10000Rules()
+    {
+        // arrange
+        Random random = new Random(7);
+        List<PricingRule> rules = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+        {
+            Integer productId = random.nextBoolean() ? 1 + random.nextInt(5_000) : null;
+            Integer categoryId = productId == null ? 1 + random.nextInt(50) : null;
+            int kind = random.nextInt(3);
+            if (kind == 0)
+            {
+                rules.add(percentOff(productId, categoryId, "0." + (1 + random.nextInt(50))));
+            }
+            else if (kind == 1)
+            {
+                rules.add(tier(productId, categoryId, 2 + random.nextInt(20), "0." + (1 + random.nextInt(50))));
+            }
+            else
+            {
+                rules.add(buyXGetY(productId == null ? 1 : productId, 1 + random.nextInt(4), 1 + random.nextInt(2)));
+            }
+        }
+        CompiledPricing pricing = CompiledPricing.compile(rules);
+
+        ShoppingCart cart = new ShoppingCart();
+        for (int line = 0; line < 500; line++)
+        {
+            cart.add(item(1 + random.nextInt(5_000), 1 + random.nextInt(50), "19.99", 1 + random.nextInt(30)));
+        }
+
+        // act
+        pricing.apply(cart);
+
+        // assert
+        assertEquals(10_000, pricing.getRuleCount(), "Because every generated rule is valid.");
+        for (ShoppingCartItem item : cart.getItems().values())
+        {
+            BigDecimal savedUnits = item.getDiscountPercent().multiply(BigDecimal.valueOf(item.getQuantity()))
+                                        .add(BigDecimal.valueOf(item.getFreeQuantity()));
+            assertEquals(0, bestSavingByScan(rules, item).compareTo(savedUnits),
+                    "Because product " + item.getProductId() + " should get the best deal of all its rules.");
+        }
+    }
+
+    // the slow way: look at every rule for every line
+    private static BigDecimal bestSavingByScan(List<PricingRule> rules, ShoppingCartItem item)
+    {
+        int quantity = item.getQuantity();
+        BigDecimal best = BigDecimal.ZERO;
+        for (PricingRule rule : rules)
+        {
+            boolean applies = rule.getProductId() != null
+                    ? rule.getProductId() == item.getProductId()
+                    : rule.getCategoryId() == item.getProduct().getCategoryId();
+            if (!applies || quantity < rule.getMinQuantity())
+            {
+                continue;
+            }
+
+            BigDecimal saving = rule.getType() == PricingRule.Type.BUY_X_GET_Y
+                    ? BigDecimal.valueOf(quantity / (rule.getMinQuantity() + rule.getFreeQuantity()) * rule.getFreeQuantity())
+                    : rule.getDiscountPercent().multiply(BigDecimal.valueOf(quantity));
+            best = best.max(saving);
+        }
+        return best;
+    }
+
+    private static PricingRule percentOff(Integer productId, Integer categoryId, String percent)
+    {
+        return new PricingRule(0, PricingRule.Type.PERCENT_OFF, productId, categoryId, 1, 0, new BigDecimal(percent), true);
+    }
+
+    private static PricingRule tier(Integer productId, Integer categoryId, int minQuantity, String percent)
+    {
+        return new PricingRule(0, PricingRule.Type.QUANTITY_TIER, productId, categoryId, minQuantity, 0, new BigDecimal(percent), true);
+    }
+
+    private static PricingRule buyXGetY(int productId, int buy, int free)
+    {
+        return new PricingRule(0, PricingRule.Type.BUY_X_GET_Y, productId, null, buy, free, BigDecimal.ZERO, true);
+    }
+
+    private static ShoppingCartItem item(int productId, int categoryId, String price, int quantity)
+    {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setCategoryId(categoryId);
+        product.setPrice(new BigDecimal(price));
+
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
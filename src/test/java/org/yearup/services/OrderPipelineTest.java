@@ -0,0 +1,200 @@
+package org.yearup.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Order;
+import org.yearup.models.OrderProcessingStatus;
+import org.yearup.models.OrderProcessingStatus.State;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderPipelineTest
+{
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private OrderPipeline pipeline;
+
+    @AfterEach
+    public void shutdown() throws InterruptedException
+    {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void submit_shouldRunEveryStage_inOrder_offTheRequestThread() throws Exception
+    {
+        // arrange
+        List<String> ran = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        Consumer<PlacedOrder> record = placed -> threads.add(Thread.currentThread());
+        pipeline = new OrderPipeline(List.of(new TestStage("second", 2, ran, record), new TestStage("first", 1, ran, record)),
+                                     registry, 10, 2, 50, 3);
+
+        // act
+        OrderProcessingStatus queued = pipeline.submit(placed(1));
+        OrderProcessingStatus done = awaitFinished(1);
+
+        // assert
+        assertEquals(State.QUEUED, queued.getState(), "Because checkout only queues the order.");
+        assertEquals(State.COMPLETED, done.getState(), "Because every stage succeeds.");
+        assertEquals(List.of("first", "second"), ran, "Because stages run lowest order first.");
+        assertEquals(List.of("first", "second"), done.getCompletedStages(), "Because the status lists the finished stages.");
+        assertFalse(threads.contains(Thread.currentThread()), "Because the stages run on the pipeline's workers.");
+    }
+
+    @Test
+    public void submit_shouldProcessOnTheRequestThread_whenTheQueueIsFull() throws Exception
+    {
+        // arrange - one worker stuck on order 1, room for one more order in the queue
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer<PlacedOrder> blockFirstOrder = placed -> {
+            if (placed.getOrder().getOrderId() == 1)
+            {
+                await(release);
+            }
+        };
+        pipeline = new OrderPipeline(List.of(new TestStage("slow", 1, new CopyOnWriteArrayList<>(), blockFirstOrder)),
+                                     registry, 1, 1, 10, 1);
+        pipeline.submit(placed(1));
+        while (pipeline.getStatus(1).getState() == State.QUEUED)
+        {
+            Thread.sleep(5);
+        }
+
+        // act
+        OrderProcessingStatus second = pipeline.submit(placed(2));
+        OrderProcessingStatus third = pipeline.submit(placed(3));
+        release.countDown();
+
+        // assert
+        assertEquals(State.QUEUED, second.getState(), "Because the queue had room for order 2.");
+        assertEquals(State.COMPLETED, third.getState(), "Because order 3 was processed by the caller.");
+        assertEquals(1.0, registry.counter("orders.pipeline.caller_runs").count(), "Because the caller ran one order.");
+        assertEquals(State.COMPLETED, awaitFinished(2).getState(), "Because queued orders are still processed.");
+    }
+
+    @Test
+    public void aFailingStage_shouldBeRetried_thenReported() throws Exception
+    {
+        // arrange
+        List<String> ran = new CopyOnWriteArrayList<>();
+        Consumer<PlacedOrder> fail = placed -> {
+            throw new IllegalStateException("database is down");
+        };
+        pipeline = new OrderPipeline(List.of(new TestStage("broken", 1, ran, fail), new TestStage("after", 2, ran, placed -> { })),
+                                     registry, 10, 1, 50, 2);
+
+        // act
+        pipeline.submit(placed(7));
+        OrderProcessingStatus status = awaitFinished(7);
+
+        // assert
+        assertEquals(State.FAILED, status.getState(), "Because the stage never succeeds.");
+        assertEquals("broken", status.getFailedStage(), "Because the status names the failed stage.");
+        assertEquals(List.of("broken", "broken"), ran, "Because the stage is tried twice and later stages never run.");
+        assertEquals(1.0, registry.counter("orders.pipeline.failed").count(), "Because one order failed.");
+    }
+
+    @Test
+    public void submit_shouldProcess_anOrderQueuedAfterTheWorkersStopped()
+    {
+        // arrange - shutdown runs between submit's check that the pipeline is running and its offer to the queue
+        List<String> ran = new CopyOnWriteArrayList<>();
+        BlockingQueue<OrderPipeline.Job> queue = new ArrayBlockingQueue<>(10)
+        {
+            @Override
+            public boolean offer(OrderPipeline.Job job, long timeout, TimeUnit unit) throws InterruptedException
+            {
+                pipeline.shutdown();
+                return super.offer(job, timeout, unit);
+            }
+        };
+        pipeline = new OrderPipeline(List.of(new TestStage("only", 1, ran, placed -> { })), registry, queue, 2, 50, 3);
+
+        // act
+        OrderProcessingStatus status = pipeline.submit(placed(1));
+
+        // assert
+        assertEquals(State.COMPLETED, status.getState(), "Because with no worker left to take it, the request thread processes the order.");
+        assertEquals(List.of("only"), ran, "Because the order is processed exactly once.");
+        assertTrue(queue.isEmpty(), "Because nothing is left behind in the queue.");
+    }
+
+    private OrderProcessingStatus awaitFinished(int orderId) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline)
+        {
+            OrderProcessingStatus status = pipeline.getStatus(orderId);
+            if (status.getState() == State.COMPLETED || status.getState() == State.FAILED)
+            {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("order " + orderId + " was not processed in time");
+    }
+
+    private static PlacedOrder placed(int orderId)
+    {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setUserId(1);
+        return new PlacedOrder(order);
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestStage implements OrderStage
+    {
+        private final String name;
+        private final int order;
+        private final List<String> ran;
+        private final Consumer<PlacedOrder> action;
+
+        TestStage(String name, int order, List<String> ran, Consumer<PlacedOrder> action)
+        {
+            this.name = name;
+            this.order = order;
+            this.ran = ran;
+            this.action = action;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public int getOrder()
+        {
+            return order;
+        }
+
+        @Override
+        public void process(PlacedOrder placed)
+        {
+            ran.add(name);
+            action.accept(placed);
+        }
+    }
+}
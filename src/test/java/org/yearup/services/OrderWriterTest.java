@@ -0,0 +1,260 @@
+package org.yearup.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.OrderDao;
+import org.yearup.data.PendingCheckout;
+import org.yearup.models.Order;
+import org.yearup.models.OrderPage;
+import org.yearup.models.ShoppingCart;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderWriterTest
+{
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private OrderWriter writer;
+
+    @AfterEach
+    public void shutdown() throws InterruptedException
+    {
+        writer.shutdown();
+    }
+
+    @Test
+    public void groupCommit_shouldGive_eachCallerItsOwnOrderOrError()
+    {
+        // arrange - user 5 has nothing in the cart
+        FakeOrders database = new FakeOrders(100_000);
+        database.emptyCarts.add(5);
+        writer = new OrderWriter(database, registry, true, 20, 64);
+
+        // act
+        Map<Integer, Object> results = checkoutConcurrently(writer, range(1, 32));
+
+        // assert
+        assertInstanceOf(IllegalStateException.class, results.get(5), "Because user 5's empty cart fails only user 5.");
+        Set<Integer> orderIds = new HashSet<>();
+        results.forEach((userId, result) -> {
+            if (userId != 5)
+            {
+                Order order = assertInstanceOf(Order.class, result, "Because user " + userId + " had a cart to order.");
+                assertEquals((int) userId, order.getUserId(), "Because every caller gets the order for its own cart.");
+                orderIds.add(order.getOrderId());
+            }
+        });
+        assertEquals(31, orderIds.size(), "Because every order has its own id.");
+        assertTrue(database.commits.get() < 31, "Because the checkouts shared commits.");
+        assertFalse(database.duplicateUser.get(), "Because a user is never in a batch twice.");
+    }
+
+    @Test
+    public void aFailedGroupCommit_shouldBeRetried_oneCheckoutAtATime()
+    {
+        // arrange
+        FakeOrders database = new FakeOrders(0);
+        database.failBatches = true;
+        writer = new OrderWriter(database, registry, true, 20, 64);
+
+        // act
+        Map<Integer, Object> results = checkoutConcurrently(writer, range(1, 8));
+
+        // assert
+        results.forEach((userId, result) -> assertInstanceOf(Order.class, result, "Because user " + userId + " is written on its own."));
+        assertTrue(registry.counter("orders.group_commit.fallbacks").count() >= 1, "Because the batch write failed.");
+    }
+
+    @Test
+    public void groupCommit_shouldKeep_aUsersSecondCheckoutForTheNextBatch()
+    {
+        // arrange
+        FakeOrders database = new FakeOrders(0);
+        writer = new OrderWriter(database, registry, true, 20, 64);
+
+        // act - user 1 checks out twice at once
+        Map<Integer, Object> results = checkoutConcurrently(writer, List.of(1, 1));
+
+        // assert
+        assertFalse(database.duplicateUser.get(), "Because the same cart must not be ordered twice in one transaction.");
+        assertEquals(1, database.ordersPlaced.get(), "Because the second checkout finds the cart already ordered.");
+    }
+
+    // 64 concurrent checkouts, each commit holding the log for 1 ms; MySqlOrderDaoTest counts the commits on MySQL
+    @Test
+    public void groupCommit_shouldShare_commitsThatThePerOrderPathMakesOneByOne()
+    {
+        // arrange
+        int checkouts = 1_000;
+        FakeOrders perOrderDatabase = new FakeOrders(1_000_000);
+        FakeOrders groupDatabase = new FakeOrders(1_000_000);
+        OrderWriter perOrder = new OrderWriter(perOrderDatabase, registry, false, 2, 64);
+        writer = new OrderWriter(groupDatabase, registry, true, 2, 64);
+
+        // act
+        checkoutConcurrently(perOrder, range(1, checkouts));
+        checkoutConcurrently(writer, range(1, checkouts));
+
+        // assert - commit counts, not timings, so the test cannot flake on a busy machine
+        assertEquals(checkouts, perOrderDatabase.ordersPlaced.get(), "Because every checkout is placed one at a time.");
+        assertEquals(checkouts, groupDatabase.ordersPlaced.get(), "Because every checkout is placed in a group.");
+        assertTrue(groupDatabase.commits.get() * 4 < perOrderDatabase.commits.get(), "Because concurrent checkouts share commits.");
+    }
+
+    private static List<Integer> range(int from, int to)
+    {
+        List<Integer> userIds = new ArrayList<>();
+        for (int userId = from; userId <= to; userId++)
+        {
+            userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    // userId -> the order, or the exception its checkout threw
+    private static Map<Integer, Object> checkoutConcurrently(OrderWriter writer, List<Integer> userIds)
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        try
+        {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int userId : userIds)
+            {
+                futures.add(pool.submit(() -> {
+                    try
+                    {
+                        return writer.createFromCart(userId, Set.of(), cart -> cart);
+                    }
+                    catch (RuntimeException ex)
+                    {
+                        return ex;
+                    }
+                }));
+            }
+
+            Map<Integer, Object> results = new HashMap<>();
+            for (int i = 0; i < userIds.size(); i++)
+            {
+                results.merge(userIds.get(i), futures.get(i).get(60, TimeUnit.SECONDS), (first, second) -> first instanceof Order ? first : second);
+            }
+            return results;
+        }
+        catch (Exception ex)
+        {
+            throw new AssertionError(ex);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    // stands in for MySQL: one commit at a time, each holding the log for commitNanos
+    private static class FakeOrders implements OrderDao
+    {
+        private final long commitNanos;
+        private final Object log = new Object();
+        private final Set<Integer> emptyCarts = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger nextOrderId = new AtomicInteger();
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger ordersPlaced = new AtomicInteger();
+        private final AtomicBoolean duplicateUser = new AtomicBoolean();
+        private volatile boolean failBatches;
+
+        FakeOrders(long commitNanos)
+        {
+            this.commitNanos = commitNanos;
+        }
+
+        @Override
+        public Order createFromCart(int userId, Set<Integer> reserved, UnaryOperator<ShoppingCart> pricing)
+        {
+            Order order = place(userId);
+            commit();
+            return order;
+        }
+
+        @Override
+        public void createFromCarts(List<PendingCheckout> checkouts)
+        {
+            if (failBatches)
+            {
+                throw new IllegalStateException("deadlock found when trying to get lock");
+            }
+
+            Set<Integer> users = new HashSet<>();
+            Map<PendingCheckout, Order> placed = new HashMap<>();
+            for (PendingCheckout checkout : checkouts)
+            {
+                if (!users.add(checkout.getUserId()))
+                {
+                    duplicateUser.set(true);
+                }
+                try
+                {
+                    placed.put(checkout, place(checkout.getUserId()));
+                }
+                catch (RuntimeException ex)
+                {
+                    checkout.fail(ex);
+                }
+            }
+            commit();
+            placed.forEach(PendingCheckout::complete);
+        }
+
+        // the cart is gone once ordered, as after DELETE FROM shopping_cart
+        private Order place(int userId)
+        {
+            if (!emptyCarts.add(userId))
+            {
+                throw new IllegalStateException("The cart is empty.");
+            }
+            ordersPlaced.incrementAndGet();
+
+            Order order = new Order();
+            order.setOrderId(nextOrderId.incrementAndGet());
+            order.setUserId(userId);
+            return order;
+        }
+
+        private void commit()
+        {
+            synchronized (log)
+            {
+                LockSupport.parkNanos(commitNanos);
+                commits.incrementAndGet();
+            }
+        }
+
+        @Override
+        public OrderPage getByUserId(int userId, Integer limit, String after)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Order getById(int userId, int orderId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void recordConfirmation(Order order, LocalDateTime confirmedAt)
+        {
+        }
+
+        @Override
+        public void recordAnalytics(Order order)
+        {
+        }
+    }
+}
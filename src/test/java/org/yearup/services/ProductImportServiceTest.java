@@ -0,0 +1,149 @@
+package org.yearup.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductInserter;
+import org.yearup.models.BulkImportResult;
+import org.yearup.models.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImportServiceTest
+{
+    private final FakeProducts database = new FakeProducts();
+    private final List<ProductChangedEvent> events = new ArrayList<>();
+
+    @Test
+    public void importCsv_shouldRead_quotedFields_andDatabaseColumnNames() throws IOException
+    {
+        // arrange
+        ProductImportService service = new ProductImportService(database, new ObjectMapper(), event -> events.add((ProductChangedEvent) event));
+        String csv = "name,price,category_id,description,stock,featured\n" +
+                     "\"Desk, oak\",199.99,2,\"the \"\"big\"\" one\",7,true\n";
+
+        // act
+        BulkImportResult result = service.importCsv(reader(csv));
+
+        // assert
+        assertEquals(1, result.getImported(), "Because the file holds one product.");
+        Product desk = database.stored.get(0);
+        assertEquals("Desk, oak", desk.getName(), "Because a quoted field may hold a comma.");
+        assertEquals("the \"big\" one", desk.getDescription(), "Because a doubled quote stands for one quote.");
+        assertEquals(new BigDecimal("199.99"), desk.getPrice(), "Because the price column is read as a decimal.");
+        assertEquals(2, desk.getCategoryId(), "Because category_id names the categoryId column.");
+        assertEquals(7, desk.getStock(), "Because the stock column is read.");
+        assertTrue(desk.isFeatured(), "Because true marks a featured product.");
+    }
+
+    @Test
+    public void importCsv_shouldRefuse_aHeaderWithoutRequiredColumns()
+    {
+        // arrange
+        ProductImportService service = new ProductImportService(database, new ObjectMapper(), event -> events.add((ProductChangedEvent) event));
+
+        // act / assert
+        assertThrows(IllegalArgumentException.class, () -> service.importCsv(reader("name,description\nDesk,oak\n")),
+                "Because no row can be read without a price and category column.");
+    }
+
+    @Test
+    public void importNdjson_shouldReport_eachInvalidRow_byLine() throws IOException
+    {
+        // arrange
+        ProductImportService service = new ProductImportService(database, new ObjectMapper(), event -> events.add((ProductChangedEvent) event));
+        String ndjson = "{\"name\":\"Lamp\",\"price\":19.99,\"categoryId\":1}\n" +
+                        "{not json\n" +
+                        "{\"price\":5,\"categoryId\":1}\n" +
+                        "\n" +
+                        "{\"name\":\"Rug\",\"price\":-1,\"categoryId\":1}\n" +
+                        "{\"name\":\"Mat\",\"price\":5}\n";
+
+        // act
+        BulkImportResult result = service.importNdjson(reader(ndjson));
+
+        // assert
+        assertEquals(1, result.getImported(), "Because only the lamp is valid.");
+        assertEquals(List.of(2, 3, 5, 6), result.getErrors().stream().map(BulkImportResult.RowError::getLine).collect(Collectors.toList()),
+                "Because bad JSON, a missing name, a negative price and a missing category are each reported on their own line.");
+    }
+
+    @Test
+    public void import_shouldRetryAFailedChunk_rowByRow_andPublishOnce() throws IOException
+    {
+        // arrange - the database refuses the product named "bad", which fails the whole chunk
+        ProductImportService service = new ProductImportService(database, new ObjectMapper(), event -> events.add((ProductChangedEvent) event));
+        String ndjson = "{\"name\":\"one\",\"price\":1,\"categoryId\":1}\n" +
+                        "{\"name\":\"bad\",\"price\":1,\"categoryId\":1}\n" +
+                        "{\"name\":\"three\",\"price\":1,\"categoryId\":1}\n";
+
+        // act
+        BulkImportResult result = service.importNdjson(reader(ndjson));
+
+        // assert
+        assertEquals(2, result.getImported(), "Because the rows around the bad one are still imported.");
+        assertEquals(2, result.getErrors().get(0).getLine(), "Because the bad row is on line 2.");
+        assertEquals(List.of("one", "three"), names(database.stored), "Because no row is stored twice.");
+        assertEquals(1, events.size(), "Because the chunk publishes one event for all its rows.");
+        assertEquals(2, events.get(0).getProducts().size(), "Because the event carries both stored rows.");
+    }
+
+    @Test
+    public void import_shouldNotInsertAgain_whenAListenerFails() throws IOException
+    {
+        // arrange
+        ProductImportService service = new ProductImportService(database, new ObjectMapper(), event -> {
+            throw new IllegalStateException("index rebuild failed");
+        });
+        String ndjson = "{\"name\":\"one\",\"price\":1,\"categoryId\":1}\n" +
+                        "{\"name\":\"two\",\"price\":1,\"categoryId\":1}\n";
+
+        // act
+        BulkImportResult result = service.importNdjson(reader(ndjson));
+
+        // assert
+        assertEquals(1, database.inserts, "Because the chunk was stored by its first insert.");
+        assertEquals(2, result.getImported(), "Because both rows are in the database.");
+        assertTrue(result.getErrors().isEmpty(), "Because no row failed.");
+        assertEquals(1, result.getWarnings().size(), "Because the listener failure is reported on its own.");
+    }
+
+    private static BufferedReader reader(String text)
+    {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    private static List<String> names(List<Product> products)
+    {
+        return products.stream().map(Product::getName).collect(Collectors.toList());
+    }
+
+    // stands in for MySQL: each insert is all or nothing and fails for a product named "bad"
+    private static class FakeProducts implements ProductInserter
+    {
+        private final List<Product> stored = new ArrayList<>();
+        private int inserts;
+        private int nextId = 1;
+
+        @Override
+        public List<Product> insertAll(List<Product> products)
+        {
+            inserts++;
+            if (products.stream().anyMatch(product -> "bad".equals(product.getName())))
+            {
+                throw new IllegalStateException("Data truncation: bad");
+            }
+            products.forEach(product -> product.setProductId(nextId++));
+            stored.addAll(products);
+            return products;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.yearup.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yearup.data.StockLedger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+    Eight threads reserving and confirming one unit of the same SKU at once, as a promotion does: a hot product
+    taking from its in-memory lease against a cold one whose every reservation queues on the row lock. The
+    row lock is held for rowLockMicros per write (at least, as parkNanos oversleeps short waits), standing in
+    for the conditional UPDATE's round trip; the lease pays it once per stock.lease-size reservations. Not part
+    of the test run (surefire only picks up *Test classes); run main() from the IDE, or
+
+        mvn test-compile exec:java -Dexec.mainClass=org.yearup.services.StockReservationsBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class StockReservationsBenchmark
+{
+    private static final int HOT_PRODUCT = 1;
+    private static final int COLD_PRODUCT = 2;
+    private static final int LEASE_SIZE = 50;  // stock.lease-size's default
+
+    @Param({"10", "100"})
+    public int rowLockMicros;
+
+    private StockReservations reservations;
+
+    @Setup
+    public void setup()
+    {
+        RowLockedStock database = new RowLockedStock(TimeUnit.MICROSECONDS.toNanos(rowLockMicros));
+        reservations = new StockReservations(database, Set.of(HOT_PRODUCT), LEASE_SIZE, Duration.ofMinutes(10), Clock.systemUTC());
+    }
+
+    @Benchmark
+    public boolean hotProduct()
+    {
+        return reservations.confirm(reservations.reserve(HOT_PRODUCT, 1));
+    }
+
+    @Benchmark
+    public boolean rowLock()
+    {
+        return reservations.confirm(reservations.reserve(COLD_PRODUCT, 1));
+    }
+
+    // stands in for MySQL: stock that never runs out, behind one lock per product row held for every write
+    private static class RowLockedStock implements StockLedger
+    {
+        private final Map<Integer, Object> rows = new ConcurrentHashMap<>();
+        private final long rowLockNanos;
+
+        RowLockedStock(long rowLockNanos)
+        {
+            this.rowLockNanos = rowLockNanos;
+        }
+
+        @Override
+        public boolean takeStock(int productId, int quantity)
+        {
+            write(productId);
+            return true;
+        }
+
+        @Override
+        public void returnStock(Map<Integer, Integer> quantities)
+        {
+            quantities.keySet().forEach(this::write);
+        }
+
+        private void write(int productId)
+        {
+            synchronized (rows.computeIfAbsent(productId, id -> new Object()))
+            {
+                LockSupport.parkNanos(rowLockNanos);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(StockReservationsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
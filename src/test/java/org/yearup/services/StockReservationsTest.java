@@ -0,0 +1,272 @@
+package org.yearup.services;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.data.StockLedger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockReservationsTest
+{
+    private static final int HOT_PRODUCT = 1;
+    private static final int COLD_PRODUCT = 2;
+
+    @Test
+    public void reserve_shouldNeverOversell_aHotProduct()
+    {
+        // arrange
+        FakeStock database = new FakeStock(Map.of(HOT_PRODUCT, 20_000), 0);
+        StockReservations reservations = new StockReservations(database, Set.of(HOT_PRODUCT), 50, Duration.ofMinutes(10), Clock.systemUTC());
+
+        // act
+        int reserved = reserveUntilSoldOut(reservations, HOT_PRODUCT, 16);
+
+        // assert
+        assertEquals(20_000, reserved, "Because every unit should be sold exactly once.");
+        assertEquals(0, database.stock(HOT_PRODUCT), "Because the whole stock was leased.");
+        assertTrue(database.writes.get() <= 20_000 / 50 + 2 * 16, "Because the stock is taken a lease at a time, not per reservation.");
+    }
+
+    // One SKU, 16 threads, each database write holding the row lock for 20 microseconds
+    @Test
+    public void reserve_hotProduct_shouldWriteFarLess_thanTheRowLock()
+    {
+        // arrange
+        int units = 20_000;
+        FakeStock database = new FakeStock(Map.of(HOT_PRODUCT, units, COLD_PRODUCT, units), 20_000);
+        StockReservations reservations = new StockReservations(database, Set.of(HOT_PRODUCT), 50, Duration.ofMinutes(10), Clock.systemUTC());
+
+        // act
+        int cold = reserveUntilSoldOut(reservations, COLD_PRODUCT, 16);
+        int coldWrites = database.writes.getAndSet(0);
+        int hot = reserveUntilSoldOut(reservations, HOT_PRODUCT, 16);
+        int hotWrites = database.writes.get();
+
+        // assert - write counts, not timings, so the test cannot flake on a busy machine
+        assertEquals(units, cold, "Because the row lock path sells every unit once.");
+        assertEquals(units, hot, "Because the hot counter sells every unit once.");
+        assertTrue(hotWrites * 10 < coldWrites, "Because the hot counter writes once per lease of 50 units.");
+    }
+
+    @Test
+    public void sweep_shouldRelease_expiredReservations()
+    {
+        // arrange
+        FakeStock database = new FakeStock(Map.of(COLD_PRODUCT, 10), 0);
+        MutableClock clock = new MutableClock();
+        StockReservations reservations = new StockReservations(database, Set.of(), 50, Duration.ofMinutes(10), clock);
+        reservations.reserve(COLD_PRODUCT, 3);  // abandoned
+        StockReservations.Reservation confirmed = reservations.reserve(COLD_PRODUCT, 2);
+        reservations.confirm(confirmed);
+
+        // act
+        clock.advance(Duration.ofMinutes(11));
+        reservations.sweep();
+
+        // assert
+        assertEquals(8, database.stock(COLD_PRODUCT), "Because the abandoned 3 units are back and the confirmed 2 stay sold.");
+        assertEquals(0, reservations.getPendingCount(), "Because nothing is held any more.");
+    }
+
+    @Test
+    public void confirm_shouldTakeTheUnitsAgain_whenTheSweepReleasedThem()
+    {
+        // arrange - the order commits after its reservation expired
+        FakeStock database = new FakeStock(Map.of(COLD_PRODUCT, 10), 0);
+        MutableClock clock = new MutableClock();
+        StockReservations reservations = new StockReservations(database, Set.of(), 50, Duration.ofMinutes(10), clock);
+        StockReservations.Reservation late = reservations.reserve(COLD_PRODUCT, 3);
+        clock.advance(Duration.ofMinutes(11));
+        reservations.sweep();
+
+        // act
+        boolean confirmed = reservations.confirm(late);
+        boolean again = reservations.confirm(late);
+
+        // assert
+        assertTrue(confirmed, "Because the units were still there to take again.");
+        assertTrue(again, "Because confirming twice is a no-op.");
+        assertEquals(7, database.stock(COLD_PRODUCT), "Because the committed order keeps its 3 units, taken once.");
+    }
+
+    @Test
+    public void confirm_shouldReportAnOversell_whenTheReleasedUnitsAreGone()
+    {
+        // arrange - the released units are bought by someone else before the order confirms
+        FakeStock database = new FakeStock(Map.of(COLD_PRODUCT, 3), 0);
+        MutableClock clock = new MutableClock();
+        StockReservations reservations = new StockReservations(database, Set.of(), 50, Duration.ofMinutes(10), clock);
+        StockReservations.Reservation late = reservations.reserve(COLD_PRODUCT, 3);
+        clock.advance(Duration.ofMinutes(11));
+        reservations.sweep();
+        reservations.confirm(reservations.reserve(COLD_PRODUCT, 3));
+
+        // act
+        boolean confirmed = reservations.confirm(late);
+
+        // assert
+        assertFalse(confirmed, "Because the order's units were sold twice.");
+        assertEquals(0, database.stock(COLD_PRODUCT), "Because the stock never goes below zero.");
+    }
+
+    @Test
+    public void sweep_shouldNotRelease_aConfirmedReservation()
+    {
+        // arrange
+        FakeStock database = new FakeStock(Map.of(COLD_PRODUCT, 10), 0);
+        MutableClock clock = new MutableClock();
+        StockReservations reservations = new StockReservations(database, Set.of(), 50, Duration.ofMinutes(10), clock);
+        StockReservations.Reservation sold = reservations.reserve(COLD_PRODUCT, 4);
+        reservations.confirm(sold);
+
+        // act
+        clock.advance(Duration.ofMinutes(11));
+        reservations.sweep();
+        reservations.release(sold);
+
+        // assert
+        assertEquals(6, database.stock(COLD_PRODUCT), "Because confirmed units stay sold.");
+    }
+
+    @Test
+    public void sweep_shouldReturn_theLeaseOfAnIdleHotProduct()
+    {
+        // arrange
+        FakeStock database = new FakeStock(Map.of(HOT_PRODUCT, 100), 0);
+        StockReservations reservations = new StockReservations(database, Set.of(HOT_PRODUCT), 50, Duration.ofMinutes(10), Clock.systemUTC());
+        reservations.confirm(reservations.reserve(HOT_PRODUCT, 1));
+
+        // act
+        reservations.sweep();
+        int whileBusy = database.stock(HOT_PRODUCT);
+        reservations.sweep();
+
+        // assert
+        assertEquals(50, whileBusy, "Because a product reserved from since the last sweep keeps its lease.");
+        assertEquals(99, database.stock(HOT_PRODUCT), "Because the unused 49 units go back once the product is idle.");
+    }
+
+    private static int reserveUntilSoldOut(StockReservations reservations, int productId, int threads)
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                results.add(pool.submit(() -> {
+                    int reserved = 0;
+                    StockReservations.Reservation reservation;
+                    while ((reservation = reservations.reserve(productId, 1)) != null)
+                    {
+                        reservations.confirm(reservation);
+                        reserved++;
+                    }
+                    return reserved;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> result : results)
+            {
+                total += result.get(60, TimeUnit.SECONDS);
+            }
+            return total;
+        }
+        catch (Exception ex)
+        {
+            throw new AssertionError(ex);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    // stands in for MySQL: one lock per product row, held for a while by every write
+    private static class FakeStock implements StockLedger
+    {
+        private final Map<Integer, Integer> stock = new ConcurrentHashMap<>();
+        private final Map<Integer, Object> rows = new ConcurrentHashMap<>();
+        private final long rowLockNanos;
+        private final AtomicInteger writes = new AtomicInteger();
+
+        FakeStock(Map<Integer, Integer> stock, long rowLockNanos)
+        {
+            this.stock.putAll(stock);
+            stock.keySet().forEach(productId -> rows.put(productId, new Object()));
+            this.rowLockNanos = rowLockNanos;
+        }
+
+        @Override
+        public boolean takeStock(int productId, int quantity)
+        {
+            writes.incrementAndGet();
+            synchronized (rows.get(productId))
+            {
+                LockSupport.parkNanos(rowLockNanos);
+                int left = stock.get(productId);
+                if (left < quantity)
+                {
+                    return false;
+                }
+                stock.put(productId, left - quantity);
+                return true;
+            }
+        }
+
+        @Override
+        public void returnStock(Map<Integer, Integer> quantities)
+        {
+            writes.incrementAndGet();
+            quantities.forEach((productId, quantity) -> {
+                synchronized (rows.get(productId))
+                {
+                    stock.merge(productId, quantity, Integer::sum);
+                }
+            });
+        }
+
+        int stock(int productId)
+        {
+            return stock.get(productId);
+        }
+    }
+
+    private static class MutableClock extends Clock
+    {
+        private volatile Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration)
+        {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone)
+        {
+            return this;
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.yearup.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedLockTest
+{
+    @Test
+    public void size_shouldRoundUp_toAPowerOfTwo()
+    {
+        assertEquals(1, new StripedLock(1).size(), "Because one stripe asked for is one lock.");
+        assertEquals(1, new StripedLock(0).size(), "Because there is always at least one lock.");
+        assertEquals(2, new StripedLock(2).size(), "Because 2 is a power of two already.");
+        assertEquals(4, new StripedLock(3).size(), "Because 3 rounds up to 4.");
+        assertEquals(64, new StripedLock(64).size(), "Because 64 is a power of two already.");
+        assertEquals(128, new StripedLock(65).size(), "Because 65 rounds up to 128.");
+    }
+
+    @Test
+    public void stripe_shouldStay_withinTheLocks()
+    {
+        StripedLock single = new StripedLock(1);
+        StripedLock striped = new StripedLock(8);
+        for (int key = -1_000; key <= 1_000; key++)
+        {
+            assertEquals(0, single.stripe(key), "Because a single lock is stripe 0 for every key.");
+            int stripe = striped.stripe(key);
+            assertTrue(stripe >= 0 && stripe < 8, "Because key " + key + " must land on one of the 8 stripes.");
+        }
+    }
+}
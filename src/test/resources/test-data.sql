@@ -39,7 +39,11 @@ CREATE TABLE products (
                           stock INT NOT NULL DEFAULT 0,
                           featured BOOL NOT NULL DEFAULT 0,
                           PRIMARY KEY (product_id),
-                          FOREIGN KEY (category_id) REFERENCES categories(category_id)
+                          FOREIGN KEY (category_id) REFERENCES categories(category_id),
+                          INDEX ix_products_price (price),
+                          INDEX ix_products_name (name),
+                          INDEX ix_products_category_price (category_id, price),
+                          INDEX ix_products_category_name (category_id, name)
 );
 
 CREATE TABLE orders (
@@ -52,7 +56,8 @@ CREATE TABLE orders (
                         zip VARCHAR(20) NOT NULL,
                         shipping_amount DECIMAL(10, 2) NOT NULL DEFAULT 0,
                         PRIMARY KEY (order_id),
-                        FOREIGN KEY (user_id) REFERENCES users(user_id)
+                        FOREIGN KEY (user_id) REFERENCES users(user_id),
+                        INDEX ix_orders_user_date (user_id, date, order_id)
 );
 
 CREATE TABLE order_line_items (
@@ -64,7 +69,8 @@ CREATE TABLE order_line_items (
                                   discount DECIMAL(10, 2) NOT NULL DEFAULT 0,
                                   PRIMARY KEY (order_line_item_id),
                                   FOREIGN KEY (order_id) REFERENCES orders(order_id),
-                                  FOREIGN KEY (product_id) REFERENCES products(product_id)
+                                  FOREIGN KEY (product_id) REFERENCES products(product_id),
+                                  INDEX ix_order_line_items_order (order_id)
 );
 
 -- new tables
@@ -77,6 +83,60 @@ CREATE TABLE shopping_cart (
                                FOREIGN KEY (product_id) REFERENCES products(product_id)
 );
 
+CREATE TABLE pricing_rules (
+                               rule_id INT NOT NULL AUTO_INCREMENT,
+                               rule_type VARCHAR(20) NOT NULL,
+                               product_id INT,
+                               category_id INT,
+                               min_quantity INT NOT NULL DEFAULT 1,
+                               free_quantity INT NOT NULL DEFAULT 0,
+                               discount_percent DECIMAL(5, 4) NOT NULL DEFAULT 0,
+                               active BOOL NOT NULL DEFAULT 1,
+                               PRIMARY KEY (rule_id),
+                               FOREIGN KEY (product_id) REFERENCES products(product_id),
+                               FOREIGN KEY (category_id) REFERENCES categories(category_id)
+);
+
+CREATE TABLE order_confirmations (
+                               order_id INT NOT NULL,
+                               total DECIMAL(12, 2) NOT NULL,
+                               confirmed_at DATETIME NOT NULL,
+                               PRIMARY KEY (order_id),
+                               FOREIGN KEY (order_id) REFERENCES orders(order_id)
+);
+
+CREATE TABLE order_analytics (
+                               order_id INT NOT NULL,
+                               user_id INT NOT NULL,
+                               order_date DATETIME NOT NULL,
+                               line_count INT NOT NULL,
+                               unit_count INT NOT NULL,
+                               total DECIMAL(12, 2) NOT NULL,
+                               PRIMARY KEY (order_id),
+                               FOREIGN KEY (order_id) REFERENCES orders(order_id)
+);
+
+CREATE TABLE sales_rollup_orders (
+                                     order_id INT NOT NULL,
+                                     PRIMARY KEY (order_id)
+);
+
+CREATE TABLE sales_by_product (
+                                  product_id INT NOT NULL,
+                                  units INT NOT NULL,
+                                  revenue DECIMAL(14, 2) NOT NULL,
+                                  PRIMARY KEY (product_id),
+                                  INDEX ix_sales_by_product_units (units, product_id)
+);
+
+CREATE TABLE sales_by_category_day (
+                                       sales_date DATE NOT NULL,
+                                       category_id INT NOT NULL,
+                                       units INT NOT NULL,
+                                       revenue DECIMAL(14, 2) NOT NULL,
+                                       PRIMARY KEY (sales_date, category_id)
+);
+
 
 /*  INSERT Users  */
 INSERT INTO users (username, hashed_password, role)